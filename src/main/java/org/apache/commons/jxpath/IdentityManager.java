@@ -20,7 +20,8 @@ package org.apache.commons.jxpath;
  * A delegate of {@link JXPathContext} that implements the XPath <code>"id()"</code>
  * function. This delegate is only used when there is no default implementation
  * of the <code>id()</code> function. For example, it is <i>not</i> used
- * when the root of the context is a DOM Node.
+ * when the root of the context is a DOM Node, unless it is a
+ * {@link org.apache.commons.jxpath.ri.model.dom.DOMIdentityManager}.
  *
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
@@ -24,6 +24,8 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 
+import org.apache.commons.jxpath.util.PropertyAccessor;
+
 /**
  * An implementation of JXPathBeanInfo based on JavaBeans' BeanInfo. Properties
  * advertised by JXPathBasicBeanInfo are the same as those advertised by
@@ -48,8 +50,7 @@ public class JXPathBasicBeanInfo implements JXPathBeanInfo {
     private boolean atomic = false;
     private Class clazz;
     private Class dynamicPropertyHandlerClass;
-    private transient PropertyDescriptor[] propertyDescriptors;
-    private transient HashMap propertyDescriptorMap;
+    private transient volatile Properties properties;
 
     /**
      * Create a new JXPathBasicBeanInfo.
@@ -98,49 +99,133 @@ public class JXPathBasicBeanInfo implements JXPathBeanInfo {
         return dynamicPropertyHandlerClass != null;
     }
 
-    public synchronized PropertyDescriptor[] getPropertyDescriptors() {
-        if (propertyDescriptors == null) {
-            if (clazz == Object.class) {
-                propertyDescriptors = new PropertyDescriptor[0];
-            }
-            else {
-                try {
-                    BeanInfo bi;
-                    if (clazz.isInterface()) {
-                        bi = Introspector.getBeanInfo(clazz);
-                    }
-                    else {
-                        bi = Introspector.getBeanInfo(clazz, Object.class);
-                    }
-                    PropertyDescriptor[] pds = bi.getPropertyDescriptors();
-                    PropertyDescriptor[] descriptors = new PropertyDescriptor[pds.length];
-                    System.arraycopy(pds, 0, descriptors, 0, pds.length);
-                    Arrays.sort(descriptors, PROPERTY_DESCRIPTOR_COMPARATOR);
-                    propertyDescriptors = descriptors;
-                }
-                catch (IntrospectionException ex) {
-                    ex.printStackTrace();
-                    return new PropertyDescriptor[0];
+    public PropertyDescriptor[] getPropertyDescriptors() {
+        PropertyDescriptor[] descriptors = getProperties().descriptors;
+        if (descriptors.length == 0) {
+            return descriptors;
+        }
+        PropertyDescriptor[] result = new PropertyDescriptor[descriptors.length];
+        System.arraycopy(descriptors, 0, result, 0, descriptors.length);
+        return result;
+    }
+
+    public PropertyDescriptor getPropertyDescriptor(String propertyName) {
+        return (PropertyDescriptor) getProperties().byName.get(propertyName);
+    }
+
+    /**
+     * Get the number of properties. Unlike
+     * <code>getPropertyDescriptors().length</code>, does not copy the
+     * descriptors.
+     * @return int
+     */
+    public int getPropertyCount() {
+        return getProperties().descriptors.length;
+    }
+
+    /**
+     * Get a property by its position in the array returned by
+     * {@link #getPropertyDescriptors()}, without copying that array.
+     * @param index property index
+     * @return PropertyDescriptor, <code>null</code> if the index is out of
+     * range
+     */
+    public PropertyDescriptor getPropertyDescriptor(int index) {
+        PropertyDescriptor[] descriptors = getProperties().descriptors;
+        return index >= 0 && index < descriptors.length ? descriptors[index]
+                : null;
+    }
+
+    /**
+     * Get the position of the named property in the array returned by
+     * {@link #getPropertyDescriptors()}.
+     * @param propertyName property name
+     * @return int index, -1 if there is no such property
+     */
+    public int getPropertyIndex(String propertyName) {
+        Integer index = (Integer) getProperties().indexByName.get(propertyName);
+        return index == null ? -1 : index.intValue();
+    }
+
+    /**
+     * Get an accessor for the named property. The accessors of all
+     * properties are created together the first time one is requested.
+     * @param propertyName property name
+     * @return PropertyAccessor, <code>null</code> if there is no such
+     * property
+     */
+    public PropertyAccessor getPropertyAccessor(String propertyName) {
+        return (PropertyAccessor) getProperties().getAccessors(this)
+                .get(propertyName);
+    }
+
+    /**
+     * Get the properties of the class, introspecting it the first time.
+     * @return Properties
+     */
+    private Properties getProperties() {
+        Properties result = properties;
+        if (result == null) {
+            synchronized (this) {
+                result = properties;
+                if (result == null) {
+                    result = new Properties(introspect());
+                    properties = result;
                 }
             }
         }
-        if (propertyDescriptors.length == 0) {
-            return propertyDescriptors;
-        }
-        PropertyDescriptor[] result = new PropertyDescriptor[propertyDescriptors.length];
-        System.arraycopy(propertyDescriptors, 0, result, 0, propertyDescriptors.length);
         return result;
     }
 
-    public synchronized PropertyDescriptor getPropertyDescriptor(String propertyName) {
-        if (propertyDescriptorMap == null) {
-            propertyDescriptorMap = new HashMap();
-            PropertyDescriptor[] pds = getPropertyDescriptors();
-            for (int i = 0; i < pds.length; i++) {
-                propertyDescriptorMap.put(pds[i].getName(), pds[i]);
-            }
+    /**
+     * Find the properties of the class.
+     * @return PropertyDescriptor[] sorted by name
+     */
+    private PropertyDescriptor[] introspect() {
+        if (clazz == Object.class) {
+            return new PropertyDescriptor[0];
+        }
+        try {
+            PropertyDescriptor[] pds = createPropertyDescriptors();
+            PropertyDescriptor[] descriptors = new PropertyDescriptor[pds.length];
+            System.arraycopy(pds, 0, descriptors, 0, pds.length);
+            Arrays.sort(descriptors, PROPERTY_DESCRIPTOR_COMPARATOR);
+            return descriptors;
+        }
+        catch (IntrospectionException ex) {
+            ex.printStackTrace();
+            return new PropertyDescriptor[0];
+        }
+    }
+
+    /**
+     * Describe the properties of the class. Called once, the first time
+     * the properties are needed. The default implementation uses
+     * <code>java.beans.Introspector</code>.
+     * @return PropertyDescriptor[] in any order
+     * @throws IntrospectionException if the class cannot be introspected
+     */
+    protected PropertyDescriptor[] createPropertyDescriptors()
+            throws IntrospectionException {
+        BeanInfo bi;
+        if (clazz.isInterface()) {
+            bi = Introspector.getBeanInfo(clazz);
         }
-        return (PropertyDescriptor) propertyDescriptorMap.get(propertyName);
+        else {
+            bi = Introspector.getBeanInfo(clazz, Object.class);
+        }
+        return bi.getPropertyDescriptors();
+    }
+
+    /**
+     * Create the accessor of a property.
+     * @param propertyDescriptor one of the descriptors returned by
+     * {@link #createPropertyDescriptors()}
+     * @return PropertyAccessor
+     */
+    protected PropertyAccessor createPropertyAccessor(
+            PropertyDescriptor propertyDescriptor) {
+        return new PropertyAccessor(propertyDescriptor);
     }
 
     /**
@@ -173,4 +258,53 @@ public class JXPathBasicBeanInfo implements JXPathBeanInfo {
         buffer.append("]");
         return buffer.toString();
     }
+
+    /**
+     * The properties of a class. Never modified once published, so they
+     * can be read without locking.
+     */
+    private static final class Properties {
+        private final PropertyDescriptor[] descriptors;
+        private final HashMap byName;
+        private final HashMap indexByName;
+        private volatile HashMap accessors;
+
+        /**
+         * Create a new Properties.
+         * @param descriptors sorted by name
+         */
+        public Properties(PropertyDescriptor[] descriptors) {
+            this.descriptors = descriptors;
+            byName = new HashMap();
+            indexByName = new HashMap();
+            for (int i = 0; i < descriptors.length; i++) {
+                byName.put(descriptors[i].getName(), descriptors[i]);
+                indexByName.put(descriptors[i].getName(), new Integer(i));
+            }
+        }
+
+        /**
+         * Get the accessors of all properties by name, creating them the
+         * first time.
+         * @param beanInfo that creates the accessors
+         * @return HashMap
+         */
+        public HashMap getAccessors(JXPathBasicBeanInfo beanInfo) {
+            HashMap result = accessors;
+            if (result == null) {
+                synchronized (this) {
+                    result = accessors;
+                    if (result == null) {
+                        result = new HashMap();
+                        for (int i = 0; i < descriptors.length; i++) {
+                            result.put(descriptors[i].getName(), beanInfo
+                                    .createPropertyAccessor(descriptors[i]));
+                        }
+                        accessors = result;
+                    }
+                }
+            }
+            return result;
+        }
+    }
 }
@@ -16,10 +16,10 @@
  */
 package org.apache.commons.jxpath;
 
-import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.jxpath.util.ClassLoaderUtil;
 
@@ -32,8 +32,28 @@ import org.apache.commons.jxpath.util.ClassLoaderUtil;
  */
 public class JXPathIntrospector {
 
-    private static Map byClass = Collections.synchronizedMap(new HashMap());
-    private static Map byInterface = Collections.synchronizedMap(new HashMap());
+    private static Map byClass = new ConcurrentHashMap();
+    private static Map byInterface = new ConcurrentHashMap();
+
+    /**
+     * Results of {@link #findDynamicBeanInfo(Class)}, with NONE standing
+     * for <code>null</code>. Cleared whenever a class is registered.
+     */
+    private static ConcurrentHashMap dynamicByClass = new ConcurrentHashMap();
+
+    /**
+     * Locks of the classes whose bean info is being created, so that the
+     * bean info of a class is only created once.
+     */
+    private static ConcurrentHashMap creationLocks = new ConcurrentHashMap();
+
+    private static final Object NONE = new Object();
+
+    /**
+     * Incremented by each registration, so that a lookup that overlapped
+     * a registration does not keep its result cached.
+     */
+    private static final AtomicInteger REGISTRATIONS = new AtomicInteger();
 
     static {
         registerAtomicClass(Class.class);
@@ -68,9 +88,8 @@ public class JXPathIntrospector {
      * @param beanClass to register
      */
     public static void registerAtomicClass(Class beanClass) {
-        synchronized (byClass) { 
-            byClass.put(beanClass, new JXPathBasicBeanInfo(beanClass, true));
-        }
+        byClass.put(beanClass, new JXPathBasicBeanInfo(beanClass, true));
+        registered();
     }
 
     /**
@@ -86,15 +105,20 @@ public class JXPathIntrospector {
         JXPathBasicBeanInfo bi =
             new JXPathBasicBeanInfo(beanClass, dynamicPropertyHandlerClass);
         if (beanClass.isInterface()) {
-            synchronized (byInterface) {
-                byInterface.put(beanClass, bi);
-            }
+            byInterface.put(beanClass, bi);
         }
         else {
-            synchronized (byClass) {
-                byClass.put(beanClass, bi);
-            }
+            byClass.put(beanClass, bi);
         }
+        registered();
+    }
+
+    /**
+     * Forget the cached results of registry searches after a registration.
+     */
+    private static void registered() {
+        REGISTRATIONS.incrementAndGet();
+        dynamicByClass.clear();
     }
 
     /**
@@ -114,16 +138,42 @@ public class JXPathIntrospector {
      */
     public static JXPathBeanInfo getBeanInfo(Class beanClass) {
         JXPathBeanInfo beanInfo = (JXPathBeanInfo) byClass.get(beanClass);
-        if (beanInfo == null) {
-            beanInfo = findDynamicBeanInfo(beanClass);
-            if (beanInfo == null) {
-                beanInfo = findInformant(beanClass);
+        if (beanInfo != null) {
+            return beanInfo;
+        }
+        // Threads asking for the same new class wait for the first one
+        // rather than all searching for an informant
+        Object lock = new Object();
+        Object existing = creationLocks.putIfAbsent(beanClass, lock);
+        if (existing != null) {
+            lock = existing;
+        }
+        try {
+            synchronized (lock) {
+                beanInfo = (JXPathBeanInfo) byClass.get(beanClass);
                 if (beanInfo == null) {
-                    beanInfo = new JXPathBasicBeanInfo(beanClass);
+                    beanInfo = createBeanInfo(beanClass);
+                    byClass.put(beanClass, beanInfo);
                 }
             }
-            synchronized (byClass) {
-                byClass.put(beanClass, beanInfo);
+        }
+        finally {
+            creationLocks.remove(beanClass, lock);
+        }
+        return beanInfo;
+    }
+
+    /**
+     * Create the JXPathBeanInfo of a class that is not registered yet.
+     * @param beanClass whose info to create
+     * @return JXPathBeanInfo
+     */
+    private static JXPathBeanInfo createBeanInfo(Class beanClass) {
+        JXPathBeanInfo beanInfo = findDynamicBeanInfo(beanClass);
+        if (beanInfo == null) {
+            beanInfo = findInformant(beanClass);
+            if (beanInfo == null) {
+                beanInfo = new JXPathBasicBeanInfo(beanClass);
             }
         }
         return beanInfo;
@@ -136,6 +186,29 @@ public class JXPathIntrospector {
      * @return JXPathBeanInfo
      */
     private static JXPathBeanInfo findDynamicBeanInfo(Class beanClass) {
+        Object cached = dynamicByClass.get(beanClass);
+        if (cached != null) {
+            return cached == NONE ? null : (JXPathBeanInfo) cached;
+        }
+        int registrationCount = REGISTRATIONS.get();
+        JXPathBeanInfo beanInfo = searchDynamicBeanInfo(beanClass);
+        Object result = beanInfo == null ? NONE : beanInfo;
+        dynamicByClass.put(beanClass, result);
+        if (registrationCount != REGISTRATIONS.get()) {
+            // A registration overlapped the search and may have cleared
+            // the cache before the result was put
+            dynamicByClass.remove(beanClass, result);
+        }
+        return beanInfo;
+    }
+
+    /**
+     * Search the superclasses and interfaces of a class for a registered
+     * dynamic bean info.
+     * @param beanClass to search for
+     * @return JXPathBeanInfo
+     */
+    private static JXPathBeanInfo searchDynamicBeanInfo(Class beanClass) {
         JXPathBeanInfo beanInfo;
         if (beanClass.isInterface()) {
             beanInfo = (JXPathBeanInfo) byInterface.get(beanClass);
@@ -174,7 +247,7 @@ public class JXPathIntrospector {
      * @param beanClass for which to look for an info provider
      * @return JXPathBeanInfo instance or null if none found
      */
-    private static synchronized JXPathBeanInfo findInformant(Class beanClass) {
+    private static JXPathBeanInfo findInformant(Class beanClass) {
         String name = beanClass.getName() + "XBeanInfo";
         try {
             return (JXPathBeanInfo) instantiate(beanClass, name);
@@ -0,0 +1,642 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.apt;
+
+import java.beans.Introspector;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a <code>&lt;class&gt;XBeanInfo</code> class for every class or
+ * interface marked with {@link org.apache.commons.jxpath.JXPathBean}.
+ * <p>
+ * The generated class extends
+ * {@link org.apache.commons.jxpath.JXPathBasicBeanInfo}. It describes the
+ * properties found by applying the JavaBeans naming rules to the public
+ * methods of the bean at compile time, so <code>java.beans.Introspector</code>
+ * is not needed at run time, and its property accessors call the getters
+ * and setters directly instead of through reflection. Indexed properties
+ * keep the default accessors. {@link org.apache.commons.jxpath.JXPathIntrospector}
+ * finds the generated class by its name, like any hand-written
+ * <code>XBeanInfo</code>. No class is generated for a bean that has a
+ * <code>java.beans.BeanInfo</code> of its own or inherits one, as the
+ * properties it describes cannot be known at compile time.
+ * <p>
+ * The processor is shipped in the <code>apt</code> jar rather than the
+ * main one, and is not registered as a service, so it does not run in
+ * every compilation that has JXPath on its class path. Name it
+ * explicitly when compiling the beans:
+ * <pre>
+ * javac -processorpath commons-jxpath-&lt;version&gt;-apt.jar
+ *       -processor org.apache.commons.jxpath.apt.JXPathBeanProcessor ...
+ * </pre>
+ * or list it under <code>annotationProcessors</code> in the configuration
+ * of the maven-compiler-plugin, with the <code>apt</code> classifier of
+ * JXPath on the processor path.
+ *
+ * @version $Revision$ $Date$
+ */
+@SupportedAnnotationTypes("org.apache.commons.jxpath.JXPathBean")
+public class JXPathBeanProcessor extends AbstractProcessor {
+
+    private static final String ANNOTATION = "org.apache.commons.jxpath.JXPathBean";
+
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    public boolean process(Set annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation =
+            processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation == null) {
+            return false;
+        }
+        Iterator it = roundEnv.getElementsAnnotatedWith(annotation).iterator();
+        while (it.hasNext()) {
+            Element element = (Element) it.next();
+            if (isSupported(element)) {
+                TypeElement type = (TypeElement) element;
+                TypeElement beanInfo = findBeanInfo(type);
+                if (beanInfo == null) {
+                    generate(type);
+                }
+                else {
+                    processingEnv.getMessager().printMessage(
+                            Diagnostic.Kind.NOTE, "Not generated, "
+                                    + beanInfo.getQualifiedName()
+                                    + " describes the bean", type);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check that a generated class can refer to an annotated element,
+     * reporting an error if it cannot.
+     * @param element annotated element
+     * @return boolean
+     */
+    private boolean isSupported(Element element) {
+        if (element.getKind() != ElementKind.CLASS
+                && element.getKind() != ElementKind.INTERFACE) {
+            error(element, "@JXPathBean only applies to classes and interfaces");
+            return false;
+        }
+        Element current = element;
+        while (current instanceof TypeElement) {
+            Set modifiers = current.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) {
+                error(element, "@JXPathBean classes must not be private");
+                return false;
+            }
+            Element enclosing = current.getEnclosingElement();
+            if (enclosing instanceof TypeElement
+                    && current.getKind() == ElementKind.CLASS
+                    && !modifiers.contains(Modifier.STATIC)) {
+                error(element, "@JXPathBean classes must not be inner classes");
+                return false;
+            }
+            current = enclosing;
+        }
+        return true;
+    }
+
+    /**
+     * Find the <code>&lt;class&gt;BeanInfo</code> that
+     * <code>java.beans.Introspector</code> would use for a bean or for one
+     * of its superclasses.
+     * @param type bean class or interface
+     * @return the BeanInfo class, <code>null</code> if there is none
+     */
+    private TypeElement findBeanInfo(TypeElement type) {
+        Elements elements = processingEnv.getElementUtils();
+        TypeElement current = type;
+        while (current != null
+                && !current.getQualifiedName().contentEquals("java.lang.Object")) {
+            TypeElement beanInfo = elements.getTypeElement(
+                    current.getQualifiedName() + "BeanInfo");
+            if (beanInfo != null) {
+                return beanInfo;
+            }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return null;
+    }
+
+    /**
+     * Write the XBeanInfo class of a bean.
+     * @param type bean class or interface
+     */
+    private void generate(TypeElement type) {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        PackageElement pkg = elements.getPackageOf(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String className = (packageName.length() == 0 ? binaryName
+                : binaryName.substring(packageName.length() + 1)) + "XBeanInfo";
+        String beanName = types.erasure(type.asType()).toString();
+        Map properties = findProperties(type);
+
+        PrintWriter out;
+        try {
+            out = new PrintWriter(processingEnv.getFiler().createSourceFile(
+                    packageName.length() == 0 ? className
+                            : packageName + "." + className, type)
+                    .openWriter());
+        }
+        catch (FilerException ex) {
+            // The class is one of the sources being compiled, as happens
+            // when a build tool recompiles without cleaning
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    className + " already exists", type);
+            return;
+        }
+        catch (IOException ex) {
+            error(type, "Cannot create " + className + ": " + ex);
+            return;
+        }
+        try {
+            if (packageName.length() != 0) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * JXPathBeanInfo of {@link " + beanName + "}, generated by");
+            out.println(" * " + getClass().getName() + ".");
+            out.println(" */");
+            out.println("public class " + className
+                    + " extends org.apache.commons.jxpath.JXPathBasicBeanInfo {");
+            out.println("    private static final long serialVersionUID = 1L;");
+            out.println();
+            out.println("    public " + className + "() {");
+            out.println("        super(" + beanName + ".class);");
+            out.println("    }");
+            out.println();
+            writeDescriptors(out, beanName, properties);
+            out.println();
+            writeAccessors(out, beanName,
+                    !type.getTypeParameters().isEmpty(), properties);
+            out.println("}");
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Find the properties of a bean the way <code>java.beans.Introspector</code>
+     * does: from the methods of a class and its superclasses, ignoring
+     * those of <code>java.lang.Object</code> and of interfaces, or from the
+     * methods an interface declares itself.
+     * @param type bean class or interface
+     * @return Map of property name to Property, sorted by name
+     */
+    private Map findProperties(TypeElement type) {
+        Map properties = new TreeMap();
+        boolean isInterface = type.getKind() == ElementKind.INTERFACE;
+        List members = processingEnv.getElementUtils().getAllMembers(type);
+        for (int i = 0; i < members.size(); i++) {
+            Element member = (Element) members.get(i);
+            Element owner = member.getEnclosingElement();
+            if (member.getKind() != ElementKind.METHOD
+                    || !member.getModifiers().contains(Modifier.PUBLIC)
+                    || member.getModifiers().contains(Modifier.STATIC)
+                    || (isInterface ? !owner.equals(type)
+                            : owner.getKind() == ElementKind.INTERFACE)
+                    || ((TypeElement) owner).getQualifiedName()
+                            .contentEquals("java.lang.Object")) {
+                continue;
+            }
+            ExecutableElement method = (ExecutableElement) member;
+            String name = method.getSimpleName().toString();
+            List parameters = method.getParameters();
+            TypeKind returnKind = method.getReturnType().getKind();
+            if (name.startsWith("get") && name.length() > 3
+                    && returnKind != TypeKind.VOID) {
+                if (parameters.isEmpty()) {
+                    getProperty(properties, name.substring(3)).getter = method;
+                }
+                else if (parameters.size() == 1 && isInt(parameters.get(0))) {
+                    getProperty(properties, name.substring(3)).indexedGetter =
+                        method;
+                }
+            }
+            else if (name.startsWith("is") && name.length() > 2
+                    && returnKind == TypeKind.BOOLEAN && parameters.isEmpty()) {
+                getProperty(properties, name.substring(2)).isGetter = method;
+            }
+            else if (name.startsWith("set") && name.length() > 3
+                    && returnKind == TypeKind.VOID) {
+                if (parameters.size() == 1) {
+                    getProperty(properties, name.substring(3)).setters.add(method);
+                }
+                else if (parameters.size() == 2 && isInt(parameters.get(0))) {
+                    getProperty(properties, name.substring(3)).indexedSetter =
+                        method;
+                }
+            }
+        }
+        Iterator it = properties.values().iterator();
+        while (it.hasNext()) {
+            if (!((Property) it.next()).resolve(processingEnv.getTypeUtils())) {
+                it.remove();
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Get or create the Property with the specified capitalized name.
+     * @param properties Map of property name to Property
+     * @param suffix method name without prefix
+     * @return Property
+     */
+    private static Property getProperty(Map properties, String suffix) {
+        String name = Introspector.decapitalize(suffix);
+        Property property = (Property) properties.get(name);
+        if (property == null) {
+            property = new Property(name);
+            properties.put(name, property);
+        }
+        return property;
+    }
+
+    /**
+     * Learn whether a parameter is an <code>int</code>.
+     * @param parameter VariableElement
+     * @return boolean
+     */
+    private static boolean isInt(Object parameter) {
+        return ((VariableElement) parameter).asType().getKind() == TypeKind.INT;
+    }
+
+    /**
+     * Write the createPropertyDescriptors method.
+     * @param out to write to
+     * @param beanName source name of the bean type
+     * @param properties Map of property name to Property
+     */
+    private static void writeDescriptors(PrintWriter out, String beanName,
+            Map properties) {
+        out.println("    protected java.beans.PropertyDescriptor[] createPropertyDescriptors()");
+        out.println("            throws java.beans.IntrospectionException {");
+        out.println("        return new java.beans.PropertyDescriptor[] {");
+        Iterator it = properties.values().iterator();
+        while (it.hasNext()) {
+            Property property = (Property) it.next();
+            if (property.isIndexed()) {
+                out.println("            new java.beans.IndexedPropertyDescriptor("
+                        + quote(property.name) + ", " + beanName + ".class,");
+                out.println("                " + quote(property.reader) + ", "
+                        + quote(property.writer) + ", "
+                        + quote(property.indexedGetter) + ", "
+                        + quote(property.indexedSetter) + "),");
+            }
+            else {
+                out.println("            new java.beans.PropertyDescriptor("
+                        + quote(property.name) + ", " + beanName + ".class,");
+                out.println("                " + quote(property.reader) + ", "
+                        + quote(property.writer) + "),");
+            }
+        }
+        out.println("        };");
+        out.println("    }");
+    }
+
+    /**
+     * Write the createPropertyAccessor method.
+     * @param out to write to
+     * @param beanName source name of the bean type
+     * @param generic whether the bean type has type parameters, so
+     * <code>beanName</code> is a raw type
+     * @param properties Map of property name to Property
+     */
+    private static void writeAccessors(PrintWriter out, String beanName,
+            boolean generic, Map properties) {
+        out.println("    protected org.apache.commons.jxpath.util.PropertyAccessor createPropertyAccessor(");
+        out.println("            java.beans.PropertyDescriptor propertyDescriptor) {");
+        out.println("        String name = propertyDescriptor.getName();");
+        Iterator it = properties.values().iterator();
+        while (it.hasNext()) {
+            Property property = (Property) it.next();
+            if (property.isIndexed()) {
+                continue;
+            }
+            out.println("        if (" + quote(property.name) + ".equals(name)) {");
+            out.println("            return new org.apache.commons.jxpath.util.PropertyAccessor(");
+            out.println("                    propertyDescriptor, false) {");
+            if (property.reader != null) {
+                writeGetter(out, beanName, property);
+            }
+            if (property.writer != null) {
+                if (property.reader != null) {
+                    out.println();
+                }
+                writeSetter(out, beanName, generic, property);
+            }
+            out.println("            };");
+            out.println("        }");
+        }
+        out.println("        return super.createPropertyAccessor(propertyDescriptor);");
+        out.println("    }");
+    }
+
+    /**
+     * Write the getValue method of a property accessor.
+     * @param out to write to
+     * @param beanName source name of the bean type
+     * @param property to read
+     */
+    private static void writeGetter(PrintWriter out, String beanName,
+            Property property) {
+        out.println("                public Object getValue(Object bean) {");
+        out.println("                    if (!(bean instanceof " + beanName + ")) {");
+        out.println("                        return super.getValue(bean);");
+        out.println("                    }");
+        out.println("                    try {");
+        out.println("                        return ((" + beanName + ") bean)."
+                + property.reader.getSimpleName() + "();");
+        out.println("                    }");
+        out.println("                    catch (Throwable ex) {");
+        out.println("                        throw readFailure(bean, ex);");
+        out.println("                    }");
+        out.println("                }");
+    }
+
+    /**
+     * Write the setValue method of a property accessor.
+     * @param out to write to
+     * @param beanName source name of the bean type
+     * @param generic whether <code>beanName</code> is a raw type
+     * @param property to modify
+     */
+    private static void writeSetter(PrintWriter out, String beanName,
+            boolean generic, Property property) {
+        String type = property.typeName;
+        String wrapper = property.wrapperName;
+        if (generic || !property.reifiable) {
+            // converted is only known to be an instance of the erasure
+            out.println("                @SuppressWarnings(\"unchecked\")");
+        }
+        out.println("                public void setValue(Object bean, Object value) {");
+        out.println("                    Object converted = convert(value, " + type + ".class);");
+        out.println("                    if (!(bean instanceof " + beanName + ")");
+        if (wrapper == null) {
+            out.println("                            || converted != null");
+            out.println("                            && !(converted instanceof " + type + ")) {");
+        }
+        else {
+            out.println("                            || !(converted instanceof " + wrapper + ")) {");
+        }
+        out.println("                        super.setValue(bean, value);");
+        out.println("                        return;");
+        out.println("                    }");
+        out.println("                    try {");
+        String argument = wrapper == null ? "(" + property.castName + ") converted"
+                : "((" + wrapper + ") converted)." + type + "Value()";
+        out.println("                        ((" + beanName + ") bean)."
+                + property.writer.getSimpleName() + "(" + argument + ");");
+        out.println("                    }");
+        out.println("                    catch (Throwable ex) {");
+        out.println("                        throw writeFailure(bean, ex);");
+        out.println("                    }");
+        out.println("                }");
+    }
+
+    /**
+     * Quote a method name as a Java string literal.
+     * @param method may be <code>null</code>
+     * @return String
+     */
+    private static String quote(ExecutableElement method) {
+        return method == null ? "null" : quote(method.getSimpleName().toString());
+    }
+
+    /**
+     * Quote a Java identifier as a string literal.
+     * @param name identifier
+     * @return String
+     */
+    private static String quote(String name) {
+        return "\"" + name + "\"";
+    }
+
+    /**
+     * Report an error.
+     * @param element the error is about
+     * @param message to report
+     */
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                message, element);
+    }
+
+    /**
+     * The accessor methods of one property.
+     */
+    private static class Property {
+        private final String name;
+        private ExecutableElement getter;
+        private ExecutableElement isGetter;
+        private final List setters = new ArrayList();
+        private ExecutableElement indexedGetter;
+        private ExecutableElement indexedSetter;
+
+        private ExecutableElement reader;
+        private ExecutableElement writer;
+        private String typeName;
+        private String wrapperName;
+        private String castName;
+        private boolean reifiable;
+
+        /**
+         * Create a new Property.
+         * @param name property name
+         */
+        public Property(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Learn whether this is an indexed property.
+         * @return boolean
+         */
+        public boolean isIndexed() {
+            return indexedGetter != null || indexedSetter != null;
+        }
+
+        /**
+         * Choose the read and write methods.
+         * @param types Types
+         * @return <code>false</code> if this is not a property after all
+         */
+        public boolean resolve(Types types) {
+            reader = isGetter != null ? isGetter : getter;
+            TypeMirror type = reader == null ? null : reader.getReturnType();
+            if (type == null && !setters.isEmpty()) {
+                type = parameterType((ExecutableElement) setters.get(0), 0);
+            }
+            if (type != null) {
+                type = types.erasure(type);
+                for (int i = 0; i < setters.size() && writer == null; i++) {
+                    ExecutableElement setter = (ExecutableElement) setters.get(i);
+                    if (types.isSameType(type,
+                            types.erasure(parameterType(setter, 0)))) {
+                        writer = setter;
+                    }
+                }
+            }
+            if (isIndexed()) {
+                TypeMirror indexedType = indexedGetter != null
+                        ? indexedGetter.getReturnType()
+                        : parameterType(indexedSetter, 1);
+                indexedType = types.erasure(indexedType);
+                if (indexedSetter != null && !types.isSameType(indexedType,
+                        types.erasure(parameterType(indexedSetter, 1)))) {
+                    indexedSetter = null;
+                }
+                if (type == null || type.getKind() != TypeKind.ARRAY
+                        || !types.isSameType(indexedType, types.erasure(
+                                ((ArrayType) type).getComponentType()))) {
+                    reader = null;
+                    writer = null;
+                }
+                return true;
+            }
+            if (type == null) {
+                return false;
+            }
+            typeName = type.toString();
+            castName = typeName;
+            reifiable = true;
+            if (writer != null) {
+                TypeMirror declared = parameterType(writer, 0);
+                reifiable = isReifiable(declared);
+                if (!hasTypeVariable(declared)) {
+                    castName = declared.toString();
+                }
+            }
+            if (type.getKind().isPrimitive()) {
+                wrapperName = types.boxedClass((PrimitiveType) type)
+                        .getQualifiedName().toString();
+            }
+            return reader != null || writer != null;
+        }
+
+        /**
+         * Learn whether a type can be checked with <code>instanceof</code>,
+         * which is true of types whose arguments are all <code>?</code>.
+         * @param type to check
+         * @return boolean
+         */
+        private static boolean isReifiable(TypeMirror type) {
+            switch (type.getKind()) {
+                case ARRAY :
+                    return isReifiable(((ArrayType) type).getComponentType());
+                case TYPEVAR :
+                    return false;
+                case DECLARED :
+                    List arguments = ((DeclaredType) type).getTypeArguments();
+                    for (int i = 0; i < arguments.size(); i++) {
+                        TypeMirror argument = (TypeMirror) arguments.get(i);
+                        if (argument.getKind() != TypeKind.WILDCARD
+                                || ((WildcardType) argument).getExtendsBound() != null
+                                || ((WildcardType) argument).getSuperBound() != null) {
+                            return false;
+                        }
+                    }
+                    return true;
+                default :
+                    return true;
+            }
+        }
+
+        /**
+         * Learn whether a type refers to a type variable, which the
+         * generated class cannot name.
+         * @param type to check
+         * @return boolean
+         */
+        private static boolean hasTypeVariable(TypeMirror type) {
+            switch (type.getKind()) {
+                case ARRAY :
+                    return hasTypeVariable(((ArrayType) type).getComponentType());
+                case TYPEVAR :
+                    return true;
+                case WILDCARD :
+                    WildcardType wildcard = (WildcardType) type;
+                    return wildcard.getExtendsBound() != null
+                            && hasTypeVariable(wildcard.getExtendsBound())
+                            || wildcard.getSuperBound() != null
+                            && hasTypeVariable(wildcard.getSuperBound());
+                case DECLARED :
+                    List arguments = ((DeclaredType) type).getTypeArguments();
+                    for (int i = 0; i < arguments.size(); i++) {
+                        if (hasTypeVariable((TypeMirror) arguments.get(i))) {
+                            return true;
+                        }
+                    }
+                    return false;
+                default :
+                    return false;
+            }
+        }
+
+        /**
+         * Get the type of a method parameter.
+         * @param method ExecutableElement
+         * @param index of the parameter
+         * @return TypeMirror
+         */
+        private static TypeMirror parameterType(ExecutableElement method,
+                int index) {
+            return ((VariableElement) method.getParameters().get(index)).asType();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.jxpath.ri.compiler.Expression;
+
+/**
+ * Size-bounded {@link ExpressionCache} backed by a
+ * <code>ConcurrentHashMap</code>. Lookups never block: a hit only marks
+ * the entry as recently used. When an insertion takes the cache over
+ * capacity, a single thread runs the CLOCK (second chance) algorithm
+ * to evict entries that have not been used since the clock hand last
+ * passed them, which approximates LRU order.
+ * <p>
+ * Compiled expressions can optionally be held through soft or weak
+ * references, in which case the garbage collector may also remove them.
+ *
+ * @version $Revision$ $Date$
+ */
+public class ConcurrentExpressionCache implements ExpressionCache {
+
+    /** Hold compiled expressions through strong references. */
+    public static final int STRONG = 0;
+
+    /** Hold compiled expressions through soft references. */
+    public static final int SOFT = 1;
+
+    /** Hold compiled expressions through weak references. */
+    public static final int WEAK = 2;
+
+    /** Default maximum number of cached expressions. */
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final int capacity;
+    private final int referenceType;
+    private final ConcurrentHashMap map;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private Iterator clockHand;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong compileCount = new AtomicLong();
+    private final AtomicLong compileTime = new AtomicLong();
+
+    /**
+     * Create a new ConcurrentExpressionCache holding up to
+     * {@link #DEFAULT_CAPACITY} expressions through strong references.
+     */
+    public ConcurrentExpressionCache() {
+        this(DEFAULT_CAPACITY, STRONG);
+    }
+
+    /**
+     * Create a new ConcurrentExpressionCache.
+     * @param capacity maximum number of cached expressions; 0 disables caching
+     * @param referenceType one of {@link #STRONG}, {@link #SOFT},
+     * {@link #WEAK}
+     */
+    public ConcurrentExpressionCache(int capacity, int referenceType) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: "
+                    + capacity);
+        }
+        if (referenceType != STRONG && referenceType != SOFT
+                && referenceType != WEAK) {
+            throw new IllegalArgumentException("Unknown reference type: "
+                    + referenceType);
+        }
+        this.capacity = capacity;
+        this.referenceType = referenceType;
+        this.map = new ConcurrentHashMap(Math.min(capacity, 1024));
+    }
+
+    /**
+     * Get the maximum number of cached expressions.
+     * @return int
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the kind of references used to hold compiled expressions.
+     * @return one of {@link #STRONG}, {@link #SOFT}, {@link #WEAK}
+     */
+    public int getReferenceType() {
+        return referenceType;
+    }
+
+    public Expression get(String xpath) {
+        CacheEntry entry = (CacheEntry) map.get(xpath);
+        if (entry != null) {
+            Expression expression = entry.getExpression();
+            if (expression != null) {
+                entry.referenced = true;
+                hitCount.incrementAndGet();
+                return expression;
+            }
+            if (map.remove(xpath, entry)) {
+                evictionCount.incrementAndGet();
+            }
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    public void put(String xpath, Expression expression, long compileTime) {
+        compileCount.incrementAndGet();
+        this.compileTime.addAndGet(compileTime);
+        if (capacity == 0) {
+            return;
+        }
+        Object value = expression;
+        if (referenceType == SOFT) {
+            value = new SoftReference(expression);
+        }
+        else if (referenceType == WEAK) {
+            value = new WeakReference(expression);
+        }
+        if (map.put(xpath, new CacheEntry(value)) == null
+                && map.size() > capacity) {
+            evict();
+        }
+    }
+
+    public void clear() {
+        map.clear();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public ExpressionCacheStatistics getStatistics() {
+        return new ExpressionCacheStatistics(hitCount.get(), missCount.get(),
+                evictionCount.get(), compileCount.get(), compileTime.get());
+    }
+
+    /**
+     * Advance the clock hand until the cache is back within capacity.
+     * If another thread is already evicting, return immediately: that
+     * thread will take care of our insertion as well.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            // After two full sweeps every entry has lost its second chance,
+            // so the scan is bounded even if readers keep marking entries.
+            int budget = 2 * map.size() + 1;
+            while (map.size() > capacity) {
+                if (clockHand == null || !clockHand.hasNext()) {
+                    clockHand = map.entrySet().iterator();
+                    if (!clockHand.hasNext()) {
+                        break;
+                    }
+                }
+                Map.Entry me = (Map.Entry) clockHand.next();
+                CacheEntry entry = (CacheEntry) me.getValue();
+                if (entry.referenced && budget-- > 0
+                        && entry.getExpression() != null) {
+                    entry.referenced = false;
+                }
+                else if (map.remove(me.getKey(), entry)) {
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * A cached expression with its CLOCK reference bit.
+     */
+    private static final class CacheEntry {
+        private final Object value;
+        private volatile boolean referenced;
+
+        /**
+         * Create a new CacheEntry.
+         * @param value Expression or Reference to an Expression
+         */
+        public CacheEntry(Object value) {
+            this.value = value;
+        }
+
+        /**
+         * Get the cached expression.
+         * @return Expression, <code>null</code> if it has been collected
+         */
+        public Expression getExpression() {
+            if (value instanceof Reference) {
+                return (Expression) ((Reference) value).get();
+            }
+            return (Expression) value;
+        }
+    }
+}
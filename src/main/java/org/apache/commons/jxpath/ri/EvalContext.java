@@ -30,6 +30,8 @@ import org.apache.commons.jxpath.JXPathException;
 import org.apache.commons.jxpath.NodeSet;
 import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.ri.axes.RootContext;
+import org.apache.commons.jxpath.ri.model.CursorNodeIterator;
+import org.apache.commons.jxpath.ri.model.NodeIterator;
 import org.apache.commons.jxpath.ri.model.NodePointer;
 import org.apache.commons.jxpath.util.ReverseComparator;
 
@@ -57,6 +59,8 @@ public abstract class EvalContext implements ExpressionContext, Iterator {
     private boolean done = false;
     private boolean hasPerformedIteratorStep = false;
     private Iterator pointerIterator;
+    private int contextSize = -1;
+    private boolean inDocumentOrder = false;
 
     /**
      * Create a new EvalContext.
@@ -100,6 +104,40 @@ public abstract class EvalContext implements ExpressionContext, Iterator {
         return getDocumentOrder() != 0;
     }
 
+    /**
+     * Learn whether iterating this context with {@link #nextSet()} and
+     * {@link #nextNode()} produces its nodes in document order and without
+     * duplicates, so that they can be merged with other nodes without
+     * collecting and sorting them first. The default implementation makes
+     * no such promise, unless {@link #setInDocumentOrder(boolean)} was
+     * called.
+     * @return boolean
+     */
+    public boolean isInDocumentOrder() {
+        return inDocumentOrder;
+    }
+
+    /**
+     * Declare that this context produces its nodes in document order and
+     * without duplicates, typically because the path that created it has
+     * been shown to do so. Iterating such a context does not collect and
+     * sort its nodes.
+     * @param inDocumentOrder boolean
+     */
+    public void setInDocumentOrder(boolean inDocumentOrder) {
+        this.inDocumentOrder = inDocumentOrder;
+    }
+
+    /**
+     * Learn whether the nodes must be collected and sorted before they are
+     * returned by {@link #hasNext()} and {@link #next()}.
+     * @return boolean
+     */
+    private boolean isSortingRequired() {
+        int order = getDocumentOrder();
+        return order != 0 && !(order == 1 && isInDocumentOrder());
+    }
+
     /**
      * Returns true if there are mode nodes matching the context's constraints.
      * @return boolean
@@ -108,7 +146,7 @@ public abstract class EvalContext implements ExpressionContext, Iterator {
         if (pointerIterator != null) {
             return pointerIterator.hasNext();
         }
-        if (getDocumentOrder() != 0) {
+        if (isSortingRequired()) {
             return constructIterator();
         }
         if (!done && !hasPerformedIteratorStep) {
@@ -126,7 +164,7 @@ public abstract class EvalContext implements ExpressionContext, Iterator {
             return pointerIterator.next();
         }
 
-        if (getDocumentOrder() != 0) {
+        if (isSortingRequired()) {
             if (!constructIterator()) {
                 throw new NoSuchElementException();
             }
@@ -213,6 +251,18 @@ public abstract class EvalContext implements ExpressionContext, Iterator {
         }
     }
 
+    /**
+     * Get a pointer to the current node of an iterator that is only good
+     * until the iterator moves, see {@link CursorNodeIterator}.
+     * @param iterator NodeIterator
+     * @return NodePointer
+     */
+    protected static NodePointer getCursorPointer(NodeIterator iterator) {
+        return iterator instanceof CursorNodeIterator
+                ? ((CursorNodeIterator) iterator).getCursorPointer()
+                : iterator.getNodePointer();
+    }
+
     /**
      * Returns the list of all Pointers in this context for the current
      * position of the parent context.
@@ -292,6 +342,41 @@ public abstract class EvalContext implements ExpressionContext, Iterator {
      */
     public void reset() {
         position = 0;
+        contextSize = -1;
+    }
+
+    /**
+     * Returns the number of nodes in the current set, which is the value
+     * of the XPath function last(). The size is computed at most once
+     * per set: {@link #reset()}, which is called whenever the context
+     * moves on to the next set, discards it.
+     * @return int
+     */
+    public int getContextSize() {
+        if (contextSize < 0) {
+            int size = computeContextSize();
+            contextSize = size;
+        }
+        return contextSize;
+    }
+
+    /**
+     * Count the nodes in the current set. The default implementation
+     * iterates through the set and then restores the current position.
+     * Override this if the size is known without iterating.
+     * @return int
+     */
+    protected int computeContextSize() {
+        int old = getCurrentPosition();
+        reset();
+        int count = 0;
+        while (nextNode()) {
+            count++;
+        }
+        if (old != 0) {
+            setPosition(old);
+        }
+        return count;
     }
 
     /**
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri;
+
+import org.apache.commons.jxpath.ri.compiler.Expression;
+
+/**
+ * A cache of compiled XPath expressions shared by all
+ * {@link JXPathContextReferenceImpl} instances. Implementations
+ * must be safe for concurrent use by multiple threads.
+ *
+ * @see JXPathContextReferenceImpl#setExpressionCache(ExpressionCache)
+ * @version $Revision$ $Date$
+ */
+public interface ExpressionCache {
+
+    /**
+     * Find the compiled form of the specified xpath.
+     * @param xpath source expression
+     * @return Expression, or <code>null</code> if not cached
+     */
+    Expression get(String xpath);
+
+    /**
+     * Store a freshly compiled expression.
+     * @param xpath source expression
+     * @param expression compiled expression
+     * @param compileTime time spent compiling <code>xpath</code>,
+     * in nanoseconds
+     */
+    void put(String xpath, Expression expression, long compileTime);
+
+    /**
+     * Remove all cached expressions. Statistics are not reset.
+     */
+    void clear();
+
+    /**
+     * Get the number of cached expressions.
+     * @return int
+     */
+    int size();
+
+    /**
+     * Get a snapshot of the usage statistics of this cache.
+     * @return ExpressionCacheStatistics
+     */
+    ExpressionCacheStatistics getStatistics();
+}
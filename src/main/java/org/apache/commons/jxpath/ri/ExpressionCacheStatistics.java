@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri;
+
+import java.io.Serializable;
+
+/**
+ * Immutable snapshot of the counters maintained by an
+ * {@link ExpressionCache}.
+ *
+ * @version $Revision$ $Date$
+ */
+public final class ExpressionCacheStatistics implements Serializable {
+    private static final long serialVersionUID = -3471295310637021942L;
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long compileCount;
+    private final long compileTime;
+
+    /**
+     * Create a new ExpressionCacheStatistics.
+     * @param hitCount number of successful lookups
+     * @param missCount number of failed lookups
+     * @param evictionCount number of expressions evicted or collected
+     * @param compileCount number of expressions compiled
+     * @param compileTime total compilation time in nanoseconds
+     */
+    public ExpressionCacheStatistics(long hitCount, long missCount,
+            long evictionCount, long compileCount, long compileTime) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.compileCount = compileCount;
+        this.compileTime = compileTime;
+    }
+
+    /**
+     * Get the number of lookups that found a compiled expression.
+     * @return long
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Get the number of lookups that did not find a compiled expression.
+     * @return long
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the number of expressions removed to stay within capacity
+     * or because the garbage collector cleared them.
+     * @return long
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get the number of expressions that were compiled.
+     * @return long
+     */
+    public long getCompileCount() {
+        return compileCount;
+    }
+
+    /**
+     * Get the total time spent compiling expressions, in nanoseconds.
+     * @return long
+     */
+    public long getCompileTime() {
+        return compileTime;
+    }
+
+    /**
+     * Get the ratio of hits to lookups.
+     * @return double between 0 and 1; 1 if there were no lookups
+     */
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public String toString() {
+        return "ExpressionCacheStatistics[hits=" + hitCount + ", misses="
+                + missCount + ", evictions=" + evictionCount + ", compiles="
+                + compileCount + ", compileTime=" + compileTime + "ns]";
+    }
+}
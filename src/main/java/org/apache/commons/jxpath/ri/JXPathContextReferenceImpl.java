@@ -16,16 +16,12 @@
  */
 package org.apache.commons.jxpath.ri;
 
-import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Vector;
-import java.util.Map.Entry;
 
 import org.apache.commons.jxpath.CompiledExpression;
 import org.apache.commons.jxpath.ExceptionHandler;
@@ -40,7 +36,10 @@ import org.apache.commons.jxpath.JXPathTypeConversionException;
 import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.ri.axes.InitialContext;
 import org.apache.commons.jxpath.ri.axes.RootContext;
+import org.apache.commons.jxpath.ri.compiler.BeanLocationPath;
+import org.apache.commons.jxpath.ri.compiler.BeanPathCompiler;
 import org.apache.commons.jxpath.ri.compiler.Expression;
+import org.apache.commons.jxpath.ri.compiler.ExpressionOptimizer;
 import org.apache.commons.jxpath.ri.compiler.LocationPath;
 import org.apache.commons.jxpath.ri.compiler.Path;
 import org.apache.commons.jxpath.ri.compiler.TreeCompiler;
@@ -49,6 +48,7 @@ import org.apache.commons.jxpath.ri.model.NodePointerFactory;
 import org.apache.commons.jxpath.ri.model.VariablePointerFactory;
 import org.apache.commons.jxpath.ri.model.beans.BeanPointerFactory;
 import org.apache.commons.jxpath.ri.model.beans.CollectionPointerFactory;
+import org.apache.commons.jxpath.ri.model.compact.CompactPointerFactory;
 import org.apache.commons.jxpath.ri.model.container.ContainerPointerFactory;
 import org.apache.commons.jxpath.ri.model.dynamic.DynamicPointerFactory;
 import org.apache.commons.jxpath.util.ReverseComparator;
@@ -66,16 +66,19 @@ public class JXPathContextReferenceImpl extends JXPathContext {
     /**
      * Change this to <code>false</code> to disable soft caching of
      * CompiledExpressions.
+     * @deprecated no longer consulted; install a
+     * {@link ConcurrentExpressionCache} configured with the desired
+     * reference type using {@link #setExpressionCache(ExpressionCache)}.
      */
     public static final boolean USE_SOFT_CACHE = true;
 
-    private static final Compiler COMPILER = new TreeCompiler();
-    private static Map compiled = new HashMap();
-    private static int cleanupCount = 0;
+    private static volatile Compiler compiler = new TreeCompiler();
+    private static volatile boolean optimizeExpressions = true;
+    private static volatile boolean indexDocuments = false;
+    private static volatile ExpressionCache expressionCache =
+        new ConcurrentExpressionCache();
 
     private static NodePointerFactory[] nodeFactoryArray = null;
-    // The frequency of the cache cleanup
-    private static final int CLEANUP_THRESHOLD = 500;
     private static final Vector nodeFactories = new Vector();
 
     static {
@@ -100,6 +103,8 @@ public class JXPathContextReferenceImpl extends JXPathContext {
             nodeFactories.add(jdomFactory);
         }
 
+        nodeFactories.add(new CompactPointerFactory());
+
         // DynaBean factory is only registered if BeanUtils are on the classpath
         Object dynaBeanFactory =
             allocateConditionally(
@@ -145,6 +150,26 @@ public class JXPathContextReferenceImpl extends JXPathContext {
         }
     }
 
+    /**
+     * Replace the cache of compiled expressions shared by all contexts.
+     * Expressions cached by the previous cache are not carried over.
+     * @param cache ExpressionCache to use
+     */
+    public static void setExpressionCache(ExpressionCache cache) {
+        if (cache == null) {
+            throw new IllegalArgumentException("Expression cache is null");
+        }
+        expressionCache = cache;
+    }
+
+    /**
+     * Get the cache of compiled expressions shared by all contexts.
+     * @return ExpressionCache
+     */
+    public static ExpressionCache getExpressionCache() {
+        return expressionCache;
+    }
+
     /**
      * Get the registered NodePointerFactories.
      * @return NodePointerFactory[]
@@ -210,13 +235,76 @@ public class JXPathContextReferenceImpl extends JXPathContext {
     }
 
     /**
-     * Returns a static instance of TreeCompiler.
+     * Install the compiler used by default to compile XPaths, for example
+     * a {@link BeanPathCompiler}. Clears the expression cache so that
+     * expressions compiled by the previous compiler are not reused.
+     * @param compiler the Compiler to use
+     */
+    public static void setDefaultCompiler(Compiler compiler) {
+        if (compiler == null) {
+            throw new IllegalArgumentException("Compiler cannot be null");
+        }
+        JXPathContextReferenceImpl.compiler = compiler;
+        expressionCache.clear();
+    }
+
+    /**
+     * Enable or disable the simplification of compiled expressions by
+     * {@link ExpressionOptimizer}, which is enabled by default. Clears
+     * the expression cache.
+     * @param optimize whether to optimize compiled expressions
+     */
+    public static void setOptimizeExpressions(boolean optimize) {
+        optimizeExpressions = optimize;
+        expressionCache.clear();
+    }
+
+    /**
+     * Learn whether compiled expressions are optimized.
+     * @return boolean
+     */
+    public static boolean isOptimizeExpressions() {
+        return optimizeExpressions;
+    }
+
+    /**
+     * Enable or disable the per-document indexes of the DOM and JDOM models,
+     * which are disabled by default. When enabled, the first comparison of
+     * two nodes of a document numbers all nodes of that document, so that
+     * further comparisons, e.g. when sorting the result of a union or a
+     * reverse axis, look the numbers up instead of walking the tree; the
+     * namespace declarations in scope of DOM elements are collected once
+     * per element and shared by all pointers; and pointers keep the
+     * positions of their children and their own paths for asPath(). The
+     * indexes are dropped when JXPath modifies a document, and the
+     * document order index is rebuilt when nodes are found that were added
+     * since; a document that is reordered, or whose namespace declarations
+     * are changed, by other means while indexing is enabled may therefore
+     * be evaluated incorrectly, and retained pointers may report stale
+     * paths.
+     * @param index whether to index documents
+     */
+    public static void setIndexDocuments(boolean index) {
+        indexDocuments = index;
+    }
+
+    /**
+     * Learn whether the DOM and JDOM models index documents.
+     * @return boolean
+     */
+    public static boolean isIndexDocuments() {
+        return indexDocuments;
+    }
+
+    /**
+     * Returns the compiler installed with
+     * {@link #setDefaultCompiler(Compiler)}, a TreeCompiler by default.
      *
      * Override this to return an alternate compiler.
      * @return Compiler
      */
     protected Compiler getCompiler() {
-        return COMPILER;
+        return compiler;
     }
 
     protected CompiledExpression compilePath(String xpath) {
@@ -229,46 +317,18 @@ public class JXPathContextReferenceImpl extends JXPathContext {
      * @return Expression
      */
     private Expression compileExpression(String xpath) {
-        Expression expr;
-
-        synchronized (compiled) {
-            if (USE_SOFT_CACHE) {
-                expr = null;
-                SoftReference ref = (SoftReference) compiled.get(xpath);
-                if (ref != null) {
-                    expr = (Expression) ref.get();
-                }
-            }
-            else {
-                expr = (Expression) compiled.get(xpath);
-            }
-        }
-
+        ExpressionCache cache = expressionCache;
+        Expression expr = cache.get(xpath);
         if (expr != null) {
             return expr;
         }
 
+        long start = System.nanoTime();
         expr = (Expression) Parser.parseExpression(xpath, getCompiler());
-
-        synchronized (compiled) {
-            if (USE_SOFT_CACHE) {
-                if (cleanupCount++ >= CLEANUP_THRESHOLD) {
-                    Iterator it = compiled.entrySet().iterator();
-                    while (it.hasNext()) {
-                        Entry me = (Entry) it.next();
-                        if (((SoftReference) me.getValue()).get() == null) {
-                            it.remove();
-                        }
-                    }
-                    cleanupCount = 0;
-                }
-                compiled.put(xpath, new SoftReference(expr));
-            }
-            else {
-                compiled.put(xpath, expr);
-            }
+        if (optimizeExpressions) {
+            expr = ExpressionOptimizer.optimize(expr);
         }
-
+        cache.put(xpath, expr, System.nanoTime() - start);
         return expr;
     }
 
@@ -352,6 +412,15 @@ public class JXPathContextReferenceImpl extends JXPathContext {
      * @return Object
      */
     public Object getValue(String xpath, Expression expr) {
+        if (expr instanceof BeanLocationPath) {
+            BeanLocationPath path = (BeanLocationPath) expr;
+            Object value = path.getDirectValue((NodePointer) (path
+                    .isAbsolute() ? getAbsoluteRootPointer()
+                    : getContextPointer()));
+            if (value != BeanLocationPath.UNRESOLVED) {
+                return value;
+            }
+        }
         Object result = expr.computeValue(getEvalContext());
         if (result == null) {
             if (expr instanceof Path && !isLenient()) {
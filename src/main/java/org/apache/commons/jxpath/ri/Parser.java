@@ -17,6 +17,8 @@
 package org.apache.commons.jxpath.ri;
 
 import java.io.StringReader;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.commons.jxpath.JXPathInvalidSyntaxException;
 import org.apache.commons.jxpath.ri.parser.ParseException;
@@ -31,7 +33,24 @@ import org.apache.commons.jxpath.ri.parser.XPathParser;
  */
 public class Parser {
 
-    private static final XPathParser PARSER = new XPathParser(new StringReader(""));
+    /**
+     * Name of the system property that, when set to <code>true</code>,
+     * makes JXPath parse expressions with the hand-written
+     * {@link RecursiveDescentParser} instead of the JavaCC generated
+     * {@link XPathParser}. Both build the same expression trees.
+     */
+    public static final String USE_RECURSIVE_DESCENT_PROPERTY =
+        "org.apache.commons.jxpath.ri.Parser.useRecursiveDescent";
+
+    private static final boolean USE_RECURSIVE_DESCENT = useRecursiveDescent();
+
+    /**
+     * Idle parsers. A parser is taken out of the pool for the duration of
+     * a single parse, so concurrent compilations never share an instance
+     * and never wait for each other. Unlike a ThreadLocal, the pool does
+     * not pin parsers (and their class loader) to long-lived pool threads.
+     */
+    private static final Queue PARSERS = new ConcurrentLinkedQueue();
 
     /**
      * Parses the XPath expression. Throws a JXPathException in case
@@ -43,12 +62,33 @@ public class Parser {
     public static Object parseExpression(
         String expression,
         Compiler compiler) {
-        synchronized (PARSER) {
-            PARSER.setCompiler(compiler);
+        if (USE_RECURSIVE_DESCENT) {
+            return new RecursiveDescentParser(expression, compiler)
+                    .parseExpression();
+        }
+        return parseExpressionWithJavaCC(expression, compiler);
+    }
+
+    /**
+     * Parses the XPath expression using the JavaCC generated parser.
+     * Throws a JXPathException in case of a syntax error.
+     * @param expression to parse
+     * @param compiler the compiler
+     * @return parsed Object
+     */
+    static Object parseExpressionWithJavaCC(
+        String expression,
+        Compiler compiler) {
+        XPathParser parser = (XPathParser) PARSERS.poll();
+        if (parser == null) {
+            parser = new XPathParser(new StringReader(""));
+        }
+        try {
+            parser.setCompiler(compiler);
             Object expr;
             try {
-                PARSER.ReInit(new StringReader(expression));
-                expr = PARSER.parseExpression();
+                parser.ReInit(new StringReader(expression));
+                expr = parser.parseExpression();
             }
             catch (TokenMgrError e) {
                 throw new JXPathInvalidSyntaxException(
@@ -70,6 +110,23 @@ public class Parser {
             }
             return expr;
         }
+        finally {
+            parser.setCompiler(null);
+            PARSERS.offer(parser);
+        }
+    }
+
+    /**
+     * Learn whether the hand-written parser has been requested.
+     * @return boolean
+     */
+    private static boolean useRecursiveDescent() {
+        try {
+            return Boolean.getBoolean(USE_RECURSIVE_DESCENT_PROPERTY);
+        }
+        catch (SecurityException ex) {
+            return false;
+        }
     }
 
     /**
@@ -78,7 +135,7 @@ public class Parser {
      * @param position parse position
      * @return String
      */
-    private static String describePosition(String expression, int position) {
+    static String describePosition(String expression, int position) {
         if (position <= 0) {
             return "at the beginning of the expression";
         }
@@ -94,7 +151,7 @@ public class Parser {
      * @param string incoming String
      * @return String
      */
-    private static String addEscapes(String string) {
+    static String addEscapes(String string) {
         // Piggy-back on the code generated by JavaCC
         return TokenMgrError.addEscapes(string);
     }
@@ -0,0 +1,1130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.jxpath.JXPathInvalidSyntaxException;
+
+/**
+ * Hand-written recursive descent XPath parser. It accepts the same language
+ * as the JavaCC generated {@link org.apache.commons.jxpath.ri.parser.XPathParser}
+ * (see XPath.jj) and drives the {@link Compiler} with the same sequence of
+ * calls, but scans the expression String in place: tokens are
+ * represented by their kind and offsets, and substrings are only created
+ * for names, literals and numbers handed to the compiler.
+ * <p>
+ * Used in place of the JavaCC parser when the system property
+ * {@link Parser#USE_RECURSIVE_DESCENT_PROPERTY} is <code>true</code>.
+ * Instances are cheap and not thread safe; create one per expression.
+ *
+ * @version $Revision$ $Date$
+ */
+final class RecursiveDescentParser {
+
+    private static final int EOF = 0;
+    private static final int SLASH = 1;
+    private static final int SLASHSLASH = 2;
+    private static final int UNION = 3;
+    private static final int PLUS = 4;
+    private static final int MINUS = 5;
+    private static final int EQ = 6;
+    private static final int NEQ = 7;
+    private static final int LT = 8;
+    private static final int LTE = 9;
+    private static final int GT = 10;
+    private static final int GTE = 11;
+    private static final int VARIABLE = 12;
+    private static final int LITERAL = 13;
+    private static final int NUMBER = 14;
+    private static final int NAME = 15;
+    private static final int AXIS = 16;
+    private static final int COLON = 17;
+    private static final int LPAR = 18;
+    private static final int RPAR = 19;
+    private static final int DOT = 20;
+    private static final int DOTDOT = 21;
+    private static final int LBRACKET = 22;
+    private static final int RBRACKET = 23;
+    private static final int AT = 24;
+    private static final int COMMA = 25;
+    private static final int STAR = 26;
+
+    private static final String[] AXIS_NAMES = {
+        "self", "child", "parent", "ancestor", "attribute", "namespace",
+        "preceding", "following", "descendant", "ancestor-or-self",
+        "following-sibling", "preceding-sibling", "descendant-or-self" };
+
+    private static final int[] AXIS_CODES = {
+        Compiler.AXIS_SELF, Compiler.AXIS_CHILD, Compiler.AXIS_PARENT,
+        Compiler.AXIS_ANCESTOR, Compiler.AXIS_ATTRIBUTE,
+        Compiler.AXIS_NAMESPACE, Compiler.AXIS_PRECEDING,
+        Compiler.AXIS_FOLLOWING, Compiler.AXIS_DESCENDANT,
+        Compiler.AXIS_ANCESTOR_OR_SELF, Compiler.AXIS_FOLLOWING_SIBLING,
+        Compiler.AXIS_PRECEDING_SIBLING, Compiler.AXIS_DESCENDANT_OR_SELF };
+
+    private static final Map CORE_FUNCTIONS = new HashMap();
+
+    static {
+        addCoreFunction("last", Compiler.FUNCTION_LAST);
+        addCoreFunction("position", Compiler.FUNCTION_POSITION);
+        addCoreFunction("count", Compiler.FUNCTION_COUNT);
+        addCoreFunction("id", Compiler.FUNCTION_ID);
+        addCoreFunction("key", Compiler.FUNCTION_KEY);
+        addCoreFunction("local-name", Compiler.FUNCTION_LOCAL_NAME);
+        addCoreFunction("namespace-uri", Compiler.FUNCTION_NAMESPACE_URI);
+        addCoreFunction("name", Compiler.FUNCTION_NAME);
+        addCoreFunction("string", Compiler.FUNCTION_STRING);
+        addCoreFunction("concat", Compiler.FUNCTION_CONCAT);
+        addCoreFunction("starts-with", Compiler.FUNCTION_STARTS_WITH);
+        addCoreFunction("ends-with", Compiler.FUNCTION_ENDS_WITH);
+        addCoreFunction("contains", Compiler.FUNCTION_CONTAINS);
+        addCoreFunction("substring-before", Compiler.FUNCTION_SUBSTRING_BEFORE);
+        addCoreFunction("substring-after", Compiler.FUNCTION_SUBSTRING_AFTER);
+        addCoreFunction("substring", Compiler.FUNCTION_SUBSTRING);
+        addCoreFunction("string-length", Compiler.FUNCTION_STRING_LENGTH);
+        addCoreFunction("normalize-space", Compiler.FUNCTION_NORMALIZE_SPACE);
+        addCoreFunction("translate", Compiler.FUNCTION_TRANSLATE);
+        addCoreFunction("boolean", Compiler.FUNCTION_BOOLEAN);
+        addCoreFunction("not", Compiler.FUNCTION_NOT);
+        addCoreFunction("true", Compiler.FUNCTION_TRUE);
+        addCoreFunction("false", Compiler.FUNCTION_FALSE);
+        addCoreFunction("null", Compiler.FUNCTION_NULL);
+        addCoreFunction("lang", Compiler.FUNCTION_LANG);
+        addCoreFunction("number", Compiler.FUNCTION_NUMBER);
+        addCoreFunction("sum", Compiler.FUNCTION_SUM);
+        addCoreFunction("floor", Compiler.FUNCTION_FLOOR);
+        addCoreFunction("ceiling", Compiler.FUNCTION_CEILING);
+        addCoreFunction("round", Compiler.FUNCTION_ROUND);
+        addCoreFunction("format-number", Compiler.FUNCTION_FORMAT_NUMBER);
+    }
+
+    /*
+     * Character classes of XML 1.0 names, as used by the NCName token of
+     * XPath.jj: pairs of inclusive bounds, sorted.  LETTER_RANGES covers
+     * BaseChar and Ideographic; NAME_CHAR_RANGES covers CombiningChar,
+     * Digit and Extender.
+     */
+    private static final String LETTER_RANGES =
+        "\u0041\u005A" + "\u0061\u007A" + "\u00C0\u00D6" + "\u00D8\u00F6" +
+        "\u00F8\u0131" + "\u0134\u013E" + "\u0141\u0148" + "\u014A\u017E" +
+        "\u0180\u01C3" + "\u01CD\u01F0" + "\u01F4\u01F5" + "\u01FA\u0217" +
+        "\u0250\u02A8" + "\u02BB\u02C1" + "\u0386\u0386" + "\u0388\u038A" +
+        "\u038C\u038C" + "\u038E\u03A1" + "\u03A3\u03CE" + "\u03D0\u03D6" +
+        "\u03DA\u03DA" + "\u03DC\u03DC" + "\u03DE\u03DE" + "\u03E0\u03E0" +
+        "\u03E2\u03F3" + "\u0401\u040C" + "\u040E\u044F" + "\u0451\u045C" +
+        "\u045E\u0481" + "\u0490\u04C4" + "\u04C7\u04C8" + "\u04CB\u04CC" +
+        "\u04D0\u04EB" + "\u04EE\u04F5" + "\u04F8\u04F9" + "\u0531\u0556" +
+        "\u0559\u0559" + "\u0561\u0586" + "\u05D0\u05EA" + "\u05F0\u05F2" +
+        "\u0621\u063A" + "\u0641\u064A" + "\u0671\u06B7" + "\u06BA\u06BE" +
+        "\u06C0\u06CE" + "\u06D0\u06D3" + "\u06D5\u06D5" + "\u06E5\u06E6" +
+        "\u0905\u0939" + "\u093D\u093D" + "\u0958\u0961" + "\u0985\u098C" +
+        "\u098F\u0990" + "\u0993\u09A8" + "\u09AA\u09B0" + "\u09B2\u09B2" +
+        "\u09B6\u09B9" + "\u09DC\u09DD" + "\u09DF\u09E1" + "\u09F0\u09F1" +
+        "\u0A05\u0A0A" + "\u0A0F\u0A10" + "\u0A13\u0A28" + "\u0A2A\u0A30" +
+        "\u0A32\u0A33" + "\u0A35\u0A36" + "\u0A38\u0A39" + "\u0A59\u0A5C" +
+        "\u0A5E\u0A5E" + "\u0A72\u0A74" + "\u0A85\u0A8B" + "\u0A8D\u0A8D" +
+        "\u0A8F\u0A91" + "\u0A93\u0AA8" + "\u0AAA\u0AB0" + "\u0AB2\u0AB3" +
+        "\u0AB5\u0AB9" + "\u0ABD\u0ABD" + "\u0AE0\u0AE0" + "\u0B05\u0B0C" +
+        "\u0B0F\u0B10" + "\u0B13\u0B28" + "\u0B2A\u0B30" + "\u0B32\u0B33" +
+        "\u0B36\u0B39" + "\u0B3D\u0B3D" + "\u0B5C\u0B5D" + "\u0B5F\u0B61" +
+        "\u0B85\u0B8A" + "\u0B8E\u0B90" + "\u0B92\u0B95" + "\u0B99\u0B9A" +
+        "\u0B9C\u0B9C" + "\u0B9E\u0B9F" + "\u0BA3\u0BA4" + "\u0BA8\u0BAA" +
+        "\u0BAE\u0BB5" + "\u0BB7\u0BB9" + "\u0C05\u0C0C" + "\u0C0E\u0C10" +
+        "\u0C12\u0C28" + "\u0C2A\u0C33" + "\u0C35\u0C39" + "\u0C60\u0C61" +
+        "\u0C85\u0C8C" + "\u0C8E\u0C90" + "\u0C92\u0CA8" + "\u0CAA\u0CB3" +
+        "\u0CB5\u0CB9" + "\u0CDE\u0CDE" + "\u0CE0\u0CE1" + "\u0D05\u0D0C" +
+        "\u0D0E\u0D10" + "\u0D12\u0D28" + "\u0D2A\u0D39" + "\u0D60\u0D61" +
+        "\u0E01\u0E2E" + "\u0E30\u0E30" + "\u0E32\u0E33" + "\u0E40\u0E45" +
+        "\u0E81\u0E82" + "\u0E84\u0E84" + "\u0E87\u0E88" + "\u0E8A\u0E8A" +
+        "\u0E8D\u0E8D" + "\u0E94\u0E97" + "\u0E99\u0E9F" + "\u0EA1\u0EA3" +
+        "\u0EA5\u0EA5" + "\u0EA7\u0EA7" + "\u0EAA\u0EAB" + "\u0EAD\u0EAE" +
+        "\u0EB0\u0EB0" + "\u0EB2\u0EB3" + "\u0EBD\u0EBD" + "\u0EC0\u0EC4" +
+        "\u0F40\u0F47" + "\u0F49\u0F69" + "\u10A0\u10C5" + "\u10D0\u10F6" +
+        "\u1100\u1100" + "\u1102\u1103" + "\u1105\u1107" + "\u1109\u1109" +
+        "\u110B\u110C" + "\u110E\u1112" + "\u113C\u113C" + "\u113E\u113E" +
+        "\u1140\u1140" + "\u114C\u114C" + "\u114E\u114E" + "\u1150\u1150" +
+        "\u1154\u1155" + "\u1159\u1159" + "\u115F\u1161" + "\u1163\u1163" +
+        "\u1165\u1165" + "\u1167\u1167" + "\u1169\u1169" + "\u116D\u116E" +
+        "\u1172\u1173" + "\u1175\u1175" + "\u119E\u119E" + "\u11A8\u11A8" +
+        "\u11AB\u11AB" + "\u11AE\u11AF" + "\u11B7\u11B8" + "\u11BA\u11BA" +
+        "\u11BC\u11C2" + "\u11EB\u11EB" + "\u11F0\u11F0" + "\u11F9\u11F9" +
+        "\u1E00\u1E9B" + "\u1EA0\u1EF9" + "\u1F00\u1F15" + "\u1F18\u1F1D" +
+        "\u1F20\u1F45" + "\u1F48\u1F4D" + "\u1F50\u1F57" + "\u1F59\u1F59" +
+        "\u1F5B\u1F5B" + "\u1F5D\u1F5D" + "\u1F5F\u1F7D" + "\u1F80\u1FB4" +
+        "\u1FB6\u1FBC" + "\u1FBE\u1FBE" + "\u1FC2\u1FC4" + "\u1FC6\u1FCC" +
+        "\u1FD0\u1FD3" + "\u1FD6\u1FDB" + "\u1FE0\u1FEC" + "\u1FF2\u1FF4" +
+        "\u1FF6\u1FFC" + "\u2126\u2126" + "\u212A\u212B" + "\u212E\u212E" +
+        "\u2180\u2182" + "\u3007\u3007" + "\u3021\u3029" + "\u3041\u3094" +
+        "\u30A1\u30FA" + "\u3105\u312C" + "\u4E00\u9FA5" + "\uAC00\uD7A3";
+    private static final String NAME_CHAR_RANGES =
+        "\u0030\u0039" + "\u00B7\u00B7" + "\u02D0\u02D1" + "\u0300\u0345" +
+        "\u0360\u0361" + "\u0387\u0387" + "\u0483\u0486" + "\u0591\u05A1" +
+        "\u05A3\u05B9" + "\u05BB\u05BD" + "\u05BF\u05BF" + "\u05C1\u05C2" +
+        "\u05C4\u05C4" + "\u0640\u0640" + "\u064B\u0652" + "\u0660\u0669" +
+        "\u0670\u0670" + "\u06D6\u06E4" + "\u06E7\u06E8" + "\u06EA\u06ED" +
+        "\u06F0\u06F9" + "\u0901\u0903" + "\u093C\u093C" + "\u093E\u094D" +
+        "\u0951\u0954" + "\u0962\u0963" + "\u0966\u096F" + "\u0981\u0983" +
+        "\u09BC\u09BC" + "\u09BE\u09C4" + "\u09C7\u09C8" + "\u09CB\u09CD" +
+        "\u09D7\u09D7" + "\u09E2\u09E3" + "\u09E6\u09EF" + "\u0A02\u0A02" +
+        "\u0A3C\u0A3C" + "\u0A3E\u0A42" + "\u0A47\u0A48" + "\u0A4B\u0A4D" +
+        "\u0A66\u0A71" + "\u0A81\u0A83" + "\u0ABC\u0ABC" + "\u0ABE\u0AC5" +
+        "\u0AC7\u0AC9" + "\u0ACB\u0ACD" + "\u0AE6\u0AEF" + "\u0B01\u0B03" +
+        "\u0B3C\u0B3C" + "\u0B3E\u0B43" + "\u0B47\u0B48" + "\u0B4B\u0B4D" +
+        "\u0B56\u0B57" + "\u0B66\u0B6F" + "\u0B82\u0B83" + "\u0BBE\u0BC2" +
+        "\u0BC6\u0BC8" + "\u0BCA\u0BCD" + "\u0BD7\u0BD7" + "\u0BE7\u0BEF" +
+        "\u0C01\u0C03" + "\u0C3E\u0C44" + "\u0C46\u0C48" + "\u0C4A\u0C4D" +
+        "\u0C55\u0C56" + "\u0C66\u0C6F" + "\u0C82\u0C83" + "\u0CBE\u0CC4" +
+        "\u0CC6\u0CC8" + "\u0CCA\u0CCD" + "\u0CD5\u0CD6" + "\u0CE6\u0CEF" +
+        "\u0D02\u0D03" + "\u0D3E\u0D43" + "\u0D46\u0D48" + "\u0D4A\u0D4D" +
+        "\u0D57\u0D57" + "\u0D66\u0D6F" + "\u0E31\u0E31" + "\u0E34\u0E3A" +
+        "\u0E46\u0E4E" + "\u0E50\u0E59" + "\u0EB1\u0EB1" + "\u0EB4\u0EB9" +
+        "\u0EBB\u0EBC" + "\u0EC6\u0EC6" + "\u0EC8\u0ECD" + "\u0ED0\u0ED9" +
+        "\u0F18\u0F19" + "\u0F20\u0F29" + "\u0F35\u0F35" + "\u0F37\u0F37" +
+        "\u0F39\u0F39" + "\u0F3E\u0F3F" + "\u0F71\u0F84" + "\u0F86\u0F8B" +
+        "\u0F90\u0F95" + "\u0F97\u0F97" + "\u0F99\u0FAD" + "\u0FB1\u0FB7" +
+        "\u0FB9\u0FB9" + "\u20D0\u20DC" + "\u20E1\u20E1" + "\u3005\u3005" +
+        "\u302A\u302F" + "\u3031\u3035" + "\u3099\u309A" + "\u309D\u309E" +
+        "\u30FC\u30FE";
+
+    private final String expression;
+    private final int length;
+    private final Compiler compiler;
+
+    /** Kind of the current token. */
+    private int kind;
+    /** Offset of the first character of the current token. */
+    private int start;
+    /** Offset just past the last character of the current token. */
+    private int end;
+    /** Axis code of the current token, if it is an AXIS. */
+    private int axis;
+    /** Offset of the most recently consumed token, -1 if none. */
+    private int consumed = -1;
+
+    private int markKind;
+    private int markStart;
+    private int markEnd;
+    private int markAxis;
+    private int markConsumed;
+
+    /**
+     * Create a new RecursiveDescentParser.
+     * @param expression to parse
+     * @param compiler receives the parsed constructs
+     */
+    RecursiveDescentParser(String expression, Compiler compiler) {
+        this.expression = expression;
+        this.length = expression.length();
+        this.compiler = compiler;
+        scan(0);
+    }
+
+    /**
+     * Parse the whole expression.
+     * @return the compiled expression
+     */
+    public Object parseExpression() {
+        Object ex = expression();
+        expect(EOF);
+        return ex;
+    }
+
+    // ---------------------------------------------------------------- grammar
+
+    /**
+     * Expr ::= OrExpr
+     * @return Object
+     */
+    private Object expression() {
+        return orExpr();
+    }
+
+    /**
+     * OrExpr ::= AndExpr ('or' AndExpr)*
+     * @return Object
+     */
+    private Object orExpr() {
+        Object ex = andExpr();
+        if (!isName("or")) {
+            return ex;
+        }
+        ArrayList list = new ArrayList();
+        list.add(ex);
+        while (isName("or")) {
+            next();
+            list.add(andExpr());
+        }
+        return compiler.or(list.toArray());
+    }
+
+    /**
+     * AndExpr ::= EqualityExpr ('and' EqualityExpr)*
+     * @return Object
+     */
+    private Object andExpr() {
+        Object ex = equalityExpr();
+        if (!isName("and")) {
+            return ex;
+        }
+        ArrayList list = new ArrayList();
+        list.add(ex);
+        while (isName("and")) {
+            next();
+            list.add(equalityExpr());
+        }
+        return compiler.and(list.toArray());
+    }
+
+    /**
+     * EqualityExpr ::= RelationalExpr (('=' | '!=') RelationalExpr)*
+     * @return Object
+     */
+    private Object equalityExpr() {
+        Object ex = relationalExpr();
+        while (true) {
+            if (kind == EQ) {
+                next();
+                ex = compiler.equal(ex, relationalExpr());
+            }
+            else if (kind == NEQ) {
+                next();
+                ex = compiler.notEqual(ex, relationalExpr());
+            }
+            else {
+                return ex;
+            }
+        }
+    }
+
+    /**
+     * RelationalExpr ::= AdditiveExpr (('&lt;' | '&gt;' | '&lt;=' | '&gt;=')
+     * AdditiveExpr)*
+     * @return Object
+     */
+    private Object relationalExpr() {
+        Object ex = additiveExpr();
+        while (true) {
+            switch (kind) {
+                case LT :
+                    next();
+                    ex = compiler.lessThan(ex, additiveExpr());
+                    break;
+                case GT :
+                    next();
+                    ex = compiler.greaterThan(ex, additiveExpr());
+                    break;
+                case LTE :
+                    next();
+                    ex = compiler.lessThanOrEqual(ex, additiveExpr());
+                    break;
+                case GTE :
+                    next();
+                    ex = compiler.greaterThanOrEqual(ex, additiveExpr());
+                    break;
+                default :
+                    return ex;
+            }
+        }
+    }
+
+    /**
+     * AdditiveExpr ::= SubtractiveExpr ('+' SubtractiveExpr)*
+     * @return Object
+     */
+    private Object additiveExpr() {
+        Object ex = subtractiveExpr();
+        if (kind != PLUS) {
+            return ex;
+        }
+        ArrayList list = new ArrayList();
+        list.add(ex);
+        while (kind == PLUS) {
+            next();
+            list.add(subtractiveExpr());
+        }
+        return compiler.sum(list.toArray());
+    }
+
+    /**
+     * SubtractiveExpr ::= MultiplicativeExpr ('-' MultiplicativeExpr)*
+     * @return Object
+     */
+    private Object subtractiveExpr() {
+        Object ex = multiplicativeExpr();
+        while (kind == MINUS) {
+            next();
+            ex = compiler.minus(ex, multiplicativeExpr());
+        }
+        return ex;
+    }
+
+    /**
+     * MultiplicativeExpr ::= UnaryExpr (('*' | 'div' | 'mod') UnaryExpr)*
+     * @return Object
+     */
+    private Object multiplicativeExpr() {
+        Object ex = unaryExpr();
+        while (true) {
+            if (kind == STAR) {
+                next();
+                ex = compiler.multiply(ex, unaryExpr());
+            }
+            else if (isName("div")) {
+                next();
+                ex = compiler.divide(ex, unaryExpr());
+            }
+            else if (isName("mod")) {
+                next();
+                ex = compiler.mod(ex, unaryExpr());
+            }
+            else {
+                return ex;
+            }
+        }
+    }
+
+    /**
+     * UnaryExpr ::= UnionExpr | '-' UnaryExpr
+     * @return Object
+     */
+    private Object unaryExpr() {
+        if (kind == MINUS) {
+            next();
+            return compiler.minus(unaryExpr());
+        }
+        return unionExpr();
+    }
+
+    /**
+     * UnionExpr ::= PathExpr ('|' PathExpr)*
+     * @return Object
+     */
+    private Object unionExpr() {
+        Object ex = pathExpr();
+        if (kind != UNION) {
+            return ex;
+        }
+        ArrayList list = new ArrayList();
+        list.add(ex);
+        while (kind == UNION) {
+            next();
+            list.add(pathExpr());
+        }
+        return compiler.union(list.toArray());
+    }
+
+    /**
+     * PathExpr ::= LocationPath | FilterExpr
+     * @return Object
+     */
+    private Object pathExpr() {
+        return startsPrimaryExpr() ? filterExpr() : locationPath();
+    }
+
+    /**
+     * FilterExpr ::= PrimaryExpr Predicate* LocationStep*
+     * @return Object
+     */
+    private Object filterExpr() {
+        Object ex = primaryExpr();
+        if (kind != LBRACKET && kind != SLASH && kind != SLASHSLASH) {
+            return ex;
+        }
+        ArrayList ps = new ArrayList();
+        while (kind == LBRACKET) {
+            ps.add(predicate());
+        }
+        ArrayList steps = new ArrayList();
+        while (kind == SLASH || kind == SLASHSLASH) {
+            locationStep(steps);
+        }
+        return compiler.expressionPath(ex, ps.toArray(), steps.toArray());
+    }
+
+    /**
+     * PrimaryExpr ::= VariableReference | '(' Expr ')' | Literal | Number
+     * | FunctionCall
+     * @return Object
+     */
+    private Object primaryExpr() {
+        Object ex;
+        switch (kind) {
+            case VARIABLE :
+                next();
+                return compiler.variableReference(qName());
+            case LPAR :
+                next();
+                ex = expression();
+                expect(RPAR);
+                return ex;
+            case LITERAL :
+                ex = compiler.literal(
+                        unescape(expression.substring(start + 1, end - 1)));
+                next();
+                return ex;
+            case NUMBER :
+                ex = compiler.number(expression.substring(start, end));
+                next();
+                return ex;
+            default :
+                return functionCall();
+        }
+    }
+
+    /**
+     * FunctionCall ::= FunctionName '(' (Argument (',' Argument)*)? ')'
+     * @return Object
+     */
+    private Object functionCall() {
+        String nc1 = name();
+        if (kind == COLON) {
+            next();
+            Object qname = compiler.qname(nc1, name());
+            return compiler.function(qname, argumentList());
+        }
+        Integer code = (Integer) CORE_FUNCTIONS.get(nc1);
+        if (code != null) {
+            return compiler.function(code.intValue(), argumentList());
+        }
+        return compiler.function(compiler.qname(null, nc1), argumentList());
+    }
+
+    /**
+     * ArgumentList ::= '(' (Expr (',' Expr)*)? ')'
+     * @return arguments, <code>null</code> if there are none
+     */
+    private Object[] argumentList() {
+        expect(LPAR);
+        if (kind == RPAR) {
+            next();
+            return null;
+        }
+        ArrayList args = new ArrayList();
+        args.add(expression());
+        while (kind == COMMA) {
+            next();
+            args.add(expression());
+        }
+        expect(RPAR);
+        return args.toArray();
+    }
+
+    /**
+     * LocationPath ::= RelativeLocationPath | AbsoluteLocationPath
+     * @return Object
+     */
+    private Object locationPath() {
+        ArrayList steps = new ArrayList();
+        if (kind == SLASH || kind == SLASHSLASH) {
+            if (kind == SLASH && !startsNodeTest(peekKind())) {
+                next();
+            }
+            else {
+                while (kind == SLASH || kind == SLASHSLASH) {
+                    locationStep(steps);
+                }
+            }
+            return compiler.locationPath(true, steps.toArray());
+        }
+        nodeTest(steps);
+        while (kind == SLASH || kind == SLASHSLASH) {
+            locationStep(steps);
+        }
+        return compiler.locationPath(false, steps.toArray());
+    }
+
+    /**
+     * LocationStep ::= ('/' | '//') NodeTest
+     * @param steps to add to
+     */
+    private void locationStep(ArrayList steps) {
+        if (kind == SLASHSLASH) {
+            // Abbreviated step: descendant-or-self::node()
+            Object t = compiler.nodeTypeTest(Compiler.NODE_TYPE_NODE);
+            steps.add(compiler.step(Compiler.AXIS_DESCENDANT_OR_SELF, t, null));
+        }
+        next();
+        nodeTest(steps);
+    }
+
+    /**
+     * NodeTest ::= (AxisSpecifier (NodeType '(' ')'
+     * | 'processing-instruction' '(' Literal ')' | WildcardName)
+     * | '.' | '..') Predicate*
+     * @param steps to add to
+     */
+    private void nodeTest(ArrayList steps) {
+        int stepAxis;
+        int type = -1;
+        String instruction = null;
+        Object name = null;
+
+        if (kind == DOT) {
+            next();
+            stepAxis = Compiler.AXIS_SELF;
+            type = Compiler.NODE_TYPE_NODE;
+        }
+        else if (kind == DOTDOT) {
+            next();
+            stepAxis = Compiler.AXIS_PARENT;
+            type = Compiler.NODE_TYPE_NODE;
+        }
+        else {
+            stepAxis = Compiler.AXIS_CHILD;
+            if (kind == AXIS) {
+                stepAxis = axis;
+                next();
+            }
+            else if (kind == AT) {
+                stepAxis = Compiler.AXIS_ATTRIBUTE;
+                next();
+            }
+            int nodeType = kind == NAME ? nodeType() : -1;
+            if (nodeType != -1 && isEmptyArgumentList()) {
+                type = nodeType;
+                next();
+                next();
+                next();
+            }
+            else if (nodeType == Compiler.NODE_TYPE_PI) {
+                next();
+                expect(LPAR);
+                if (kind != LITERAL) {
+                    throw syntaxError();
+                }
+                instruction = unescape(expression.substring(start + 1, end - 1));
+                next();
+                expect(RPAR);
+            }
+            else {
+                name = wildcardName();
+            }
+        }
+
+        ArrayList ps = new ArrayList();
+        while (kind == LBRACKET) {
+            ps.add(predicate());
+        }
+
+        Object test;
+        if (name != null) {
+            test = compiler.nodeNameTest(name);
+        }
+        else if (instruction != null) {
+            test = compiler.processingInstructionTest(instruction);
+        }
+        else {
+            test = compiler.nodeTypeTest(type);
+        }
+        steps.add(compiler.step(stepAxis, test, ps.toArray()));
+    }
+
+    /**
+     * Predicate ::= '[' Expr ']'
+     * @return Object
+     */
+    private Object predicate() {
+        expect(LBRACKET);
+        Object ex = expression();
+        expect(RBRACKET);
+        return ex;
+    }
+
+    /**
+     * WildcardName ::= ('*' | NCName) (':' ('*' | NCName))?
+     * @return Object
+     */
+    private Object wildcardName() {
+        String nc1 = wildcardPart();
+        if (kind != COLON) {
+            return compiler.qname(null, nc1);
+        }
+        next();
+        return compiler.qname(nc1, wildcardPart());
+    }
+
+    /**
+     * Consume a '*' or NCName token.
+     * @return the name
+     */
+    private String wildcardPart() {
+        if (kind == STAR) {
+            next();
+            return "*";
+        }
+        return name();
+    }
+
+    /**
+     * QName ::= NCName (':' NCName)?
+     * @return Object
+     */
+    private Object qName() {
+        String nc1 = name();
+        if (kind != COLON) {
+            return compiler.qname(null, nc1);
+        }
+        next();
+        return compiler.qname(nc1, name());
+    }
+
+    /**
+     * Consume an NCName token.
+     * @return the name
+     */
+    private String name() {
+        if (kind != NAME) {
+            throw syntaxError();
+        }
+        String name = expression.substring(start, end);
+        next();
+        return name;
+    }
+
+    // -------------------------------------------------------------- lookahead
+
+    /**
+     * Learn whether the current token starts a PrimaryExpr rather than a
+     * LocationPath. Names are only primary expressions as function calls,
+     * i.e. when followed by '(' and not a node type test.
+     * @return boolean
+     */
+    private boolean startsPrimaryExpr() {
+        switch (kind) {
+            case VARIABLE :
+            case LPAR :
+            case LITERAL :
+            case NUMBER :
+                return true;
+            case NAME :
+                break;
+            default :
+                return false;
+        }
+        mark();
+        boolean nodeType = nodeType() != -1;
+        next();
+        boolean result;
+        if (kind == COLON) {
+            next();
+            if (kind == NAME) {
+                next();
+                result = kind == LPAR;
+            }
+            else {
+                result = false;
+            }
+        }
+        else {
+            result = kind == LPAR && !nodeType;
+        }
+        reset();
+        return result;
+    }
+
+    /**
+     * Learn whether the current token is followed by "(" ")".
+     * @return boolean
+     */
+    private boolean isEmptyArgumentList() {
+        mark();
+        next();
+        boolean result = false;
+        if (kind == LPAR) {
+            next();
+            result = kind == RPAR;
+        }
+        reset();
+        return result;
+    }
+
+    /**
+     * Get the kind of the token following the current one.
+     * @return int
+     */
+    private int peekKind() {
+        mark();
+        next();
+        int result = kind;
+        reset();
+        return result;
+    }
+
+    /**
+     * Remember the current token, to come back to it with {@link #reset()}.
+     */
+    private void mark() {
+        markKind = kind;
+        markStart = start;
+        markEnd = end;
+        markAxis = axis;
+        markConsumed = consumed;
+    }
+
+    /**
+     * Return to the token remembered by {@link #mark()}.
+     */
+    private void reset() {
+        kind = markKind;
+        start = markStart;
+        end = markEnd;
+        axis = markAxis;
+        consumed = markConsumed;
+    }
+
+    /**
+     * Learn whether a token of the specified kind can start a NodeTest.
+     * @param tokenKind to check
+     * @return boolean
+     */
+    private static boolean startsNodeTest(int tokenKind) {
+        return tokenKind == NAME || tokenKind == AXIS || tokenKind == AT
+                || tokenKind == STAR || tokenKind == DOT || tokenKind == DOTDOT;
+    }
+
+    /**
+     * Get the node type named by the current NAME token.
+     * @return Compiler.NODE_TYPE_* or -1
+     */
+    private int nodeType() {
+        if (isName("node")) {
+            return Compiler.NODE_TYPE_NODE;
+        }
+        if (isName("text")) {
+            return Compiler.NODE_TYPE_TEXT;
+        }
+        if (isName("comment")) {
+            return Compiler.NODE_TYPE_COMMENT;
+        }
+        if (isName("processing-instruction")) {
+            return Compiler.NODE_TYPE_PI;
+        }
+        return -1;
+    }
+
+    /**
+     * Learn whether the current token is the specified name.
+     * @param name to compare
+     * @return boolean
+     */
+    private boolean isName(String name) {
+        return kind == NAME && end - start == name.length()
+                && expression.startsWith(name, start);
+    }
+
+    /**
+     * Consume a token of the specified kind.
+     * @param tokenKind expected
+     */
+    private void expect(int tokenKind) {
+        if (kind != tokenKind) {
+            throw syntaxError();
+        }
+        next();
+    }
+
+    // ------------------------------------------------------------------ lexer
+
+    /**
+     * Advance to the next token.
+     */
+    private void next() {
+        consumed = start;
+        scan(end);
+    }
+
+    /**
+     * Read the token starting at or after the specified offset.
+     * @param offset to start at
+     */
+    private void scan(int offset) {
+        int i = offset;
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r' && c != '\f') {
+                break;
+            }
+            i++;
+        }
+        start = i;
+        if (i == length) {
+            kind = EOF;
+            end = i;
+            return;
+        }
+        char c = expression.charAt(i);
+        char c1 = i + 1 < length ? expression.charAt(i + 1) : 0;
+        end = i + 1;
+        switch (c) {
+            case '/' :
+                if (c1 == '/') {
+                    kind = SLASHSLASH;
+                    end++;
+                }
+                else {
+                    kind = SLASH;
+                }
+                return;
+            case '|' :
+                kind = UNION;
+                return;
+            case '+' :
+                kind = PLUS;
+                return;
+            case '-' :
+                kind = MINUS;
+                return;
+            case '=' :
+                kind = EQ;
+                return;
+            case '!' :
+                if (c1 != '=') {
+                    throw lexicalError(i + 1, c1);
+                }
+                kind = NEQ;
+                end++;
+                return;
+            case '<' :
+                kind = LT;
+                if (c1 == '=') {
+                    kind = LTE;
+                    end++;
+                }
+                return;
+            case '>' :
+                kind = GT;
+                if (c1 == '=') {
+                    kind = GTE;
+                    end++;
+                }
+                return;
+            case '$' :
+                kind = VARIABLE;
+                return;
+            case ':' :
+                kind = COLON;
+                return;
+            case '(' :
+                kind = LPAR;
+                return;
+            case ')' :
+                kind = RPAR;
+                return;
+            case '[' :
+                kind = LBRACKET;
+                return;
+            case ']' :
+                kind = RBRACKET;
+                return;
+            case '@' :
+                kind = AT;
+                return;
+            case ',' :
+                kind = COMMA;
+                return;
+            case '*' :
+                kind = STAR;
+                return;
+            case '"' :
+            case '\'' :
+                int close = expression.indexOf(c, i + 1);
+                if (close == -1) {
+                    throw lexicalError(length, (char) 0);
+                }
+                kind = LITERAL;
+                end = close + 1;
+                return;
+            case '.' :
+                if (c1 == '.') {
+                    kind = DOTDOT;
+                    end++;
+                }
+                else if (c1 >= '0' && c1 <= '9') {
+                    kind = NUMBER;
+                    end = skipDigits(i + 1);
+                }
+                else {
+                    kind = DOT;
+                }
+                return;
+            default :
+        }
+        if (c >= '0' && c <= '9') {
+            kind = NUMBER;
+            end = skipDigits(i);
+            if (end < length && expression.charAt(end) == '.') {
+                end = skipDigits(end + 1);
+            }
+            return;
+        }
+        if (!isNameStartChar(c)) {
+            throw lexicalError(i, c);
+        }
+        end = i + 1;
+        while (end < length && isNameChar(expression.charAt(end))) {
+            end++;
+        }
+        kind = NAME;
+        if (end + 1 < length && expression.charAt(end) == ':'
+                && expression.charAt(end + 1) == ':') {
+            for (int a = 0; a < AXIS_NAMES.length; a++) {
+                String name = AXIS_NAMES[a];
+                if (name.length() == end - start
+                        && expression.startsWith(name, start)) {
+                    kind = AXIS;
+                    axis = AXIS_CODES[a];
+                    end += 2;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Skip a run of ASCII digits.
+     * @param offset to start at
+     * @return offset of the first non-digit
+     */
+    private int skipDigits(int offset) {
+        int i = offset;
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    // ----------------------------------------------------------------- errors
+
+    /**
+     * Create an exception for an unexpected token.
+     * @return JXPathInvalidSyntaxException
+     */
+    private JXPathInvalidSyntaxException syntaxError() {
+        // Like JavaCC, report the position of the last token we consumed
+        return new JXPathInvalidSyntaxException(
+            "Invalid XPath: '"
+                + Parser.addEscapes(expression)
+                + "'. Syntax error "
+                + Parser.describePosition(expression, consumed + 1));
+    }
+
+    /**
+     * Create an exception for a character that cannot start a token.
+     * @param position of the character
+     * @param c the character
+     * @return JXPathInvalidSyntaxException
+     */
+    private JXPathInvalidSyntaxException lexicalError(int position, char c) {
+        return new JXPathInvalidSyntaxException(
+            "Invalid XPath: '"
+                + Parser.addEscapes(expression)
+                + "'. Invalid symbol '"
+                + Parser.addEscapes(String.valueOf(c))
+                + "' "
+                + Parser.describePosition(expression, position));
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    /**
+     * Register a core function name.
+     * @param name function name
+     * @param code Compiler.FUNCTION_* code
+     */
+    private static void addCoreFunction(String name, int code) {
+        CORE_FUNCTIONS.put(name, new Integer(code));
+    }
+
+    /**
+     * Replace the &amp;apos; and &amp;quot; entities in a literal.
+     * @param string literal body
+     * @return String
+     */
+    private static String unescape(String string) {
+        if (string.indexOf('&') == -1) {
+            return string;
+        }
+        int index = string.indexOf("&apos;");
+        while (index != -1) {
+            string = string.substring(0, index) + "\'" + string.substring(index + 6);
+            index = string.indexOf("&apos;");
+        }
+        index = string.indexOf("&quot;");
+        while (index != -1) {
+            string = string.substring(0, index) + "\"" + string.substring(index + 6);
+            index = string.indexOf("&quot;");
+        }
+        return string;
+    }
+
+    /**
+     * Learn whether a character can start an NCName.
+     * @param c to check
+     * @return boolean
+     */
+    private static boolean isNameStartChar(char c) {
+        if (c < 0x80) {
+            return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_';
+        }
+        return inRanges(LETTER_RANGES, c);
+    }
+
+    /**
+     * Learn whether a character can occur in an NCName.
+     * @param c to check
+     * @return boolean
+     */
+    private static boolean isNameChar(char c) {
+        if (c < 0x80) {
+            return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z'
+                    || c >= '0' && c <= '9' || c == '_' || c == '-'
+                    || c == '.';
+        }
+        return inRanges(LETTER_RANGES, c) || inRanges(NAME_CHAR_RANGES, c);
+    }
+
+    /**
+     * Binary search a table of character ranges.
+     * @param ranges pairs of inclusive bounds
+     * @param c to look for
+     * @return boolean
+     */
+    private static boolean inRanges(String ranges, char c) {
+        int low = 0;
+        int high = ranges.length() / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (c < ranges.charAt(2 * mid)) {
+                high = mid - 1;
+            }
+            else if (c > ranges.charAt(2 * mid + 1)) {
+                low = mid + 1;
+            }
+            else {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -112,16 +112,24 @@ public class DescendantContext extends EvalContext {
         while (!stack.isEmpty()) {
             NodeIterator it = (NodeIterator) stack.peek();
             if (it.setPosition(it.getPosition() + 1)) {
-                currentNodePointer = it.getNodePointer();
-                if (!isRecursive()) {
-                    if (!currentNodePointer.isLeaf()) {
+                // Look at the node through the iterator's cursor and only
+                // allocate a pointer if it is a result or has children
+                NodePointer cursor = getCursorPointer(it);
+                if (!isRecursive(cursor)) {
+                    boolean leaf = cursor.isLeaf();
+                    boolean match = cursor.testNode(nodeTest);
+                    if (leaf && !match) {
+                        continue;
+                    }
+                    currentNodePointer = it.getNodePointer();
+                    if (!leaf) {
                         stack.push(
                             currentNodePointer.childIterator(
                                 ELEMENT_NODE_TEST,
                                 false,
                                 null));
                     }
-                    if (currentNodePointer.testNode(nodeTest)) {
+                    if (match) {
                         position++;
                         return true;
                     }
@@ -139,13 +147,14 @@ public class DescendantContext extends EvalContext {
     /**
      * Checks if we are reentering a bean we have already seen and if so
      * returns true to prevent infinite recursion.
+     * @param current pointer to the node being entered
      * @return boolean
      */
-    private boolean isRecursive() {
-        Object node = currentNodePointer.getNode();
+    private boolean isRecursive(NodePointer current) {
+        Object node = current.getNode();
         for (int i = stack.size() - 1; --i >= 0;) {
             NodeIterator it = (NodeIterator) stack.get(i);
-            Pointer pointer = it.getNodePointer();
+            Pointer pointer = getCursorPointer(it);
             if (pointer != null && pointer.getNode() == node) {
                 return true;
             }
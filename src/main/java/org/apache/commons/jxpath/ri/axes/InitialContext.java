@@ -59,6 +59,11 @@ public class InitialContext extends EvalContext {
         return nodePointer.getValue();
     }
 
+    public boolean isInDocumentOrder() {
+        // A single node, or the elements of a collection by index
+        return true;
+    }
+
     public boolean nextNode() {
         return setPosition(position + 1);
     }
@@ -75,6 +80,13 @@ public class InitialContext extends EvalContext {
         return position == 1;
     }
 
+    protected int computeContextSize() {
+        if (nodePointer == null) {
+            return 0;
+        }
+        return collection ? nodePointer.getLength() : 1;
+    }
+
     public boolean nextSet() {
         if (started) {
             return false;
@@ -56,6 +56,10 @@ public class NodeSetContext extends EvalContext {
         return position >= 1 && position <= nodeSet.getPointers().size();
     }
 
+    protected int computeContextSize() {
+        return nodeSet.getPointers().size();
+    }
+
     public boolean nextSet() {
         if (startedSet) {
             return false;
@@ -119,15 +119,21 @@ public class PrecedingOrFollowingContext extends EvalContext {
                 if (!reverse) {
                     NodeIterator it = (NodeIterator) stack.peek();
                     if (it.setPosition(it.getPosition() + 1)) {
+                        NodePointer cursor = getCursorPointer(it);
+                        boolean leaf = cursor.isLeaf();
+                        boolean match = cursor.testNode(nodeTest);
+                        if (leaf && !match) {
+                            continue;
+                        }
                         currentNodePointer = it.getNodePointer();
-                        if (!currentNodePointer.isLeaf()) {
+                        if (!leaf) {
                             stack.push(
                                 currentNodePointer.childIterator(
                                     null,
                                     reverse,
                                     null));
                         }
-                        if (currentNodePointer.testNode(nodeTest)) {
+                        if (match) {
                             super.setPosition(getCurrentPosition() + 1);
                             return true;
                         }
@@ -141,15 +147,17 @@ public class PrecedingOrFollowingContext extends EvalContext {
                 else {
                     NodeIterator it = (NodeIterator) stack.peek();
                     if (it.setPosition(it.getPosition() + 1)) {
-                        currentNodePointer = it.getNodePointer();
-                        if (!currentNodePointer.isLeaf()) {
+                        NodePointer cursor = getCursorPointer(it);
+                        if (!cursor.isLeaf()) {
+                            currentNodePointer = it.getNodePointer();
                             stack.push(
                                 currentNodePointer.childIterator(
                                     null,
                                     reverse,
                                     null));
                         }
-                        else if (currentNodePointer.testNode(nodeTest)) {
+                        else if (cursor.testNode(nodeTest)) {
+                            currentNodePointer = it.getNodePointer();
                             super.setPosition(getCurrentPosition() + 1);
                             return true;
                         }
@@ -158,8 +166,8 @@ public class PrecedingOrFollowingContext extends EvalContext {
                         stack.pop();
                         if (!stack.isEmpty()) {
                             it = (NodeIterator) stack.peek();
-                            currentNodePointer = it.getNodePointer();
-                            if (currentNodePointer.testNode(nodeTest)) {
+                            if (getCursorPointer(it).testNode(nodeTest)) {
+                                currentNodePointer = it.getNodePointer();
                                 super.setPosition(getCurrentPosition() + 1);
                                 return true;
                             }
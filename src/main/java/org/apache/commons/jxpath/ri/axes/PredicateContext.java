@@ -61,24 +61,12 @@ public class PredicateContext extends EvalContext {
                 Object pred = nameTestExpression.computeValue(parentContext);
                 String propertyName = InfoSetUtil.stringValue(pred);
 
-                // At this point it would be nice to say:
-                // dynamicPropertyPointer.setPropertyName(propertyName)
-                // and then: dynamicPropertyPointer.isActual().
-                // However some PropertyPointers, e.g. DynamicPropertyPointer
-                // will declare that any property you ask for is actual.
-                // That's not acceptable for us: we really need to know
-                // if the property is currently declared. Thus,
-                // we'll need to perform a search.
-                boolean ok = false;
-                String[] names = dynamicPropertyPointer.getPropertyNames();
-                for (int i = 0; i < names.length; i++) {
-                    if (names[i].equals(propertyName)) {
-                        ok = true;
-                        break;
-                    }
-                }
-                if (ok) {
-                    dynamicPropertyPointer.setPropertyName(propertyName);
+                // We cannot just set the property name and then call
+                // isActual(): some PropertyPointers, e.g.
+                // DynamicPropertyPointer, declare that any property you
+                // ask for is actual, but we need to know if the property
+                // is currently declared.
+                if (dynamicPropertyPointer.selectProperty(propertyName)) {
                     position++;
                     return true;
                 }
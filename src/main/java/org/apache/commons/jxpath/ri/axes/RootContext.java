@@ -16,6 +16,9 @@
  */
 package org.apache.commons.jxpath.ri.axes;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import org.apache.commons.jxpath.Function;
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.NodeSet;
@@ -35,6 +38,7 @@ public class RootContext extends EvalContext {
     private NodePointer pointer;
     private Object[] registers;
     private int availableRegister = 0;
+    private Map invariantValues;
     public static final Object UNKNOWN_VALUE = new Object();
     private static final int MAX_REGISTER = 4;
 
@@ -172,6 +176,32 @@ public class RootContext extends EvalContext {
         return availableRegister - 1;
     }
 
+    /**
+     * Get the value of a context independent expression computed earlier
+     * during this evaluation.
+     * @param key identifies the expression
+     * @return Object, {@link #UNKNOWN_VALUE} if not computed yet
+     */
+    public Object getInvariantValue(Object key) {
+        if (invariantValues == null || !invariantValues.containsKey(key)) {
+            return UNKNOWN_VALUE;
+        }
+        return invariantValues.get(key);
+    }
+
+    /**
+     * Remember the value of a context independent expression for the
+     * rest of this evaluation.
+     * @param key identifies the expression
+     * @param value Object
+     */
+    public void setInvariantValue(Object key, Object value) {
+        if (invariantValues == null) {
+            invariantValues = new IdentityHashMap();
+        }
+        invariantValues.put(key, value);
+    }
+
     public String toString() {
         return super.toString() + ":" + pointer.asPath();
     }
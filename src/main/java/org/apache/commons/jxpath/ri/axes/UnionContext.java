@@ -17,16 +17,25 @@
 package org.apache.commons.jxpath.ri.axes;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.commons.jxpath.BasicNodeSet;
-import org.apache.commons.jxpath.Pointer;
+import org.apache.commons.jxpath.NodeSet;
 import org.apache.commons.jxpath.ri.EvalContext;
 import org.apache.commons.jxpath.ri.model.NodePointer;
 
 /**
  * EvalContext that represents a union between other contexts - result
  * of a union operation like (a | b)
+ * <p>
+ * The nodes are produced lazily, as they are requested. Contexts that
+ * already produce their nodes in document order are merged as they are
+ * iterated; the nodes of any other context are collected and sorted
+ * first. Duplicates are detected with a hash set of the nodes produced
+ * so far.
  *
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
@@ -34,6 +43,8 @@ import org.apache.commons.jxpath.ri.model.NodePointer;
 public class UnionContext extends NodeSetContext {
     private EvalContext[] contexts;
     private boolean prepared;
+    private Source[] sources;
+    private HashSet seen;
 
     /**
      * Create a new UnionContext.
@@ -46,31 +57,162 @@ public class UnionContext extends NodeSetContext {
     }
 
     public int getDocumentOrder() {
-        return contexts.length > 1 ? 1 : super.getDocumentOrder();
+        // The nodes are merged in document order as they are produced,
+        // there is no need to collect and sort them again
+        return 0;
+    }
+
+    public boolean isChildOrderingRequired() {
+        return isOrdered();
+    }
+
+    public boolean isInDocumentOrder() {
+        return super.isInDocumentOrder() || isOrdered()
+                || contexts[0].isInDocumentOrder();
+    }
+
+    public NodeSet getNodeSet() {
+        fill(Integer.MAX_VALUE);
+        return super.getNodeSet();
     }
 
     public boolean setPosition(int position) {
+        fill(position);
+        return super.setPosition(position);
+    }
+
+    protected int computeContextSize() {
+        fill(Integer.MAX_VALUE);
+        return super.computeContextSize();
+    }
+
+    /**
+     * Learn whether the nodes of this union must be in document order.
+     * @return boolean
+     */
+    private boolean isOrdered() {
+        return contexts.length > 1 || super.getDocumentOrder() != 0;
+    }
+
+    /**
+     * Produce nodes until there are at least <code>count</code> of them
+     * or all contexts are exhausted.
+     * @param count number of nodes needed
+     */
+    private void fill(int count) {
         if (!prepared) {
-            prepared = true;
-            BasicNodeSet nodeSet = (BasicNodeSet) getNodeSet();
-            ArrayList pointers = new ArrayList();
-            for (int i = 0; i < contexts.length; i++) {
-                EvalContext ctx = contexts[i];
+            prepare();
+        }
+        if (sources == null) {
+            return;
+        }
+        BasicNodeSet nodeSet = (BasicNodeSet) super.getNodeSet();
+        List pointers = nodeSet.getPointers();
+        while (pointers.size() < count) {
+            Source first = null;
+            for (int i = 0; i < sources.length; i++) {
+                // Unions rarely have more than a few arguments, a linear
+                // scan of the current nodes is cheaper than a heap
+                Source source = sources[i];
+                if (source.head != null && (first == null
+                        || source.head.compareTo(first.head) < 0)) {
+                    first = source;
+                }
+            }
+            if (first == null) {
+                // Everything has been produced
+                sources = null;
+                seen = null;
+                return;
+            }
+            NodePointer pointer = first.head;
+            first.advance();
+            if (seen.add(pointer)) {
+                nodeSet.add(pointer);
+            }
+        }
+    }
+
+    /**
+     * Set up a source for each context. Contexts that are not known to be
+     * in document order are collected and sorted, unless the order of the
+     * union does not matter.
+     */
+    private void prepare() {
+        prepared = true;
+        boolean ordered = isOrdered();
+        sources = new Source[contexts.length];
+        seen = new HashSet();
+        for (int i = 0; i < contexts.length; i++) {
+            EvalContext ctx = contexts[i];
+            if (!ordered || ctx.isInDocumentOrder()) {
+                sources[i] = new Source(ctx, null);
+            }
+            else {
+                ArrayList list = new ArrayList();
+                HashSet set = new HashSet();
                 while (ctx.nextSet()) {
                     while (ctx.nextNode()) {
                         NodePointer ptr = ctx.getCurrentNodePointer();
-                        if (!pointers.contains(ptr)) {
-                            pointers.add(ptr);
+                        if (ptr != null) {
+                            ptr = (NodePointer) ptr.clone();
+                            if (set.add(ptr)) {
+                                list.add(ptr);
+                            }
                         }
                     }
                 }
+                Collections.sort(list);
+                sources[i] = new Source(null, list.iterator());
             }
-            sortPointers(pointers);
+            sources[i].advance();
+        }
+    }
 
-            for (Iterator it = pointers.iterator(); it.hasNext();) {
-                nodeSet.add((Pointer) it.next());
+    /**
+     * The nodes of one of the contexts, in document order, read one at
+     * a time.
+     */
+    private static final class Source {
+        private final EvalContext context;
+        private final Iterator iterator;
+        private boolean inSet;
+        private NodePointer head;
+
+        /**
+         * Create a new Source.
+         * @param context to iterate, or <code>null</code>
+         * @param iterator of sorted pointers, used if there is no context
+         */
+        private Source(EvalContext context, Iterator iterator) {
+            this.context = context;
+            this.iterator = iterator;
+        }
+
+        /**
+         * Move on to the next node, which becomes the head.
+         * The head is <code>null</code> once the source is exhausted.
+         */
+        private void advance() {
+            head = null;
+            if (iterator != null) {
+                if (iterator.hasNext()) {
+                    head = (NodePointer) iterator.next();
+                }
+                return;
+            }
+            while (inSet || context.nextSet()) {
+                inSet = true;
+                while (context.nextNode()) {
+                    NodePointer pointer = context.getCurrentNodePointer();
+                    if (pointer != null) {
+                        // The context may reuse the pointer for the next node
+                        head = (NodePointer) pointer.clone();
+                        return;
+                    }
+                }
+                inSet = false;
             }
         }
-        return super.setPosition(position);
     }
 }
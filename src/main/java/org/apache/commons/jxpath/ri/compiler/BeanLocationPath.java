@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.compiler;
+
+import java.beans.IndexedPropertyDescriptor;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.Locale;
+
+import org.apache.commons.jxpath.JXPathBeanInfo;
+import org.apache.commons.jxpath.JXPathIntrospector;
+import org.apache.commons.jxpath.ri.Compiler;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.apache.commons.jxpath.ri.model.beans.BeanPointer;
+import org.apache.commons.jxpath.util.ValueUtils;
+
+/**
+ * A LocationPath made only of child steps naming JavaBean properties,
+ * each optionally followed by a constant position predicate, such as
+ * <code>order/customer/address[1]/zip</code>.
+ * <p>
+ * Besides the regular interpreted evaluation inherited from
+ * {@link LocationPath}, such a path can be evaluated by calling the
+ * property getters directly through {@link #getDirectValue(NodePointer)}.
+ * Every step keeps a monomorphic inline cache: the getter resolved for
+ * the class of the last receiver is reused as long as the receiver has
+ * the same class, and relinked otherwise. Whenever the graph contains
+ * something the interpreter treats specially (dynamic beans, containers,
+ * DOM nodes, collections without a position, missing or null values)
+ * the direct evaluation gives up and the caller falls back to the
+ * interpreter, so the result is always the same.
+ *
+ * @version $Revision$ $Date$
+ */
+public class BeanLocationPath extends LocationPath {
+
+    /**
+     * Returned by {@link #getDirectValue(NodePointer)} when the path
+     * has to be evaluated by the interpreter.
+     */
+    public static final Object UNRESOLVED = new Object();
+
+    private static final int NO_INDEX = -1;
+
+    private final String[] names;
+    private final int[] indexes;
+    private final Link[] links;
+    private Link valueLink;
+
+    /**
+     * Create a new BeanLocationPath.
+     * @param absolute whether this is an absolute path
+     * @param steps to evaluate, see {@link #isBeanPath(Step[])}
+     */
+    public BeanLocationPath(boolean absolute, Step[] steps) {
+        super(absolute, steps);
+        names = new String[steps.length];
+        indexes = new int[steps.length];
+        links = new Link[steps.length];
+        for (int i = 0; i < steps.length; i++) {
+            NodeNameTest test = (NodeNameTest) steps[i].getNodeTest();
+            names[i] = test.getNodeName().getName();
+            Expression[] predicates = steps[i].getPredicates();
+            indexes[i] = predicates == null || predicates.length == 0
+                    ? NO_INDEX : getIndex(predicates[0]);
+        }
+    }
+
+    /**
+     * Learn whether the specified steps can be evaluated directly.
+     * @param steps to check
+     * @return <code>true</code> if every step is an unprefixed child
+     * name test with at most one constant positive integer predicate
+     */
+    public static boolean isBeanPath(Step[] steps) {
+        if (steps == null || steps.length == 0) {
+            return false;
+        }
+        for (int i = 0; i < steps.length; i++) {
+            Step step = steps[i];
+            if (step.getAxis() != Compiler.AXIS_CHILD
+                    || !(step.getNodeTest() instanceof NodeNameTest)) {
+                return false;
+            }
+            NodeNameTest test = (NodeNameTest) step.getNodeTest();
+            if (test.isWildcard() || test.getNodeName().getPrefix() != null) {
+                return false;
+            }
+            Expression[] predicates = step.getPredicates();
+            if (predicates != null && predicates.length != 0
+                    && (predicates.length > 1
+                            || getIndex(predicates[0]) == NO_INDEX)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluate this path by calling the bean property getters directly.
+     * @param pointer the context pointer, or the root pointer if this
+     * path is absolute
+     * @return the value of the path, or {@link #UNRESOLVED} if it has to
+     * be evaluated by the interpreter
+     */
+    public Object getDirectValue(NodePointer pointer) {
+        if (pointer == null || pointer.getClass() != BeanPointer.class
+                || pointer.getIndex() != NodePointer.WHOLE_COLLECTION) {
+            return UNRESOLVED;
+        }
+        Locale locale = pointer.getLocale();
+        Object current = pointer.getBaseValue();
+        for (int i = 0; i < names.length; i++) {
+            if (current == null) {
+                return UNRESOLVED;
+            }
+            Link link = links[i];
+            if (link == null || link.type != current.getClass()) {
+                link = linkGetter(current, names[i], locale);
+                links[i] = link;
+            }
+            if (!link.valid) {
+                return UNRESOLVED;
+            }
+            try {
+                current = link.getter.invoke(current, (Object[]) null);
+            }
+            catch (Throwable ex) {
+                // Let the interpreter report the failure
+                return UNRESOLVED;
+            }
+            int index = indexes[i];
+            if (index != NO_INDEX) {
+                if (ValueUtils.isCollection(current)) {
+                    if (index >= ValueUtils.getLength(current)) {
+                        return UNRESOLVED;
+                    }
+                    current = ValueUtils.getValue(current, index);
+                }
+                else if (index != 0) {
+                    return UNRESOLVED;
+                }
+                if (current == null) {
+                    return UNRESOLVED;
+                }
+            }
+        }
+        if (current == null) {
+            return null;
+        }
+        Link link = valueLink;
+        if (link == null || link.type != current.getClass()) {
+            link = linkValue(current, locale);
+            valueLink = link;
+        }
+        return link.valid ? current : UNRESOLVED;
+    }
+
+    /**
+     * Get the zero-based position selected by a predicate.
+     * @param predicate to check
+     * @return int index or NO_INDEX
+     */
+    private static int getIndex(Expression predicate) {
+        if (!(predicate instanceof Constant)) {
+            return NO_INDEX;
+        }
+        Object value = predicate.computeValue(null);
+        if (!(value instanceof Number)) {
+            return NO_INDEX;
+        }
+        double position = ((Number) value).doubleValue();
+        if (position < 1 || position > Integer.MAX_VALUE
+                || position != Math.floor(position)) {
+            return NO_INDEX;
+        }
+        return (int) position - 1;
+    }
+
+    /**
+     * Resolve the getter for a property of the receiver's class.
+     * @param receiver bean
+     * @param name property name
+     * @param locale Locale
+     * @return Link, not valid if the interpreter must be used for this class
+     */
+    private static Link linkGetter(Object receiver, String name,
+            Locale locale) {
+        Class type = receiver.getClass();
+        if (NodePointer.newNodePointer(null, receiver, locale).getClass()
+                != BeanPointer.class) {
+            return new Link(type, null, false);
+        }
+        JXPathBeanInfo beanInfo = JXPathIntrospector.getBeanInfo(type);
+        if (beanInfo.isDynamic() || beanInfo.isAtomic()) {
+            return new Link(type, null, false);
+        }
+        PropertyDescriptor pd = beanInfo.getPropertyDescriptor(name);
+        if (pd == null || pd instanceof IndexedPropertyDescriptor) {
+            return new Link(type, null, false);
+        }
+        Method getter = ValueUtils.getAccessibleMethod(pd.getReadMethod());
+        return new Link(type, getter, getter != null);
+    }
+
+    /**
+     * Check whether the interpreter would return values of the same class
+     * as <code>value</code> unchanged, rather than unwrapping or converting
+     * them.
+     * @param value resulting object
+     * @param locale Locale
+     * @return Link, valid if values can be returned as is
+     */
+    private static Link linkValue(Object value, Locale locale) {
+        Class type = value.getClass();
+        NodePointer pointer = NodePointer.newNodePointer(null, value, locale);
+        return new Link(type, null, pointer.getValue() == value);
+    }
+
+    /**
+     * An immutable inline cache entry: the receiver class it was resolved
+     * for and what was resolved. Replacing a whole entry is safe without
+     * synchronization because all its fields are final.
+     */
+    private static final class Link {
+        private final Class type;
+        private final Method getter;
+        private final boolean valid;
+
+        /**
+         * Create a new Link.
+         * @param type receiver class
+         * @param getter resolved property getter, if any
+         * @param valid <code>false</code> if the interpreter must be used
+         */
+        public Link(Class type, Method getter, boolean valid) {
+            this.type = type;
+            this.getter = getter;
+            this.valid = valid;
+        }
+    }
+}
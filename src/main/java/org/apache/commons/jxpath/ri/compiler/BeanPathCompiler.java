@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.compiler;
+
+/**
+ * A TreeCompiler that compiles simple property paths into
+ * {@link BeanLocationPath}s, which
+ * {@link org.apache.commons.jxpath.ri.JXPathContextReferenceImpl}
+ * evaluates over JavaBean graphs by calling the getters directly.
+ * All other expressions are compiled exactly like {@link TreeCompiler}
+ * does.
+ *
+ * @see org.apache.commons.jxpath.ri.JXPathContextReferenceImpl#setDefaultCompiler
+ * @version $Revision$ $Date$
+ */
+public class BeanPathCompiler extends TreeCompiler {
+
+    public Object locationPath(boolean absolute, Object[] steps) {
+        LocationPath path = (LocationPath) super.locationPath(absolute, steps);
+        if (BeanLocationPath.isBeanPath(path.getSteps())) {
+            return new BeanLocationPath(absolute, path.getSteps());
+        }
+        return path;
+    }
+}
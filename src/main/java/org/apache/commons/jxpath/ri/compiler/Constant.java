@@ -20,7 +20,7 @@ import org.apache.commons.jxpath.ri.EvalContext;
 import org.apache.commons.jxpath.ri.InfoSetUtil;
 
 /**
- * A compile tree element containing a constant number or string.
+ * A compile tree element containing a constant number, string or boolean.
  *
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
@@ -45,6 +45,14 @@ public class Constant extends Expression {
         this.value = string;
     }
 
+    /**
+     * Create a new Constant.
+     * @param bool constant
+     */
+    public Constant(Boolean bool) {
+        this.value = bool;
+    }
+
     public Object compute(EvalContext context) {
         return value;
     }
@@ -73,6 +81,9 @@ public class Constant extends Expression {
         if (value instanceof Number) {
             return InfoSetUtil.stringValue(value);
         }
+        if (value instanceof Boolean) {
+            return ((Boolean) value).booleanValue() ? "true()" : "false()";
+        }
         return "'" + value + "'";
     }
 }
@@ -318,20 +318,7 @@ public class CoreFunction extends Operation {
      */
     protected Object functionLast(EvalContext context) {
         assertArgCount(0);
-        // Move the position to the beginning and iterate through
-        // the context to count nodes.
-        int old = context.getCurrentPosition();
-        context.reset();
-        int count = 0;
-        while (context.nextNode()) {
-            count++;
-        }
-
-        // Restore the current position.
-        if (old != 0) {
-            context.setPosition(old);
-        }
-        return new Double(count);
+        return new Double(context.getContextSize());
     }
 
     /**
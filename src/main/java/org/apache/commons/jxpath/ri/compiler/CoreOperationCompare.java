@@ -16,6 +16,7 @@
  */
 package org.apache.commons.jxpath.ri.compiler;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -123,6 +124,17 @@ public abstract class CoreOperationCompare extends CoreOperation {
      * @return whether value was found
      */
     protected boolean contains(Iterator it, Object value) {
+        if (!invert) {
+            // Convert the single value once, not once per element
+            ValueIndex index = new ValueIndex();
+            index.add(valueOf(value));
+            while (it.hasNext()) {
+                if (index.matches(valueOf(it.next()))) {
+                    return true;
+                }
+            }
+            return false;
+        }
         while (it.hasNext()) {
             Object element = it.next();
             if (equal(element, value)) {
@@ -139,6 +151,20 @@ public abstract class CoreOperationCompare extends CoreOperation {
      * @return boolean
      */
     protected boolean findMatch(Iterator lit, Iterator rit) {
+        if (!invert) {
+            // Hash join: index the left values, then probe with the right
+            // ones, stopping at the first match.
+            ValueIndex index = new ValueIndex();
+            while (lit.hasNext()) {
+                index.add(valueOf(lit.next()));
+            }
+            while (rit.hasNext()) {
+                if (index.matches(valueOf(rit.next()))) {
+                    return true;
+                }
+            }
+            return false;
+        }
         HashSet left = new HashSet();
         while (lit.hasNext()) {
             left.add(lit.next());
@@ -151,6 +177,16 @@ public abstract class CoreOperationCompare extends CoreOperation {
         return false;
     }
 
+    /**
+     * Get the value compared for an element of a node set or a scalar.
+     * @param object Pointer or value
+     * @return Object
+     */
+    private static Object valueOf(Object object) {
+        return object instanceof Pointer ? ((Pointer) object).getValue()
+                : object;
+    }
+
     /**
      * Learn whether l equals r in XPath terms.
      * @param l left operand
@@ -192,4 +228,148 @@ public abstract class CoreOperationCompare extends CoreOperation {
         return result ^ invert;
     }
 
+    /**
+     * A set of values that can be searched in constant time for one equal
+     * to a given value according to {@link #equal(Object, Object)}: a
+     * Boolean on either side compares boolean values, otherwise a Number on
+     * either side compares numbers, otherwise a String on either side
+     * compares strings, and other objects are compared with equals().
+     * The conversions needed by each kind of probe are computed lazily,
+     * once per indexed value.
+     */
+    private static final class ValueIndex {
+        private final ArrayList values = new ArrayList();
+        private final boolean[] booleanOfBooleans = new boolean[2];
+        private boolean[] booleanOfAll;
+        private HashSet numberOfNumbers;
+        private HashSet numberOfOthers;
+        private HashSet stringOfStrings;
+        private HashSet stringOfOthers;
+        private ArrayList others;
+
+        /**
+         * Add a value.
+         * @param value to add, not a Pointer
+         */
+        public void add(Object value) {
+            values.add(value);
+            if (value instanceof Boolean) {
+                booleanOfBooleans[((Boolean) value).booleanValue() ? 1 : 0] =
+                    true;
+            }
+        }
+
+        /**
+         * Learn whether a value equal to the specified one was added.
+         * @param value to look for, not a Pointer
+         * @return boolean
+         */
+        public boolean matches(Object value) {
+            if (value instanceof Boolean) {
+                prepareBooleans();
+                return booleanOfAll[((Boolean) value).booleanValue() ? 1 : 0];
+            }
+            if (booleanOfBooleans[InfoSetUtil.booleanValue(value) ? 1 : 0]) {
+                return true;
+            }
+            prepareNumbers();
+            if (value instanceof Number) {
+                Double key = numberKey(value);
+                return key != null && (numberOfNumbers.contains(key)
+                        || numberOfOthers.contains(key));
+            }
+            if (!numberOfNumbers.isEmpty()) {
+                Double key = numberKey(value);
+                if (key != null && numberOfNumbers.contains(key)) {
+                    return true;
+                }
+            }
+            prepareStrings();
+            String string = InfoSetUtil.stringValue(value);
+            if (value instanceof String) {
+                return stringOfStrings.contains(string)
+                        || stringOfOthers.contains(string);
+            }
+            if (stringOfStrings.contains(string)) {
+                return true;
+            }
+            for (int i = 0; i < others.size(); i++) {
+                Object other = others.get(i);
+                if (other == value || other != null && other.equals(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Compute the boolean values of all values.
+         */
+        private void prepareBooleans() {
+            if (booleanOfAll == null) {
+                booleanOfAll = new boolean[2];
+                for (int i = 0; i < values.size(); i++) {
+                    booleanOfAll[InfoSetUtil.booleanValue(values.get(i)) ? 1
+                            : 0] = true;
+                }
+            }
+        }
+
+        /**
+         * Compute the numeric values of the values that are not Booleans.
+         */
+        private void prepareNumbers() {
+            if (numberOfNumbers == null) {
+                numberOfNumbers = new HashSet();
+                numberOfOthers = new HashSet();
+                for (int i = 0; i < values.size(); i++) {
+                    Object value = values.get(i);
+                    if (!(value instanceof Boolean)) {
+                        Double key = numberKey(value);
+                        if (key != null) {
+                            (value instanceof Number ? numberOfNumbers
+                                    : numberOfOthers).add(key);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Compute the string values of the values that are neither
+         * Booleans nor Numbers.
+         */
+        private void prepareStrings() {
+            if (stringOfStrings == null) {
+                stringOfStrings = new HashSet();
+                stringOfOthers = new HashSet();
+                others = new ArrayList();
+                for (int i = 0; i < values.size(); i++) {
+                    Object value = values.get(i);
+                    if (value instanceof String) {
+                        stringOfStrings.add(value);
+                    }
+                    else if (!(value instanceof Boolean)
+                            && !(value instanceof Number)) {
+                        stringOfOthers.add(InfoSetUtil.stringValue(value));
+                        others.add(value);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Get the hash key for the numeric value of an object.
+         * @param value to convert
+         * @return Double, <code>null</code> for NaN, which equals nothing
+         */
+        private static Double numberKey(Object value) {
+            double d = InfoSetUtil.doubleValue(value);
+            if (Double.isNaN(d)) {
+                return null;
+            }
+            // -0.0 == 0.0, but not according to Double.equals()
+            return new Double(d == 0 ? 0.0 : d);
+        }
+    }
 }
@@ -0,0 +1,351 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.compiler;
+
+import java.util.ArrayList;
+
+import org.apache.commons.jxpath.ri.Compiler;
+import org.apache.commons.jxpath.ri.InfoSetUtil;
+
+/**
+ * Simplifies a freshly compiled expression tree before it is cached:
+ * <ul>
+ * <li>subtrees made only of constants, core operations and core
+ * functions that do not look at the context, such as <code>1 + 1</code>,
+ * <code>concat('a', 'b')</code> or <code>not(true())</code>, are
+ * replaced with the {@link Constant} they evaluate to;</li>
+ * <li>constant operands are removed from <code>and</code> and
+ * <code>or</code>, and an operation that is decided by a constant
+ * operand is replaced with that constant.</li>
+ * </ul>
+ * Predicates are simplified as well, so <code>foo[1 + 1]</code> becomes
+ * the plain index predicate <code>foo[2]</code>. Subexpressions of
+ * predicates that are still context independent afterwards, like
+ * <code>/config/threshold * $rate</code>, are wrapped in an
+ * {@link InvariantExpression} so they are computed once per evaluation
+ * rather than for every candidate node.
+ * <p>
+ * Variables, extension functions and location paths are never folded,
+ * as their values may change from one evaluation to the next.
+ * The tree is modified in place.
+ *
+ * @version $Revision$ $Date$
+ */
+public final class ExpressionOptimizer {
+
+    /**
+     * This class should not be instantiated.
+     */
+    private ExpressionOptimizer() {
+    }
+
+    /**
+     * Optimize an expression tree.
+     * @param expression to optimize
+     * @return the optimized expression, possibly <code>expression</code>
+     * itself
+     */
+    public static Expression optimize(Expression expression) {
+        if (expression instanceof Operation) {
+            return optimizeOperation((Operation) expression);
+        }
+        if (expression instanceof ExpressionPath) {
+            ExpressionPath path = (ExpressionPath) expression;
+            path.setExpression(optimize(path.getExpression()));
+            optimizePredicates(path.getPredicates());
+        }
+        if (expression instanceof Path) {
+            Step[] steps = ((Path) expression).getSteps();
+            if (steps != null) {
+                for (int i = 0; i < steps.length; i++) {
+                    optimizePredicates(steps[i].getPredicates());
+                }
+            }
+        }
+        return expression;
+    }
+
+    /**
+     * Optimize each element of an array in place.
+     * @param expressions Expression[], may be <code>null</code>
+     */
+    private static void optimizeAll(Expression[] expressions) {
+        if (expressions != null) {
+            for (int i = 0; i < expressions.length; i++) {
+                expressions[i] = optimize(expressions[i]);
+            }
+        }
+    }
+
+    /**
+     * Optimize predicates in place and hoist their context independent
+     * subexpressions.
+     * @param predicates Expression[], may be <code>null</code>
+     */
+    private static void optimizePredicates(Expression[] predicates) {
+        if (predicates != null) {
+            for (int i = 0; i < predicates.length; i++) {
+                predicates[i] = hoist(optimize(predicates[i]));
+            }
+        }
+    }
+
+    /**
+     * Wrap the largest context independent subexpressions of a predicate
+     * in InvariantExpressions.
+     * @param expression to process
+     * @return the wrapped expression or <code>expression</code> itself
+     */
+    private static Expression hoist(Expression expression) {
+        if (expression instanceof Constant
+                || expression instanceof VariableReference
+                || expression instanceof InvariantExpression) {
+            return expression;
+        }
+        if (!expression.isContextDependent()) {
+            if (!usesDocumentFunction(expression)) {
+                return new InvariantExpression(expression);
+            }
+        }
+        else if (expression instanceof Operation) {
+            Expression[] args = ((Operation) expression).args;
+            if (args != null) {
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = hoist(args[i]);
+                }
+            }
+        }
+        return expression;
+    }
+
+    /**
+     * Learn whether an expression calls id() or key(). Their result
+     * depends on the document of the context node even though they do
+     * not declare themselves context dependent.
+     * @param expression to check
+     * @return boolean
+     */
+    private static boolean usesDocumentFunction(Expression expression) {
+        if (expression instanceof CoreFunction) {
+            int code = ((CoreFunction) expression).getFunctionCode();
+            if (code == Compiler.FUNCTION_ID || code == Compiler.FUNCTION_KEY) {
+                return true;
+            }
+        }
+        if (expression instanceof Operation) {
+            Expression[] args = ((Operation) expression).args;
+            if (args != null) {
+                for (int i = 0; i < args.length; i++) {
+                    if (usesDocumentFunction(args[i])) {
+                        return true;
+                    }
+                }
+            }
+        }
+        if (expression instanceof ExpressionPath) {
+            ExpressionPath path = (ExpressionPath) expression;
+            if (usesDocumentFunction(path.getExpression())
+                    || usesDocumentFunction(path.getPredicates())) {
+                return true;
+            }
+        }
+        if (expression instanceof Path) {
+            Step[] steps = ((Path) expression).getSteps();
+            if (steps != null) {
+                for (int i = 0; i < steps.length; i++) {
+                    if (usesDocumentFunction(steps[i].getPredicates())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Learn whether any of the expressions calls id() or key().
+     * @param expressions Expression[], may be <code>null</code>
+     * @return boolean
+     */
+    private static boolean usesDocumentFunction(Expression[] expressions) {
+        if (expressions != null) {
+            for (int i = 0; i < expressions.length; i++) {
+                if (usesDocumentFunction(expressions[i])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Optimize an operation after optimizing its arguments.
+     * @param operation to optimize
+     * @return Expression
+     */
+    private static Expression optimizeOperation(Operation operation) {
+        optimizeAll(operation.args);
+        if (isFoldable(operation)) {
+            Constant constant = fold(operation);
+            if (constant != null) {
+                return constant;
+            }
+        }
+        if (operation instanceof CoreOperationAnd) {
+            return simplifyBoolean(operation, false);
+        }
+        if (operation instanceof CoreOperationOr) {
+            return simplifyBoolean(operation, true);
+        }
+        return operation;
+    }
+
+    /**
+     * Learn whether an operation with optimized arguments can be
+     * replaced with its value.
+     * @param operation to check
+     * @return boolean
+     */
+    private static boolean isFoldable(Operation operation) {
+        if (operation instanceof CoreFunction) {
+            if (!isPureFunction(((CoreFunction) operation).getFunctionCode())) {
+                return false;
+            }
+        }
+        else if (!(operation instanceof CoreOperation)
+                || operation instanceof CoreOperationUnion) {
+            return false;
+        }
+        Expression[] args = operation.args;
+        if (args != null) {
+            for (int i = 0; i < args.length; i++) {
+                if (!(args[i] instanceof Constant)) {
+                    return false;
+                }
+            }
+        }
+        return !operation.isContextDependent();
+    }
+
+    /**
+     * Learn whether a core function only depends on its arguments.
+     * Zero-argument forms that read the context node, like
+     * <code>string()</code>, are excluded by the context dependency check.
+     * @param functionCode to check
+     * @return boolean
+     */
+    private static boolean isPureFunction(int functionCode) {
+        switch (functionCode) {
+            case Compiler.FUNCTION_STRING :
+            case Compiler.FUNCTION_CONCAT :
+            case Compiler.FUNCTION_STARTS_WITH :
+            case Compiler.FUNCTION_ENDS_WITH :
+            case Compiler.FUNCTION_CONTAINS :
+            case Compiler.FUNCTION_SUBSTRING_BEFORE :
+            case Compiler.FUNCTION_SUBSTRING_AFTER :
+            case Compiler.FUNCTION_SUBSTRING :
+            case Compiler.FUNCTION_STRING_LENGTH :
+            case Compiler.FUNCTION_NORMALIZE_SPACE :
+            case Compiler.FUNCTION_TRANSLATE :
+            case Compiler.FUNCTION_BOOLEAN :
+            case Compiler.FUNCTION_NOT :
+            case Compiler.FUNCTION_TRUE :
+            case Compiler.FUNCTION_FALSE :
+            case Compiler.FUNCTION_NUMBER :
+            case Compiler.FUNCTION_FLOOR :
+            case Compiler.FUNCTION_CEILING :
+            case Compiler.FUNCTION_ROUND :
+                return true;
+            default :
+                return false;
+        }
+    }
+
+    /**
+     * Evaluate a context independent operation.
+     * @param operation to evaluate
+     * @return Constant, <code>null</code> if the value cannot be
+     * represented as a constant or the evaluation failed
+     */
+    private static Constant fold(Operation operation) {
+        Object value;
+        try {
+            value = operation.computeValue(null);
+        }
+        catch (RuntimeException ex) {
+            // Report the error when the expression is evaluated
+            return null;
+        }
+        if (value instanceof Number) {
+            return new Constant((Number) value);
+        }
+        if (value instanceof String) {
+            return new Constant((String) value);
+        }
+        if (value instanceof Boolean) {
+            return new Constant((Boolean) value);
+        }
+        return null;
+    }
+
+    /**
+     * Remove constant operands from an "and" or "or" operation. Operands
+     * are evaluated left to right until one of them equals
+     * <code>decisive</code>, so a constant equal to <code>decisive</code>
+     * makes all following operands irrelevant, and any other constant
+     * can be dropped.
+     * @param operation CoreOperationAnd or CoreOperationOr
+     * @param decisive boolean value that decides the operation
+     * @return Expression
+     */
+    private static Expression simplifyBoolean(Operation operation,
+            boolean decisive) {
+        Expression[] args = operation.args;
+        ArrayList remaining = new ArrayList(args.length);
+        boolean decided = false;
+        for (int i = 0; i < args.length && !decided; i++) {
+            if (args[i] instanceof Constant) {
+                decided = InfoSetUtil.booleanValue(
+                        args[i].computeValue(null)) == decisive;
+                if (decided) {
+                    remaining.add(args[i]);
+                }
+            }
+            else {
+                remaining.add(args[i]);
+            }
+        }
+        if (remaining.size() == args.length) {
+            return operation;
+        }
+        if (remaining.isEmpty()) {
+            return new Constant(Boolean.valueOf(!decisive));
+        }
+        if (remaining.size() == 1) {
+            Expression arg = (Expression) remaining.get(0);
+            if (arg instanceof Constant) {
+                return new Constant(Boolean.valueOf(decisive));
+            }
+            return new CoreFunction(Compiler.FUNCTION_BOOLEAN,
+                    new Expression[] {arg});
+        }
+        Expression[] newArgs = (Expression[]) remaining
+                .toArray(new Expression[remaining.size()]);
+        return decisive ? (Expression) new CoreOperationOr(newArgs)
+                : new CoreOperationAnd(newArgs);
+    }
+}
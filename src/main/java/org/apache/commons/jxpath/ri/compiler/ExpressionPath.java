@@ -61,6 +61,15 @@ public class ExpressionPath extends Path {
         return expression;
     }
 
+    /**
+     * Replace the expression, used by the {@link ExpressionOptimizer}
+     * before the path is evaluated.
+     * @param expression Expression
+     */
+    void setExpression(Expression expression) {
+        this.expression = expression;
+    }
+
     /**
      * Predicates are the expressions in brackets that may follow
      * the root expression of the path.
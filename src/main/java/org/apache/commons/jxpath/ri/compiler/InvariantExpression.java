@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.compiler;
+
+import java.util.Iterator;
+
+import org.apache.commons.jxpath.BasicNodeSet;
+import org.apache.commons.jxpath.NodeSet;
+import org.apache.commons.jxpath.Pointer;
+import org.apache.commons.jxpath.ri.EvalContext;
+import org.apache.commons.jxpath.ri.axes.NodeSetContext;
+import org.apache.commons.jxpath.ri.axes.RootContext;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+
+/**
+ * Wraps a context independent subexpression of a predicate, such as
+ * <code>/config/threshold * $rate</code> in
+ * <code>orders[total &gt; /config/threshold * $rate]</code>, so that it is
+ * computed once per evaluation instead of once per candidate node.
+ * The value is kept by the {@link RootContext} of the evaluation, which
+ * makes the compiled expression itself safe to share between threads.
+ * Node sets are collected into a {@link NodeSet} and replayed.
+ *
+ * @version $Revision$ $Date$
+ */
+public class InvariantExpression extends Expression {
+
+    private final Expression expression;
+    private final Object computeKey = new Object();
+
+    /**
+     * Create a new InvariantExpression.
+     * @param expression context independent Expression
+     */
+    public InvariantExpression(Expression expression) {
+        this.expression = expression;
+    }
+
+    /**
+     * Get the wrapped expression.
+     * @return Expression
+     */
+    public Expression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Returns false
+     * @return false
+     */
+    public boolean computeContextDependent() {
+        return false;
+    }
+
+    public Object compute(EvalContext context) {
+        return computeOnce(context, computeKey, false);
+    }
+
+    public Object computeValue(EvalContext context) {
+        return computeOnce(context, this, true);
+    }
+
+    public String toString() {
+        return expression.toString();
+    }
+
+    /**
+     * Compute the wrapped expression unless it was already computed
+     * during the current evaluation.
+     * @param context evaluation context
+     * @param key identifies the kind of computation
+     * @param value whether to call computeValue rather than compute
+     * @return Object
+     */
+    private Object computeOnce(EvalContext context, Object key,
+            boolean value) {
+        RootContext root = context.getRootContext();
+        Object result = root.getInvariantValue(key);
+        if (result == RootContext.UNKNOWN_VALUE) {
+            result = value ? expression.computeValue(context)
+                    : expression.compute(context);
+            if (result instanceof EvalContext) {
+                result = new CollectedNodes((EvalContext) result);
+            }
+            else if (result instanceof Iterator) {
+                return result;
+            }
+            root.setInvariantValue(key, result);
+        }
+        if (result instanceof CollectedNodes) {
+            return new NodeSetContext(root, ((CollectedNodes) result).nodeSet);
+        }
+        return result;
+    }
+
+    /**
+     * The nodes of a context, collected in iteration order.
+     */
+    private static final class CollectedNodes {
+        private final BasicNodeSet nodeSet = new BasicNodeSet();
+
+        /**
+         * Create a new CollectedNodes.
+         * @param context to collect
+         */
+        public CollectedNodes(EvalContext context) {
+            while (context.hasNext()) {
+                nodeSet.add((Pointer) ((NodePointer) context.next()).clone());
+            }
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.apache.commons.jxpath.ri.axes.SelfContext;
 import org.apache.commons.jxpath.ri.axes.SimplePathInterpreter;
 import org.apache.commons.jxpath.ri.axes.UnionContext;
 import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.apache.commons.jxpath.ri.model.beans.PropertyOwnerPointer;
 
 /**
  * @author Dmitri Plotnikov
@@ -40,9 +41,23 @@ import org.apache.commons.jxpath.ri.model.NodePointer;
  */
 public abstract class Path extends Expression {
 
+    /** The nodes produced by the steps so far may be in any order. */
+    private static final int UNORDERED = 0;
+
+    /** The nodes are in document order and without duplicates. */
+    private static final int ORDERED = 1;
+
+    /**
+     * The nodes are in document order and without duplicates, and none of
+     * them is an ancestor of another.
+     */
+    private static final int ORDERED_UNRELATED = 2;
+
     private Step[] steps;
     private boolean basicKnown = false;
     private boolean basic;
+    private int[] stepOrders;
+    private boolean[] descendantSteps;
 
     /**
      * Create a new Path.
@@ -235,7 +250,7 @@ public abstract class Path extends Expression {
      * @return EvaluationContext
      */
     protected EvalContext evalSteps(EvalContext context) {
-        return buildContextChain(context, steps.length, false);
+        return buildContextChain(context, steps.length, false, true);
     }
 
     /**
@@ -249,18 +264,56 @@ public abstract class Path extends Expression {
             EvalContext context,
             int stepCount,
             boolean createInitialContext) {
+        return buildContextChain(context, stepCount, createInitialContext,
+                false);
+    }
+
+    /**
+     * Build a context from a chain of contexts.
+     * @param context evaluation context
+     * @param stepCount number of steps to descend
+     * @param createInitialContext whether to create the initial context
+     * @param allNodes whether all nodes will be iterated. Only then
+     * "//foo" may be evaluated as "descendant::foo": a ChildContext asked
+     * for a single node returns a whole collection rather than its first
+     * element. Bean graphs always keep the original chain, which treats
+     * null and collection valued properties differently from a
+     * DescendantContext.
+     * @return created context
+     */
+    private EvalContext buildContextChain(
+            EvalContext context,
+            int stepCount,
+            boolean createInitialContext,
+            boolean allNodes) {
         if (createInitialContext) {
             context = new InitialContext(context);
         }
         if (steps.length == 0) {
             return context;
         }
+        analyzeSteps();
+        NodePointer start = getSingleNode(context);
+        boolean ordered = start != null;
+        boolean shortcut = allNodes && ordered
+                && !(start.getValuePointer() instanceof PropertyOwnerPointer);
         for (int i = 0; i < stepCount; i++) {
+            int axis = steps[i].getAxis();
+            if (descendantSteps[i] && i + 1 < stepCount) {
+                if (shortcut) {
+                    // "//foo" is evaluated as "descendant::foo", which
+                    // produces the nodes in document order
+                    i++;
+                    axis = Compiler.AXIS_DESCENDANT;
+                }
+                else {
+                    // The analysis of the following steps assumed they
+                    // would be evaluated together
+                    ordered = false;
+                }
+            }
             context =
-                createContextForStep(
-                    context,
-                    steps[i].getAxis(),
-                    steps[i].getNodeTest());
+                createContextForStep(context, axis, steps[i].getNodeTest());
             Expression[] predicates = steps[i].getPredicates();
             if (predicates != null) {
                 for (int j = 0; j < predicates.length; j++) {
@@ -270,10 +323,224 @@ public abstract class Path extends Expression {
                     context = new PredicateContext(context, predicates[j]);
                 }
             }
+            if (ordered && stepOrders[i] != UNORDERED) {
+                context.setInDocumentOrder(true);
+            }
         }
         return context;
     }
 
+    /**
+     * Get the node the path is evaluated from, if there is exactly one.
+     * The elements of a collection, like a variable holding the result of
+     * an earlier selectNodes(), may be nested or out of document order,
+     * so their nodes still have to be de-duplicated and sorted.
+     * @param context the context the steps are evaluated from
+     * @return NodePointer, <code>null</code> unless <code>context</code>
+     * is an InitialContext for a single node that is not a collection
+     */
+    private static NodePointer getSingleNode(EvalContext context) {
+        if (!(context instanceof InitialContext)) {
+            return null;
+        }
+        NodePointer pointer = context.getCurrentNodePointer();
+        if (pointer == null || (pointer.isCollection()
+                && pointer.getIndex() == NodePointer.WHOLE_COLLECTION)) {
+            return null;
+        }
+        return pointer;
+    }
+
+    /**
+     * Work out, once, which steps produce their nodes in document order
+     * when the path is evaluated from a single node, like a location path
+     * is. Child and attribute steps with a name test keep the nodes in
+     * document order as long as none of the context nodes is an ancestor
+     * of another; descendant steps need the same, but their own nodes are
+     * nested; self steps and predicates only filter nodes. Anything else
+     * may produce nodes out of order or more than once, so they have to
+     * be sorted as before.
+     */
+    private synchronized void analyzeSteps() {
+        if (stepOrders != null) {
+            return;
+        }
+        int[] orders = new int[steps.length];
+        boolean[] descendant = new boolean[steps.length];
+        int order = ORDERED_UNRELATED;
+        for (int i = 0; i < steps.length; i++) {
+            Step step = steps[i];
+            switch (step.getAxis()) {
+            case Compiler.AXIS_SELF :
+                break;
+            case Compiler.AXIS_CHILD :
+            case Compiler.AXIS_ATTRIBUTE :
+                if (order != ORDERED_UNRELATED || !isNameTest(step)) {
+                    order = UNORDERED;
+                }
+                break;
+            case Compiler.AXIS_DESCENDANT :
+            case Compiler.AXIS_DESCENDANT_OR_SELF :
+                order = order == ORDERED_UNRELATED ? ORDERED : UNORDERED;
+                break;
+            default :
+                order = UNORDERED;
+            }
+            if (order != UNORDERED
+                    && hasNameAttributeTest(step.getPredicates())) {
+                // map[@name = 'key'] selects a property of each node,
+                // just like a child step
+                order = order == ORDERED_UNRELATED ? ORDERED_UNRELATED
+                        : UNORDERED;
+            }
+            orders[i] = order;
+            if (i + 1 < steps.length && isDescendantShortcut(step, steps[i + 1])) {
+                descendant[i] = true;
+                orders[i + 1] = order;
+                i++;
+            }
+        }
+        descendantSteps = descendant;
+        stepOrders = orders;
+    }
+
+    /**
+     * Learn whether two steps like "descendant-or-self::node()/child::foo",
+     * which is what "//foo" stands for, select exactly the same nodes as
+     * "descendant::foo". That is the case unless the second step has a
+     * predicate that looks at the position of a node among its siblings.
+     * @param step first step
+     * @param next following step
+     * @return boolean
+     */
+    private static boolean isDescendantShortcut(Step step, Step next) {
+        if (step.getAxis() != Compiler.AXIS_DESCENDANT_OR_SELF
+                || !(step.getNodeTest() instanceof NodeTypeTest)
+                || ((NodeTypeTest) step.getNodeTest()).getNodeType()
+                        != Compiler.NODE_TYPE_NODE
+                || (step.getPredicates() != null
+                        && step.getPredicates().length != 0)
+                || next.getAxis() != Compiler.AXIS_CHILD
+                || !isNameTest(next)) {
+            return false;
+        }
+        Expression[] predicates = next.getPredicates();
+        if (predicates != null) {
+            for (int i = 0; i < predicates.length; i++) {
+                if (!isFilterPredicate(predicates[i])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Learn whether a step tests node names without wildcards.
+     * @param step to check
+     * @return boolean
+     */
+    private static boolean isNameTest(Step step) {
+        return step.getNodeTest() instanceof NodeNameTest
+                && !((NodeNameTest) step.getNodeTest()).isWildcard();
+    }
+
+    /**
+     * Learn whether any of the predicates is a NameAttributeTest.
+     * @param predicates to check, may be <code>null</code>
+     * @return boolean
+     */
+    private static boolean hasNameAttributeTest(Expression[] predicates) {
+        if (predicates != null) {
+            for (int i = 0; i < predicates.length; i++) {
+                if (predicates[i] instanceof NameAttributeTest) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Learn whether a predicate always evaluates to a boolean or a node
+     * set and never looks at the position of the context node, so it
+     * keeps or drops each node on its own.
+     * @param predicate to check
+     * @return boolean
+     */
+    private static boolean isFilterPredicate(Expression predicate) {
+        if (predicate instanceof InvariantExpression) {
+            predicate = ((InvariantExpression) predicate).getExpression();
+        }
+        if (predicate instanceof Constant) {
+            return predicate.computeValue(null) instanceof Boolean;
+        }
+        if (predicate instanceof NameAttributeTest) {
+            return false;
+        }
+        boolean filter = predicate instanceof LocationPath
+                || predicate instanceof CoreOperationCompare
+                || predicate instanceof CoreOperationRelationalExpression
+                || predicate instanceof CoreOperationAnd
+                || predicate instanceof CoreOperationOr;
+        if (predicate instanceof CoreFunction) {
+            switch (((CoreFunction) predicate).getFunctionCode()) {
+            case Compiler.FUNCTION_BOOLEAN :
+            case Compiler.FUNCTION_NOT :
+            case Compiler.FUNCTION_TRUE :
+            case Compiler.FUNCTION_FALSE :
+            case Compiler.FUNCTION_LANG :
+            case Compiler.FUNCTION_STARTS_WITH :
+            case Compiler.FUNCTION_ENDS_WITH :
+            case Compiler.FUNCTION_CONTAINS :
+                filter = true;
+                break;
+            default :
+                break;
+            }
+        }
+        return filter && !usesPosition(predicate);
+    }
+
+    /**
+     * Learn whether an expression may look at the position of the context
+     * node: position(), last() and extension functions, which get the
+     * whole context. Predicates of nested paths have contexts of their
+     * own and are not considered.
+     * @param expression to check
+     * @return boolean
+     */
+    private static boolean usesPosition(Expression expression) {
+        if (expression instanceof ExtensionFunction) {
+            return true;
+        }
+        if (expression instanceof CoreFunction) {
+            int code = ((CoreFunction) expression).getFunctionCode();
+            if (code == Compiler.FUNCTION_POSITION
+                    || code == Compiler.FUNCTION_LAST) {
+                return true;
+            }
+        }
+        if (expression instanceof Operation) {
+            Expression[] args = ((Operation) expression).args;
+            if (args != null) {
+                for (int i = 0; i < args.length; i++) {
+                    if (usesPosition(args[i])) {
+                        return true;
+                    }
+                }
+            }
+        }
+        if (expression instanceof ExpressionPath) {
+            return usesPosition(((ExpressionPath) expression).getExpression());
+        }
+        if (expression instanceof InvariantExpression) {
+            return usesPosition(
+                    ((InvariantExpression) expression).getExpression());
+        }
+        return false;
+    }
+
     /**
      * Different axes are serviced by different contexts. This method
      * allocates the right context for the supplied step.
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.jxpath.IdentityManager;
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.Pointer;
+import org.apache.commons.jxpath.ri.model.beans.NullPointer;
+
+/**
+ * An IdentityManager that finds XML elements by the value of attributes
+ * named by the user, such as <code>id</code> or <code>xml:id</code>, for
+ * documents that do not declare their ID attributes in a DTD or schema.
+ * The first lookup in a document indexes all its elements in one pass;
+ * the index is kept per document, holds the document and its elements
+ * weakly, and is rebuilt after JXPath changes a document of the model.
+ * IDs added or changed by other means are not seen until then.
+ * <p>
+ * Subclasses supply the model specific parts; install
+ * {@link org.apache.commons.jxpath.ri.model.dom.DOMIdentityManager} or
+ * {@link org.apache.commons.jxpath.ri.model.jdom.JDOMIdentityManager}
+ * with {@link JXPathContext#setIdentityManager(IdentityManager)}.
+ *
+ * @version $Revision$ $Date$
+ */
+public abstract class AttributeIdentityManager implements IdentityManager {
+    private final String[] attributeNames;
+    /** document -> Index */
+    private final Map indexes = new WeakHashMap();
+
+    /**
+     * Create a new AttributeIdentityManager.
+     * @param attributeNames qualified names of the ID attributes, checked
+     * in this order on each element
+     */
+    protected AttributeIdentityManager(String[] attributeNames) {
+        if (attributeNames == null || attributeNames.length == 0) {
+            throw new IllegalArgumentException("No ID attribute names");
+        }
+        this.attributeNames = (String[]) attributeNames.clone();
+    }
+
+    /**
+     * Get the qualified names of the ID attributes.
+     * @return String[]
+     */
+    public String[] getAttributeNames() {
+        return (String[]) attributeNames.clone();
+    }
+
+    public Pointer getPointerByID(JXPathContext context, String id) {
+        return getPointerByID(
+                ((NodePointer) context.getContextPointer()).getValuePointer(),
+                id);
+    }
+
+    /**
+     * Find an element by ID in the document of the supplied node. The
+     * pointers of the model call this with themselves, so the document
+     * searched does not depend on the context pointer.
+     * @param pointer to a node of the document to search
+     * @param id to find
+     * @return Pointer, a NullPointer if there is no such element
+     */
+    public Pointer getPointerByID(NodePointer pointer, String id) {
+        Object document = getDocument(pointer.getNode());
+        Object node = null;
+        if (document != null) {
+            WeakReference ref;
+            synchronized (indexes) {
+                Index index = (Index) indexes.get(document);
+                int count = getModificationCount();
+                if (index == null || index.modificationCount != count) {
+                    index = new Index(count);
+                    collectIDs(document, attributeNames, index.nodes);
+                    indexes.put(document, index);
+                }
+                ref = (WeakReference) index.nodes.get(id);
+            }
+            node = ref == null ? null : ref.get();
+        }
+        return node == null ? (Pointer) new NullPointer(pointer.getLocale(), id)
+                : createPointer(node, pointer, id);
+    }
+
+    /**
+     * Get the document to index for a node of the model.
+     * @param node to check
+     * @return the document, or null if the node does not belong to this
+     * manager's model
+     */
+    protected abstract Object getDocument(Object node);
+
+    /**
+     * Get the number of changes made by JXPath to documents of the model,
+     * which invalidate the indexes.
+     * @return int
+     */
+    protected abstract int getModificationCount();
+
+    /**
+     * Walk a document and record each element that has one of the
+     * supplied attributes under the value of the first one it has, the
+     * first such element winning when values repeat.
+     * @param document to walk
+     * @param attributeNames qualified names of the ID attributes
+     * @param nodes to fill with id -> WeakReference to the element, see
+     * {@link #addID(Map, String, Object)}
+     */
+    protected abstract void collectIDs(Object document, String[] attributeNames,
+            Map nodes);
+
+    /**
+     * Create a pointer to an element found by ID.
+     * @param node the element
+     * @param pointer the context pointer of the lookup
+     * @param id the ID
+     * @return NodePointer
+     */
+    protected abstract NodePointer createPointer(Object node,
+            NodePointer pointer, String id);
+
+    /**
+     * Record an element under an ID unless an earlier element has it.
+     * @param nodes id -> WeakReference to the element
+     * @param id the ID
+     * @param node the element
+     */
+    protected static void addID(Map nodes, String id, Object node) {
+        if (!nodes.containsKey(id)) {
+            nodes.put(id, new WeakReference(node));
+        }
+    }
+
+    /**
+     * The IDs of one document.
+     */
+    private static final class Index {
+        private final int modificationCount;
+        private final Map nodes = new HashMap();
+
+        /**
+         * Create a new Index.
+         * @param modificationCount when built
+         */
+        private Index(int modificationCount) {
+            this.modificationCount = modificationCount;
+        }
+    }
+}
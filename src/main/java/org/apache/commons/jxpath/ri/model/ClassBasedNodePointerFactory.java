@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model;
+
+/**
+ * A NodePointerFactory that can tell whether it creates pointers for an
+ * object from the class of the object alone. NodePointer remembers, for
+ * each class, which of these factories decline its objects and which one
+ * accepts them, and then asks only that one. Factories that do not
+ * implement this interface are asked about every object.
+ *
+ * @version $Revision$ $Date$
+ */
+public interface ClassBasedNodePointerFactory extends NodePointerFactory {
+
+    /**
+     * Learn whether this factory makes the same decision for all objects
+     * of the supplied class. Return <code>false</code> to be asked about
+     * every object of the class.
+     * @param type Class of the objects
+     * @return boolean
+     */
+    boolean isClassBased(Class type);
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model;
+
+/**
+ * A NodeIterator that can show its current node through a single pointer
+ * that it reuses for every position. A caller that only inspects the
+ * current node, and moves on, can use that pointer instead of allocating
+ * a new one with {@link #getNodePointer()} for each node.
+ *
+ * @version $Revision$ $Date$
+ */
+public interface CursorNodeIterator extends NodeIterator {
+
+    /**
+     * Get a pointer to the node at the current position. The iterator
+     * changes the pointer when it moves, so it must not be kept, handed
+     * out or used as the parent of another pointer; use
+     * {@link #getNodePointer()} for that.
+     * @return NodePointer
+     */
+    NodePointer getCursorPointer();
+}
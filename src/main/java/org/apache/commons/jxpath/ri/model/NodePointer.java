@@ -27,7 +27,6 @@ import org.apache.commons.jxpath.JXPathNotFoundException;
 import org.apache.commons.jxpath.NodeSet;
 import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.ri.Compiler;
-import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
 import org.apache.commons.jxpath.ri.NamespaceResolver;
 import org.apache.commons.jxpath.ri.QName;
 import org.apache.commons.jxpath.ri.compiler.NodeNameTest;
@@ -66,6 +65,8 @@ public abstract class NodePointer implements Pointer {
     /**
      * Allocates an entirely new NodePointer by iterating through all installed
      * NodePointerFactories until it finds one that can create a pointer.
+     * Factories known to decline objects of the bean's class are skipped,
+     * see {@link ClassBasedNodePointerFactory}.
      * @param name QName
      * @param bean Object
      * @param locale Locale
@@ -75,23 +76,11 @@ public abstract class NodePointer implements Pointer {
         QName name,
         Object bean,
         Locale locale) {
-        NodePointer pointer;
         if (bean == null) {
-            pointer = new NullPointer(name, locale);
-            return pointer;
+            return new NullPointer(name, locale);
         }
-
-        NodePointerFactory[] factories =
-            JXPathContextReferenceImpl.getNodePointerFactories();
-        for (int i = 0; i < factories.length; i++) {
-            pointer = factories[i].createNodePointer(name, bean, locale);
-            if (pointer != null) {
-                return pointer;
-            }
-        }
-        throw new JXPathException(
-            "Could not allocate a NodePointer for object of "
-                + bean.getClass());
+        return NodePointerFactoryCache.createNodePointer(
+            null, name, bean, locale, true);
     }
 
     /**
@@ -106,18 +95,8 @@ public abstract class NodePointer implements Pointer {
         NodePointer parent,
         QName name,
         Object bean) {
-        NodePointerFactory[] factories =
-            JXPathContextReferenceImpl.getNodePointerFactories();
-        for (int i = 0; i < factories.length; i++) {
-            NodePointer pointer =
-                factories[i].createNodePointer(parent, name, bean);
-            if (pointer != null) {
-                return pointer;
-            }
-        }
-        throw new JXPathException(
-            "Could not allocate a NodePointer for object of "
-                + bean.getClass());
+        return NodePointerFactoryCache.createNodePointer(
+            parent, name, bean, null, false);
     }
 
     /** Parent pointer */
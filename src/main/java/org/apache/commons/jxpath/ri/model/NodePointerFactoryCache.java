@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.jxpath.JXPathException;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.apache.commons.jxpath.ri.QName;
+
+/**
+ * Remembers, for each class of object, which NodePointerFactories have
+ * to be asked for a pointer: those that are not class based, followed by
+ * the first factory that accepted an object of the class. A cache is
+ * only valid for one array of registered factories; registering a new
+ * factory replaces the array and thus the cache.
+ *
+ * @version $Revision$ $Date$
+ */
+final class NodePointerFactoryCache {
+    private static volatile NodePointerFactoryCache cache;
+
+    private final NodePointerFactory[] factories;
+    private final ConcurrentHashMap byClass = new ConcurrentHashMap();
+
+    /**
+     * Create a new NodePointerFactoryCache.
+     * @param factories all registered factories, in order
+     */
+    private NodePointerFactoryCache(NodePointerFactory[] factories) {
+        this.factories = factories;
+    }
+
+    /**
+     * Allocates a NodePointer with the first factory that can create one.
+     * @param parent pointer, unless root
+     * @param name QName
+     * @param bean Object
+     * @param locale Locale, if root
+     * @param root whether to create a root pointer
+     * @return NodePointer
+     */
+    static NodePointer createNodePointer(NodePointer parent, QName name,
+            Object bean, Locale locale, boolean root) {
+        NodePointerFactory[] factories =
+            JXPathContextReferenceImpl.getNodePointerFactories();
+        if (bean == null) {
+            return createNodePointer(
+                factories, parent, name, bean, locale, root);
+        }
+        NodePointerFactoryCache current = cache;
+        if (current == null || current.factories != factories) {
+            current = new NodePointerFactoryCache(factories);
+            cache = current;
+        }
+        return current.createCachedNodePointer(parent, name, bean, locale,
+                root);
+    }
+
+    /**
+     * Allocates a NodePointer for a non-null object, asking only the
+     * factories remembered for its class.
+     * @param parent pointer, unless root
+     * @param name QName
+     * @param bean Object
+     * @param locale Locale, if root
+     * @param root whether to create a root pointer
+     * @return NodePointer
+     */
+    private NodePointer createCachedNodePointer(NodePointer parent,
+            QName name, Object bean, Locale locale, boolean root) {
+        Class type = bean.getClass();
+        NodePointerFactory[] candidates =
+            (NodePointerFactory[]) byClass.get(type);
+        if (candidates == null) {
+            return createAndRemember(type, parent, name, bean, locale, root);
+        }
+        for (int i = 0; i < candidates.length; i++) {
+            NodePointer pointer = create(
+                    candidates[i], parent, name, bean, locale, root);
+            if (pointer != null) {
+                return pointer;
+            }
+        }
+        // A factory has changed its mind about the class, start over
+        byClass.remove(type);
+        return createNodePointer(factories, parent, name, bean, locale, root);
+    }
+
+    /**
+     * Allocates a NodePointer asking all factories in order, and remembers
+     * which of them have to be asked for objects of the same class.
+     * @param type Class of bean
+     * @param parent pointer, unless root
+     * @param name QName
+     * @param bean Object
+     * @param locale Locale, if root
+     * @param root whether to create a root pointer
+     * @return NodePointer
+     */
+    private NodePointer createAndRemember(Class type, NodePointer parent,
+            QName name, Object bean, Locale locale, boolean root) {
+        List candidates = new ArrayList();
+        for (int i = 0; i < factories.length; i++) {
+            NodePointerFactory factory = factories[i];
+            NodePointer pointer =
+                create(factory, parent, name, bean, locale, root);
+            boolean classBased = factory instanceof ClassBasedNodePointerFactory
+                && ((ClassBasedNodePointerFactory) factory).isClassBased(type);
+            if (pointer == null) {
+                if (!classBased) {
+                    candidates.add(factory);
+                }
+                continue;
+            }
+            candidates.add(factory);
+            if (!classBased) {
+                for (int j = i + 1; j < factories.length; j++) {
+                    candidates.add(factories[j]);
+                }
+            }
+            byClass.put(type, candidates.toArray(
+                    new NodePointerFactory[candidates.size()]));
+            return pointer;
+        }
+        throw noPointer(bean);
+    }
+
+    /**
+     * Allocates a NodePointer asking the supplied factories in order.
+     * @param factories to ask
+     * @param parent pointer, unless root
+     * @param name QName
+     * @param bean Object
+     * @param locale Locale, if root
+     * @param root whether to create a root pointer
+     * @return NodePointer
+     */
+    private static NodePointer createNodePointer(
+            NodePointerFactory[] factories, NodePointer parent, QName name,
+            Object bean, Locale locale, boolean root) {
+        for (int i = 0; i < factories.length; i++) {
+            NodePointer pointer =
+                create(factories[i], parent, name, bean, locale, root);
+            if (pointer != null) {
+                return pointer;
+            }
+        }
+        throw noPointer(bean);
+    }
+
+    /**
+     * Ask one factory for a pointer.
+     * @param factory to ask
+     * @param parent pointer, unless root
+     * @param name QName
+     * @param bean Object
+     * @param locale Locale, if root
+     * @param root whether to create a root pointer
+     * @return NodePointer or null
+     */
+    private static NodePointer create(NodePointerFactory factory,
+            NodePointer parent, QName name, Object bean, Locale locale,
+            boolean root) {
+        return root ? factory.createNodePointer(name, bean, locale)
+                : factory.createNodePointer(parent, name, bean);
+    }
+
+    /**
+     * Create the exception thrown when no factory accepts an object.
+     * @param bean Object
+     * @return JXPathException
+     */
+    private static JXPathException noPointer(Object bean) {
+        return new JXPathException(
+            "Could not allocate a NodePointer for object of "
+                + bean.getClass());
+    }
+}
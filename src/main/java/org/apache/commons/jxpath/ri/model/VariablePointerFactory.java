@@ -28,7 +28,7 @@ import org.apache.commons.jxpath.ri.QName;
  * @since JXPath 1.3
  * @version $Revision$ $Date$
  */
-public class VariablePointerFactory implements NodePointerFactory {
+public class VariablePointerFactory implements ClassBasedNodePointerFactory {
     /** factory order constant */
     public static final int VARIABLE_POINTER_FACTORY_ORDER = 890;
 
@@ -93,4 +93,7 @@ public class VariablePointerFactory implements NodePointerFactory {
         return VARIABLE_POINTER_FACTORY_ORDER;
     }
 
+    public boolean isClassBased(Class type) {
+        return true;
+    }
 }
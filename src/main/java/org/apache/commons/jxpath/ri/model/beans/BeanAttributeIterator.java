@@ -56,6 +56,10 @@ public class BeanAttributeIterator extends PropertyIterator {
         return includeXmlLang && position == 1 ? new LangAttributePointer(parent) : super.getNodePointer();
     }
 
+    public NodePointer getCursorPointer() {
+        return includeXmlLang && position == 1 ? getNodePointer() : super.getCursorPointer();
+    }
+
     public int getPosition() {
         return position;
     }
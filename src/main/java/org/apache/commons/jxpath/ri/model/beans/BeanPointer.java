@@ -104,7 +104,9 @@ public class BeanPointer extends PropertyOwnerPointer {
     }
 
     public int hashCode() {
-        return name == null ? 0 : name.hashCode();
+        // Include the parent, or all elements of a collection would collide
+        int hash = parent == null ? 0 : parent.hashCode();
+        return 31 * hash + (name == null ? 0 : name.hashCode());
     }
 
     public boolean equals(Object object) {
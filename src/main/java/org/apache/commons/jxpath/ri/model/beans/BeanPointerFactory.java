@@ -21,8 +21,8 @@ import java.util.Locale;
 import org.apache.commons.jxpath.JXPathBeanInfo;
 import org.apache.commons.jxpath.JXPathIntrospector;
 import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.model.ClassBasedNodePointerFactory;
 import org.apache.commons.jxpath.ri.model.NodePointer;
-import org.apache.commons.jxpath.ri.model.NodePointerFactory;
 
 /**
  * Implements NodePointerFactory for JavaBeans.
@@ -30,7 +30,7 @@ import org.apache.commons.jxpath.ri.model.NodePointerFactory;
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
  */
-public class BeanPointerFactory implements NodePointerFactory {
+public class BeanPointerFactory implements ClassBasedNodePointerFactory {
 
     /** factory order constant */
     public static final int BEAN_POINTER_FACTORY_ORDER = 900;
@@ -53,4 +53,8 @@ public class BeanPointerFactory implements NodePointerFactory {
         JXPathBeanInfo bi = JXPathIntrospector.getBeanInfo(bean.getClass());
         return new BeanPointer(parent, name, bean, bi);
     }
+
+    public boolean isClassBased(Class type) {
+        return true;
+    }
 }
@@ -19,10 +19,12 @@ package org.apache.commons.jxpath.ri.model.beans;
 import java.beans.IndexedPropertyDescriptor;
 import java.beans.PropertyDescriptor;
 
+import org.apache.commons.jxpath.JXPathBasicBeanInfo;
 import org.apache.commons.jxpath.JXPathBeanInfo;
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathInvalidAccessException;
 import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.apache.commons.jxpath.util.PropertyAccessor;
 import org.apache.commons.jxpath.util.ValueUtils;
 
 /**
@@ -43,6 +45,7 @@ public class BeanPropertyPointer extends PropertyPointer {
     private transient String[] names;
     private transient PropertyDescriptor[] propertyDescriptors;
     private transient PropertyDescriptor propertyDescriptor;
+    private transient PropertyAccessor propertyAccessor;
 
     /**
      * Create a new BeanPropertyPointer.
@@ -66,6 +69,9 @@ public class BeanPropertyPointer extends PropertyPointer {
         if (beanInfo.isAtomic()) {
             return 0;
         }
+        if (beanInfo instanceof JXPathBasicBeanInfo) {
+            return ((JXPathBasicBeanInfo) beanInfo).getPropertyCount();
+        }
         return getPropertyDescriptors().length;
     }
 
@@ -75,15 +81,32 @@ public class BeanPropertyPointer extends PropertyPointer {
      */
     public String[] getPropertyNames() {
         if (names == null) {
-            PropertyDescriptor[] pds = getPropertyDescriptors();
-            names = new String[pds.length];
-            for (int i = 0; i < names.length; i++) {
-                names[i] = pds[i].getName();
+            if (beanInfo instanceof JXPathBasicBeanInfo) {
+                JXPathBasicBeanInfo basicBeanInfo = (JXPathBasicBeanInfo) beanInfo;
+                names = new String[basicBeanInfo.getPropertyCount()];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = basicBeanInfo.getPropertyDescriptor(i).getName();
+                }
+            }
+            else {
+                PropertyDescriptor[] pds = getPropertyDescriptors();
+                names = new String[pds.length];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = pds[i].getName();
+                }
             }
         }
         return names;
     }
 
+    public int indexOfProperty(String name) {
+        if (beanInfo instanceof JXPathBasicBeanInfo) {
+            int index = ((JXPathBasicBeanInfo) beanInfo).getPropertyIndex(name);
+            return index == -1 ? UNSPECIFIED_PROPERTY : index;
+        }
+        return super.indexOfProperty(name);
+    }
+
     /**
      * Select a property by name.
      * @param propertyName String name
@@ -117,7 +140,9 @@ public class BeanPropertyPointer extends PropertyPointer {
             if (pd == null) {
                 return null;
             }
-            baseValue = ValueUtils.getValue(getBean(), pd);
+            PropertyAccessor accessor = getPropertyAccessor(pd);
+            baseValue = accessor == null ? ValueUtils.getValue(getBean(), pd)
+                    : accessor.getValue(getBean());
         }
         return baseValue;
     }
@@ -153,8 +178,14 @@ public class BeanPropertyPointer extends PropertyPointer {
                 if (pd == null) {
                     value = null;
                 }
+                else if (!(pd instanceof IndexedPropertyDescriptor)) {
+                    value = getCollectionElement(getBaseValue(), index);
+                }
                 else {
-                    value = ValueUtils.getValue(getBean(), pd, index);
+                    PropertyAccessor accessor = getPropertyAccessor(pd);
+                    value = accessor == null
+                            ? ValueUtils.getValue(getBean(), pd, index)
+                            : accessor.getValue(getBean(), index);
                 }
             }
         }
@@ -224,12 +255,22 @@ public class BeanPropertyPointer extends PropertyPointer {
                 "Cannot set property: " + asPath() + " - no such property");
         }
 
+        PropertyAccessor accessor = getPropertyAccessor(pd);
         if (index == WHOLE_COLLECTION) {
-            ValueUtils.setValue(getBean(), pd, value);
+            if (accessor == null) {
+                ValueUtils.setValue(getBean(), pd, value);
+            }
+            else {
+                accessor.setValue(getBean(), value);
+            }
+            baseValue = UNINITIALIZED;
         }
-        else {
+        else if (accessor == null) {
             ValueUtils.setValue(getBean(), pd, index, value);
         }
+        else {
+            accessor.setValue(getBean(), index, value);
+        }
         this.value = value;
     }
 
@@ -285,6 +326,10 @@ public class BeanPropertyPointer extends PropertyPointer {
                 propertyDescriptor =
                     beanInfo.getPropertyDescriptor(propertyName);
             }
+            else if (beanInfo instanceof JXPathBasicBeanInfo) {
+                propertyDescriptor =
+                    ((JXPathBasicBeanInfo) beanInfo).getPropertyDescriptor(inx);
+            }
             else {
                 PropertyDescriptor[] propertyDescriptors =
                     getPropertyDescriptors();
@@ -299,6 +344,30 @@ public class BeanPropertyPointer extends PropertyPointer {
         return propertyDescriptor;
     }
 
+    /**
+     * Finds the pre-linked accessor for a property descriptor returned by
+     * {@link #getPropertyDescriptor()}.
+     * @param pd PropertyDescriptor
+     * @return PropertyAccessor, <code>null</code> if the bean info does
+     * not provide one and reflection has to be used
+     */
+    private PropertyAccessor getPropertyAccessor(PropertyDescriptor pd) {
+        PropertyAccessor accessor = propertyAccessor;
+        if (accessor == null || accessor.getPropertyDescriptor() != pd) {
+            accessor = null;
+            if (beanInfo instanceof JXPathBasicBeanInfo) {
+                accessor = ((JXPathBasicBeanInfo) beanInfo)
+                        .getPropertyAccessor(pd.getName());
+                if (accessor != null
+                        && accessor.getPropertyDescriptor() != pd) {
+                    accessor = null;
+                }
+            }
+            propertyAccessor = accessor;
+        }
+        return accessor;
+    }
+
     /**
      * Get all PropertyDescriptors.
      * @return PropertyDescriptor[]
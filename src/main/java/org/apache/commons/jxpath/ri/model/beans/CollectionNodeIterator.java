@@ -17,6 +17,7 @@
 package org.apache.commons.jxpath.ri.model.beans;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.jxpath.JXPathException;
@@ -96,28 +97,23 @@ public abstract class CollectionNodeIterator implements NodeIterator {
             NodeIterator iter = getElementNodeIterator(elementPointer);
 
             for (int j = 1; iter.setPosition(j); j++) {
-                NodePointer childPointer = iter.getNodePointer();
-                if (reverse) {
-                    collection.add(0, childPointer);
-                }
-                else {
-                    collection.add(childPointer);
-                }
+                collection.add(iter.getNodePointer());
             }
         }
+        if (reverse) {
+            Collections.reverse(collection);
+        }
         if (startWith != null) {
             int index = collection.indexOf(startWith);
             if (index == -1) {
                 throw new JXPathException(
                     "Invalid starting pointer for iterator: " + startWith);
             }
-            while (collection.size() > index) {
-                if (!reverse) {
-                    collection.remove(collection.size() - 1);
-                }
-                else {
-                    collection.remove(0);
-                }
+            if (!reverse) {
+                collection.subList(index, collection.size()).clear();
+            }
+            else {
+                collection.subList(0, collection.size() - index).clear();
             }
         }
     }
@@ -27,6 +27,7 @@ import org.apache.commons.jxpath.ri.compiler.NodeTest;
 import org.apache.commons.jxpath.ri.compiler.NodeTypeTest;
 import org.apache.commons.jxpath.ri.model.NodeIterator;
 import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.apache.commons.jxpath.util.CollectionCursor;
 import org.apache.commons.jxpath.util.ValueUtils;
 
 /**
@@ -38,6 +39,7 @@ import org.apache.commons.jxpath.util.ValueUtils;
 public class CollectionPointer extends NodePointer {
     private Object collection;
     private NodePointer valuePointer;
+    private transient CollectionCursor cursor;
 
     private static final long serialVersionUID = 8620254915563256588L;
 
@@ -87,8 +89,13 @@ public class CollectionPointer extends NodePointer {
     }
 
     public Object getImmediateNode() {
-        return index == WHOLE_COLLECTION ? ValueUtils.getValue(collection)
-                : ValueUtils.getValue(collection, index);
+        if (index == WHOLE_COLLECTION) {
+            return ValueUtils.getValue(collection);
+        }
+        if (cursor == null) {
+            cursor = new CollectionCursor();
+        }
+        return cursor.getValue(collection, index);
     }
 
     public void setValue(Object value) {
@@ -105,6 +112,12 @@ public class CollectionPointer extends NodePointer {
         valuePointer = null;
     }
 
+    public Object clone() {
+        CollectionPointer ptr = (CollectionPointer) super.clone();
+        ptr.cursor = null;
+        return ptr;
+    }
+
     public NodePointer getValuePointer() {
         if (valuePointer == null) {
             if (index == WHOLE_COLLECTION) {
@@ -69,6 +69,10 @@ public class NullPropertyPointer extends PropertyPointer {
         return new NullPointer(this,  new QName(getPropertyName()));
     }
 
+    public NodePointer getCursorValuePointer() {
+        return getValuePointer();
+    }
+
     protected boolean isActualProperty() {
         return false;
     }
@@ -17,7 +17,7 @@
 package org.apache.commons.jxpath.ri.model.beans;
 
 import org.apache.commons.jxpath.JXPathException;
-import org.apache.commons.jxpath.ri.model.NodeIterator;
+import org.apache.commons.jxpath.ri.model.CursorNodeIterator;
 import org.apache.commons.jxpath.ri.model.NodePointer;
 
 /**
@@ -27,7 +27,7 @@ import org.apache.commons.jxpath.ri.model.NodePointer;
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
  */
-public class PropertyIterator implements NodeIterator {
+public class PropertyIterator implements CursorNodeIterator {
     private boolean empty = false;
     private boolean reverse;
     private String name;
@@ -38,6 +38,8 @@ public class PropertyIterator implements NodeIterator {
     private int startPropertyIndex;
 
     private boolean includeStart = false;
+    private boolean fromStart;
+    private NodePointer cursorPointer;
 
     /**
      * Create a new PropertyIterator.
@@ -56,6 +58,7 @@ public class PropertyIterator implements NodeIterator {
         this.name = name;
         this.reverse = reverse;
         this.includeStart = true;
+        this.fromStart = startWith == null;
         if (reverse) {
             this.startPropertyIndex = PropertyPointer.UNSPECIFIED_PROPERTY;
             this.startIndex = -1;
@@ -97,9 +100,48 @@ public class PropertyIterator implements NodeIterator {
     public void reset() {
         position = 0;
         targetReady = false;
+        cursorPointer = null;
     }
 
     public NodePointer getNodePointer() {
+        if (!isPositioned()) {
+            return null;
+        }
+        try {
+            return propertyNodePointer.getValuePointer();
+        }
+        catch (Throwable t) {
+            propertyNodePointer.handle(t);
+            NullPropertyPointer npp =
+                new NullPropertyPointer(
+                        propertyNodePointer.getImmediateParentPointer());
+            npp.setPropertyName(propertyNodePointer.getPropertyName());
+            npp.setIndex(propertyNodePointer.getIndex());
+            return npp.getValuePointer();
+        }
+    }
+
+    public NodePointer getCursorPointer() {
+        if (cursorPointer == null) {
+            if (!isPositioned()) {
+                return null;
+            }
+            try {
+                cursorPointer = propertyNodePointer.getCursorValuePointer();
+            }
+            catch (Throwable t) {
+                return getNodePointer();
+            }
+        }
+        return cursorPointer;
+    }
+
+    /**
+     * Make sure the property pointer is at a node. Before the first move
+     * that is the first node, if any.
+     * @return <code>false</code> if there is no node
+     */
+    private boolean isPositioned() {
         if (position == 0) {
             if (name != null) {
                 if (!targetReady) {
@@ -107,28 +149,17 @@ public class PropertyIterator implements NodeIterator {
                 }
                 // If there is no such property - return null
                 if (empty) {
-                    return null;
+                    return false;
                 }
             }
             else {
                 if (!setPosition(1)) {
-                    return null;
+                    return false;
                 }
                 reset();
             }
         }
-        try {
-            return propertyNodePointer.getValuePointer();
-        }
-        catch (Throwable t) {
-            propertyNodePointer.handle(t);
-            NullPropertyPointer npp =
-                new NullPropertyPointer(
-                        propertyNodePointer.getImmediateParentPointer());
-            npp.setPropertyName(propertyNodePointer.getPropertyName());
-            npp.setIndex(propertyNodePointer.getIndex());
-            return npp.getValuePointer();
-        }
+        return true;
     }
 
     public int getPosition() {
@@ -136,6 +167,7 @@ public class PropertyIterator implements NodeIterator {
     }
 
     public boolean setPosition(int position) {
+        cursorPointer = null;
         return name == null ? setPositionAllProperties(position) : setPositionIndividualProperty(position);
     }
 
@@ -267,7 +299,13 @@ public class PropertyIterator implements NodeIterator {
         targetReady = true;
         empty = true;
 
-        String[] names = propertyNodePointer.getPropertyNames();
+        if (fromStart) {
+            // The position of the property among the others does not matter
+            empty = !propertyNodePointer.selectProperty(name);
+            return;
+        }
+
+        int found = propertyNodePointer.indexOfProperty(name);
         if (!reverse) {
             if (startPropertyIndex == PropertyPointer.UNSPECIFIED_PROPERTY) {
                 startPropertyIndex = 0;
@@ -275,35 +313,47 @@ public class PropertyIterator implements NodeIterator {
             if (startIndex == NodePointer.WHOLE_COLLECTION) {
                 startIndex = 0;
             }
-            for (int i = startPropertyIndex; i < names.length; i++) {
-                if (names[i].equals(name)) {
-                    propertyNodePointer.setPropertyIndex(i);
-                    if (i != startPropertyIndex) {
-                        startIndex = 0;
-                        includeStart = true;
-                    }
-                    empty = false;
-                    break;
+            // Names are unique or, if sorted, repeated next to each other
+            String[] names = found != PropertyPointer.UNSPECIFIED_PROPERTY
+                    && found < startPropertyIndex
+                    ? propertyNodePointer.getSharedPropertyNames() : null;
+            while (found != PropertyPointer.UNSPECIFIED_PROPERTY
+                    && found < startPropertyIndex) {
+                found = found + 1 < names.length
+                        && names[found + 1].equals(name) ? found + 1
+                        : PropertyPointer.UNSPECIFIED_PROPERTY;
+            }
+            if (found != PropertyPointer.UNSPECIFIED_PROPERTY) {
+                propertyNodePointer.setPropertyIndex(found);
+                if (found != startPropertyIndex) {
+                    startIndex = 0;
+                    includeStart = true;
                 }
+                empty = false;
             }
         }
         else {
             if (startPropertyIndex == PropertyPointer.UNSPECIFIED_PROPERTY) {
-                startPropertyIndex = names.length - 1;
+                startPropertyIndex =
+                    propertyNodePointer.getSharedPropertyNames().length - 1;
             }
             if (startIndex == NodePointer.WHOLE_COLLECTION) {
                 startIndex = -1;
             }
-            for (int i = startPropertyIndex; i >= 0; i--) {
-                if (names[i].equals(name)) {
-                    propertyNodePointer.setPropertyIndex(i);
-                    if (i != startPropertyIndex) {
-                        startIndex = -1;
-                        includeStart = true;
-                    }
-                    empty = false;
-                    break;
+            if (found != PropertyPointer.UNSPECIFIED_PROPERTY
+                    && found <= startPropertyIndex) {
+                String[] names = found < startPropertyIndex
+                        ? propertyNodePointer.getSharedPropertyNames() : null;
+                while (found < startPropertyIndex
+                        && names[found + 1].equals(name)) {
+                    found++;
+                }
+                propertyNodePointer.setPropertyIndex(found);
+                if (found != startPropertyIndex) {
+                    startIndex = -1;
+                    includeStart = true;
                 }
+                empty = false;
             }
         }
     }
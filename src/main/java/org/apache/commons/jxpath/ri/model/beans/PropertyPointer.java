@@ -16,12 +16,15 @@
  */
 package org.apache.commons.jxpath.ri.model.beans;
 
+import java.util.Arrays;
+
 import org.apache.commons.jxpath.AbstractFactory;
 import org.apache.commons.jxpath.JXPathAbstractFactoryException;
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathIntrospector;
 import org.apache.commons.jxpath.ri.QName;
 import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.apache.commons.jxpath.util.CollectionCursor;
 import org.apache.commons.jxpath.util.ValueUtils;
 
 /**
@@ -40,6 +43,8 @@ public abstract class PropertyPointer extends NodePointer {
     /** owning object */
     protected Object bean;
 
+    private transient CollectionCursor cursor;
+
     /**
      * Takes a javabean, a descriptor of a property of that object and
      * an offset within that property (starting with 0).
@@ -107,6 +112,67 @@ public abstract class PropertyPointer extends NodePointer {
      */
     public abstract String[] getPropertyNames();
 
+    /**
+     * Get the names of the included properties without copying them. The
+     * array may be shared with other pointers and must not be modified;
+     * by default it is {@link #getPropertyNames()}.
+     * @return String[]
+     */
+    protected String[] getSharedPropertyNames() {
+        return getPropertyNames();
+    }
+
+    /**
+     * Find the named property in {@link #getPropertyNames()}.
+     * @param name property name
+     * @return int index of the first occurrence, UNSPECIFIED_PROPERTY if
+     * there is no such property
+     */
+    public int indexOfProperty(String name) {
+        String[] names = getSharedPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return UNSPECIFIED_PROPERTY;
+    }
+
+    /**
+     * Select the named property if it exists.
+     * @param name property name
+     * @return <code>false</code> if there is no such property
+     */
+    public boolean selectProperty(String name) {
+        int index = indexOfProperty(name);
+        if (index == UNSPECIFIED_PROPERTY) {
+            return false;
+        }
+        setPropertyIndex(index);
+        return true;
+    }
+
+    /**
+     * Find a name in a sorted array of names.
+     * @param names sorted String[]
+     * @param name to find
+     * @return int index of the first occurrence, UNSPECIFIED_PROPERTY if
+     * <code>name</code> is not found
+     */
+    protected static int indexOfSortedName(String[] names, String name) {
+        if (name == null) {
+            return UNSPECIFIED_PROPERTY;
+        }
+        int index = Arrays.binarySearch(names, name);
+        if (index < 0) {
+            return UNSPECIFIED_PROPERTY;
+        }
+        while (index > 0 && names[index - 1].equals(name)) {
+            index--;
+        }
+        return index;
+    }
+
     /**
      * Learn whether this pointer references an actual property.
      * @return true if actual
@@ -153,6 +219,27 @@ public abstract class PropertyPointer extends NodePointer {
         return baseValue == null ? 1 : ValueUtils.getLength(baseValue);
     }
 
+    /**
+     * Returns the index'th element of a collection held by the property.
+     * Reading the elements in order keeps the position of the underlying
+     * iterator, which matters for Collections that are not Lists.
+     * @param collection the value of the property
+     * @param index of the element
+     * @return Object
+     */
+    protected Object getCollectionElement(Object collection, int index) {
+        if (cursor == null) {
+            cursor = new CollectionCursor();
+        }
+        return cursor.getValue(collection, index);
+    }
+
+    public Object clone() {
+        PropertyPointer ptr = (PropertyPointer) super.clone();
+        ptr.cursor = null;
+        return ptr;
+    }
+
     /**
      * Returns a NodePointer that can be used to access the currently
      * selected property value.
@@ -165,6 +252,18 @@ public abstract class PropertyPointer extends NodePointer {
             getImmediateNode());
     }
 
+    /**
+     * Returns the same pointer as {@link #getValuePointer()}, but with
+     * this pointer as its parent rather than a clone of it. The result
+     * follows this pointer when it moves to another property or index.
+     * @return NodePointer
+     * @see org.apache.commons.jxpath.ri.model.CursorNodeIterator
+     */
+    public NodePointer getCursorValuePointer() {
+        return NodePointer.newChildNodePointer(this, getName(),
+                getImmediateNode()).getValuePointer();
+    }
+
     public NodePointer createPath(JXPathContext context) {
         if (getImmediateNode() == null) {
             AbstractFactory factory = getAbstractFactory(context);
@@ -219,7 +318,11 @@ public abstract class PropertyPointer extends NodePointer {
     }
 
     public int hashCode() {
-        return getImmediateParentPointer().hashCode() + propertyIndex + index;
+        // WHOLE_COLLECTION and 0 are equal, see equals(). The property
+        // index is not used as it may not be known yet.
+        return getImmediateParentPointer().hashCode()
+                + getPropertyName().hashCode()
+                + (index == WHOLE_COLLECTION ? 0 : index);
     }
 
     public boolean equals(Object object) {
@@ -236,8 +339,13 @@ public abstract class PropertyPointer extends NodePointer {
             return false;
         }
 
-        if (getPropertyIndex() != other.getPropertyIndex()
-            || !getPropertyName().equals(other.getPropertyName())) {
+        if (!getPropertyName().equals(other.getPropertyName())) {
+            return false;
+        }
+        // A property selected by name has the index of its name
+        if (propertyIndex != UNSPECIFIED_PROPERTY
+                && other.propertyIndex != UNSPECIFIED_PROPERTY
+                && propertyIndex != other.propertyIndex) {
             return false;
         }
 
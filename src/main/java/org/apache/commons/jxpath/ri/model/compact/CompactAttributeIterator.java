@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.compact;
+
+import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.model.NodeIterator;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+
+/**
+ * An iterator of attributes of an element of a {@link CompactDocument}.
+ * The attributes of an element are the nodes that follow it, after its
+ * namespace declarations.
+ *
+ * @version $Revision$ $Date$
+ */
+public class CompactAttributeIterator implements NodeIterator {
+    private CompactNodePointer parent;
+    private QName name;
+    private CompactDocument document;
+    private int[] attributes;
+    private int count;
+    private int position = 0;
+
+    /**
+     * Create a new CompactAttributeIterator.
+     * @param parent pointer to an element
+     * @param name to test
+     */
+    public CompactAttributeIterator(CompactNodePointer parent, QName name) {
+        this.parent = parent;
+        this.name = name;
+        this.document = parent.getDocument();
+        int element = parent.getNodeIndex();
+        if (document.getNodeType(element) != CompactDocument.ELEMENT_NODE) {
+            return;
+        }
+        int end = document.getEnd(element);
+        int first = element + 1;
+        while (first <= end
+                && document.getNodeType(first) == CompactDocument.NAMESPACE_NODE) {
+            first++;
+        }
+        int last = first;
+        while (last <= end
+                && document.getNodeType(last) == CompactDocument.ATTRIBUTE_NODE) {
+            last++;
+        }
+        attributes = new int[last - first];
+        if (name.getName().equals("*")) {
+            for (int i = first; i < last; i++) {
+                if (testAttr(i)) {
+                    attributes[count++] = i;
+                }
+            }
+        }
+        else {
+            int attribute = getAttribute(first, last);
+            if (attribute >= 0) {
+                attributes[count++] = attribute;
+            }
+        }
+    }
+
+    /**
+     * Test an attribute.
+     * @param attribute index of the attribute
+     * @return whether test succeeded
+     */
+    private boolean testAttr(int attribute) {
+        String nodePrefix = document.getPrefix(attribute);
+        String testLocalName = name.getName();
+        if (testLocalName.equals("*")
+                || testLocalName.equals(document.getLocalName(attribute))) {
+            String testPrefix = name.getPrefix();
+            if (testPrefix == null || testPrefix.equals(nodePrefix)) {
+                return true;
+            }
+            if (nodePrefix == null) {
+                return false;
+            }
+            String testNS = parent.getNamespaceURI(testPrefix);
+            return testNS != null && testNS.equals(document.getNamespaceURI(attribute));
+        }
+        return false;
+    }
+
+    /**
+     * Get the named attribute: by namespace and local name if the name has
+     * a prefix that can be resolved, otherwise an attribute without a
+     * prefix and with the local name.
+     * @param first index of the first attribute
+     * @param last index after the last attribute
+     * @return index of the attribute or -1
+     */
+    private int getAttribute(int first, int last) {
+        String testPrefix = name.getPrefix();
+        String testNS = null;
+        if (testPrefix != null) {
+            testNS = parent.getNamespaceResolver().getNamespaceURI(testPrefix);
+        }
+        String localName = document.getPooledName(name.getName());
+        String namespaceURI = document.getPooledName(testNS);
+        if (localName == null || testNS != null && namespaceURI == null) {
+            return -1;
+        }
+        for (int i = first; i < last; i++) {
+            if (document.getLocalName(i) == localName
+                    && (testNS == null ? document.getPrefix(i) == null
+                            : document.getNamespaceURI(i) == namespaceURI)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public NodePointer getNodePointer() {
+        if (position == 0) {
+            if (!setPosition(1)) {
+                return null;
+            }
+            position = 0;
+        }
+        int index = position - 1;
+        if (index < 0) {
+            index = 0;
+        }
+        return new CompactNodePointer(parent, document, attributes[index]);
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public boolean setPosition(int position) {
+        this.position = position;
+        return position >= 1 && position <= count;
+    }
+}
@@ -0,0 +1,836 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.compact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A read-only XML document kept in parallel int arrays instead of node
+ * objects. Every node - the document itself, elements, their namespace
+ * declarations and attributes, text, comments and processing instructions -
+ * is identified by an index, and indexes follow document order: an element
+ * comes first, then its namespace declarations, then its attributes, then
+ * its children. The nodes of a subtree therefore occupy a contiguous range
+ * of indexes. Adjacent text and CDATA are merged into one text node.
+ * Each distinct combination of prefix, local name and namespace URI is
+ * kept once in a name table that the nodes refer to by id, and repeated
+ * values are kept once in a string pool.
+ * <p>
+ * The node at index 0 is the document. JXPath navigates a CompactDocument,
+ * or a {@link CompactNode} of it, through {@link CompactNodePointer}.
+ *
+ * @version $Revision$ $Date$
+ */
+public final class CompactDocument {
+    /** Node type of elements, numbered as in org.w3c.dom.Node */
+    public static final int ELEMENT_NODE = 1;
+
+    /** Node type of attributes */
+    public static final int ATTRIBUTE_NODE = 2;
+
+    /** Node type of text */
+    public static final int TEXT_NODE = 3;
+
+    /** Node type of processing instructions */
+    public static final int PROCESSING_INSTRUCTION_NODE = 7;
+
+    /** Node type of comments */
+    public static final int COMMENT_NODE = 8;
+
+    /** Node type of the document */
+    public static final int DOCUMENT_NODE = 9;
+
+    /** Node type of namespace declarations */
+    public static final int NAMESPACE_NODE = 13;
+
+    private static final int TYPE_MASK = 0x0F;
+    private static final int PRESERVE_SPACE = 0x10;
+
+    private final int size;
+    private final byte[] types;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final int[] ends;
+    private final int[] names;
+    private final int[] values;
+    private final int[] positions;
+    private final String[] localNameTable;
+    private final String[] prefixTable;
+    private final String[] namespaceURITable;
+    private final Map pooledNames;
+    private final String[] strings;
+
+    /**
+     * Create a new CompactDocument from the arrays of a builder.
+     * @param builder that has read a whole document
+     */
+    private CompactDocument(Builder builder) {
+        size = builder.size;
+        types = Arrays.copyOf(builder.types, size);
+        parents = Arrays.copyOf(builder.parents, size);
+        firstChildren = Arrays.copyOf(builder.firstChildren, size);
+        nextSiblings = Arrays.copyOf(builder.nextSiblings, size);
+        ends = Arrays.copyOf(builder.ends, size);
+        names = Arrays.copyOf(builder.names, size);
+        values = Arrays.copyOf(builder.values, size);
+        positions = Arrays.copyOf(builder.positions, size);
+        int count = builder.localNameTable.size();
+        localNameTable = (String[]) builder.localNameTable.toArray(new String[count]);
+        prefixTable = (String[]) builder.prefixTable.toArray(new String[count]);
+        namespaceURITable = (String[]) builder.namespaceURITable.toArray(new String[count]);
+        pooledNames = builder.pooledNames;
+        strings = (String[]) builder.strings.toArray(new String[builder.strings.size()]);
+    }
+
+    /**
+     * Read a document from a StAX reader positioned at the start of the
+     * document. The reader should be namespace aware.
+     * @param reader to read
+     * @param ignoringComments whether to leave comments out
+     * @param ignoringElementContentWhitespace whether to leave out the
+     * whitespace the reader reports as ignorable
+     * @return CompactDocument
+     * @throws XMLStreamException if the reader fails
+     */
+    public static CompactDocument parse(XMLStreamReader reader,
+            boolean ignoringComments, boolean ignoringElementContentWhitespace)
+            throws XMLStreamException {
+        Builder builder = new Builder();
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT :
+                    builder.startElement(reader);
+                    break;
+                case XMLStreamConstants.END_ELEMENT :
+                    builder.endElement();
+                    break;
+                case XMLStreamConstants.SPACE :
+                    if (!ignoringElementContentWhitespace) {
+                        builder.appendText(reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS :
+                case XMLStreamConstants.CDATA :
+                case XMLStreamConstants.ENTITY_REFERENCE :
+                    builder.appendText(reader.getText());
+                    break;
+                case XMLStreamConstants.COMMENT :
+                    if (!ignoringComments) {
+                        builder.addLeaf(COMMENT_NODE, null, reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION :
+                    builder.addLeaf(PROCESSING_INSTRUCTION_NODE,
+                            reader.getPITarget(), reader.getPIData());
+                    break;
+                default :
+                    break;
+            }
+        }
+        builder.ends[0] = builder.size - 1;
+        return new CompactDocument(builder);
+    }
+
+    /**
+     * Get the number of nodes, which is one more than the highest index.
+     * @return int
+     */
+    public int getNodeCount() {
+        return size;
+    }
+
+    /**
+     * Get the type of a node, one of the *_NODE constants.
+     * @param index of the node
+     * @return int
+     */
+    public int getNodeType(int index) {
+        return types[index] & TYPE_MASK;
+    }
+
+    /**
+     * Get the parent of a node. The parent of an attribute or namespace
+     * declaration is its element.
+     * @param index of the node
+     * @return index of the parent, -1 for the document
+     */
+    public int getParent(int index) {
+        return parents[index];
+    }
+
+    /**
+     * Get the first child of a node.
+     * @param index of the node
+     * @return index of the child, -1 if there is none
+     */
+    public int getFirstChild(int index) {
+        return firstChildren[index];
+    }
+
+    /**
+     * Get the last child of a node.
+     * @param index of the node
+     * @return index of the child, -1 if there is none
+     */
+    public int getLastChild(int index) {
+        if (firstChildren[index] < 0) {
+            return -1;
+        }
+        int child = ends[index];
+        while (parents[child] != index) {
+            child = parents[child];
+        }
+        return child;
+    }
+
+    /**
+     * Get the next sibling of a child node.
+     * @param index of the node
+     * @return index of the sibling, -1 if there is none
+     */
+    public int getNextSibling(int index) {
+        return nextSiblings[index];
+    }
+
+    /**
+     * Get the previous sibling of a child node. The node before it in
+     * document order is its parent, an attribute of its parent, or belongs
+     * to the subtree of the previous sibling.
+     * @param index of the node
+     * @return index of the sibling, -1 if there is none
+     */
+    public int getPreviousSibling(int index) {
+        int parent = parents[index];
+        int sibling = index - 1;
+        if (parent < 0 || sibling == parent) {
+            return -1;
+        }
+        while (parents[sibling] != parent) {
+            sibling = parents[sibling];
+        }
+        int type = getNodeType(sibling);
+        return type == ATTRIBUTE_NODE || type == NAMESPACE_NODE ? -1 : sibling;
+    }
+
+    /**
+     * Get the last node of the subtree of a node.
+     * @param index of the node
+     * @return index of the last descendant, attribute or namespace
+     * declaration, or <code>index</code> itself
+     */
+    public int getEnd(int index) {
+        return ends[index];
+    }
+
+    /**
+     * Get the local name of an element or attribute, the target of a
+     * processing instruction or the prefix of a namespace declaration,
+     * which is "" for the default namespace.
+     * @param index of the node
+     * @return String or null
+     */
+    public String getLocalName(int index) {
+        return names[index] < 0 ? null : localNameTable[names[index]];
+    }
+
+    /**
+     * Get the prefix of an element or attribute.
+     * @param index of the node
+     * @return String or null
+     */
+    public String getPrefix(int index) {
+        return names[index] < 0 ? null : prefixTable[names[index]];
+    }
+
+    /**
+     * Get the namespace URI of an element or attribute.
+     * @param index of the node
+     * @return String or null
+     */
+    public String getNamespaceURI(int index) {
+        return names[index] < 0 ? null : namespaceURITable[names[index]];
+    }
+
+    /**
+     * Get the text of a text node or comment, the value of an attribute,
+     * the data of a processing instruction or the URI of a namespace
+     * declaration, as read.
+     * @param index of the node
+     * @return String or null for elements and the document
+     */
+    public String getValue(int index) {
+        return values[index] < 0 ? null : strings[values[index]];
+    }
+
+    /**
+     * Get the position of a child node among the children of its parent
+     * that are selected by the same node test in an XPath: elements with
+     * the same name, text nodes, comments, or processing instructions with
+     * the same target.
+     * @param index of the node
+     * @return 1-based position
+     */
+    public int getPosition(int index) {
+        return positions[index];
+    }
+
+    /**
+     * Learn whether the nearest xml:space attribute of a node asks to
+     * preserve whitespace.
+     * @param index of the node
+     * @return boolean
+     */
+    public boolean isSpacePreserved(int index) {
+        return (types[index] & PRESERVE_SPACE) != 0;
+    }
+
+    /**
+     * Get an object for a node that JXPath can navigate.
+     * @param index of the node
+     * @return this document for index 0, otherwise a CompactNode
+     */
+    public Object getNode(int index) {
+        return index == 0 ? (Object) this : new CompactNode(this, index);
+    }
+
+    /**
+     * Get the XPath string value of a node. As with DOM, the text of text
+     * nodes and processing instructions is trimmed unless an xml:space
+     * attribute asks to preserve it, and comments are left out of the
+     * value of elements.
+     * @param index of the node
+     * @return String
+     */
+    public String getStringValue(int index) {
+        switch (getNodeType(index)) {
+            case ELEMENT_NODE :
+            case DOCUMENT_NODE :
+                StringBuffer buffer = new StringBuffer();
+                int end = ends[index];
+                for (int i = index + 1; i <= end; i++) {
+                    int type = getNodeType(i);
+                    if (type == TEXT_NODE || type == PROCESSING_INSTRUCTION_NODE) {
+                        buffer.append(getTextValue(i));
+                    }
+                }
+                return buffer.toString();
+            case TEXT_NODE :
+            case PROCESSING_INSTRUCTION_NODE :
+                return getTextValue(index);
+            case COMMENT_NODE :
+                return getValue(index).trim();
+            default :
+                return getValue(index);
+        }
+    }
+
+    /**
+     * Get the value of a text node or processing instruction, trimmed
+     * unless whitespace is preserved.
+     * @param index of the node
+     * @return String
+     */
+    private String getTextValue(int index) {
+        String text = getValue(index);
+        if (text == null) {
+            return "";
+        }
+        return isSpacePreserved(index) ? text : text.trim();
+    }
+
+    /**
+     * Get the URI a prefix is bound to at a node.
+     * @param index of the node
+     * @param prefix to look up, "" for the default namespace
+     * @return String or null if the prefix is not bound
+     */
+    public String lookupNamespaceURI(int index, String prefix) {
+        String pooledPrefix = getPooledName(prefix);
+        if (pooledPrefix == null) {
+            return null;
+        }
+        int element = index == 0 ? getDocumentElement() : index;
+        while (element > 0) {
+            if (getNodeType(element) == ELEMENT_NODE) {
+                for (int i = element + 1; i <= ends[element]
+                        && getNodeType(i) == NAMESPACE_NODE; i++) {
+                    if (getLocalName(i) == pooledPrefix) {
+                        String uri = getValue(i);
+                        return uri.equals("") ? null : uri;
+                    }
+                }
+            }
+            element = parents[element];
+        }
+        return null;
+    }
+
+    /**
+     * Find the nearest non-empty attribute with the XML namespace and the
+     * supplied local name, such as xml:lang, on a node or its ancestors.
+     * @param index of the node
+     * @param localName of the attribute
+     * @return String or null
+     */
+    String findEnclosingXMLAttribute(int index, String localName) {
+        String pooledName = getPooledName(localName);
+        if (pooledName == null) {
+            return null;
+        }
+        for (int element = index; element > 0; element = parents[element]) {
+            if (getNodeType(element) != ELEMENT_NODE) {
+                continue;
+            }
+            for (int i = element + 1; i <= ends[element]; i++) {
+                int type = getNodeType(i);
+                if (type != ATTRIBUTE_NODE && type != NAMESPACE_NODE) {
+                    break;
+                }
+                if (type == ATTRIBUTE_NODE && getLocalName(i) == pooledName
+                        && "xml".equals(getPrefix(i))) {
+                    String value = getValue(i);
+                    if (!value.equals("")) {
+                        return value;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the first element child of the document.
+     * @return index of the element, -1 if there is none
+     */
+    public int getDocumentElement() {
+        int child = firstChildren[0];
+        while (child >= 0 && getNodeType(child) != ELEMENT_NODE) {
+            child = nextSiblings[child];
+        }
+        return child;
+    }
+
+    /**
+     * Get the instance of a string that the nodes of this document use as
+     * a name, prefix or namespace URI, so that it can be compared to them
+     * with <code>==</code>.
+     * @param name to look up
+     * @return String, or null if no node of this document uses the name
+     */
+    String getPooledName(String name) {
+        return name == null ? null : (String) pooledNames.get(name);
+    }
+
+    /**
+     * An element that is still being read, with what is needed to link
+     * and number its children. Levels are reused for the elements at the
+     * same depth.
+     */
+    private static final class Level {
+        private static final int EMPTY = -1;
+
+        private int node;
+        private boolean preserveSpace;
+        private int lastChild;
+        private String text;
+        private StringBuffer textBuffer;
+        private int[] keys = new int[8];
+        private int[] counts = new int[8];
+        private int keyCount;
+
+        /**
+         * Create a new Level.
+         */
+        private Level() {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        /**
+         * Start a new element or the document.
+         * @param node index of the element or document
+         * @param preserveSpace whether text in it keeps its whitespace
+         */
+        private void reset(int node, boolean preserveSpace) {
+            this.node = node;
+            this.preserveSpace = preserveSpace;
+            lastChild = -1;
+            text = null;
+            if (keyCount > 0) {
+                Arrays.fill(keys, EMPTY);
+                keyCount = 0;
+            }
+        }
+
+        /**
+         * Count a child under a key that identifies its node test.
+         * @param key of the child, not negative
+         * @return the position of the child among those with the same key
+         */
+        private int count(int key) {
+            int mask = keys.length - 1;
+            int slot = key & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == key) {
+                return ++counts[slot];
+            }
+            keys[slot] = key;
+            counts[slot] = 1;
+            if (++keyCount * 2 > keys.length) {
+                rehash();
+            }
+            return 1;
+        }
+
+        /**
+         * Double the capacity of the counts.
+         */
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new int[oldKeys.length * 2];
+            counts = new int[keys.length];
+            Arrays.fill(keys, EMPTY);
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = oldKeys[i] & mask;
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        /**
+         * Collect text.
+         * @param string to append
+         */
+        private void appendText(String string) {
+            if (text == null) {
+                text = string;
+            }
+            else {
+                if (textBuffer == null) {
+                    textBuffer = new StringBuffer();
+                }
+                if (textBuffer.length() == 0) {
+                    textBuffer.append(text);
+                }
+                textBuffer.append(string);
+                text = "";
+            }
+        }
+
+        /**
+         * Take the text collected so far.
+         * @return String or null
+         */
+        private String takeText() {
+            String result = text;
+            if (textBuffer != null && textBuffer.length() > 0) {
+                result = textBuffer.toString();
+                textBuffer.setLength(0);
+            }
+            text = null;
+            return result;
+        }
+    }
+
+    /**
+     * The growing arrays and pools of a document being read.
+     */
+    private static final class Builder {
+        private static final int TEXT_KEY = 0;
+        private static final int COMMENT_KEY = 1;
+
+        private int size;
+        private byte[] types = new byte[1024];
+        private int[] parents = new int[1024];
+        private int[] firstChildren = new int[1024];
+        private int[] nextSiblings = new int[1024];
+        private int[] ends = new int[1024];
+        private int[] names = new int[1024];
+        private int[] values = new int[1024];
+        private int[] positions = new int[1024];
+        private Level[] levels = new Level[16];
+        private int depth;
+        private final List localNameTable = new ArrayList();
+        private final List prefixTable = new ArrayList();
+        private final List namespaceURITable = new ArrayList();
+        private final List expandedNameIds = new ArrayList();
+        private final Map nameIdsByLocalName = new HashMap();
+        private final Map pooledNames = new HashMap();
+        private final List strings = new ArrayList();
+        private final Map stringIds = new HashMap();
+
+        /**
+         * Create a new Builder with the document node.
+         */
+        private Builder() {
+            levels[0] = new Level();
+            levels[0].reset(add(DOCUMENT_NODE, -1, false), false);
+        }
+
+        /**
+         * Get the element that is being read.
+         * @return Level
+         */
+        private Level current() {
+            return levels[depth];
+        }
+
+        /**
+         * Add a node.
+         * @param type of the node
+         * @param parent index of the parent
+         * @param preserveSpace whether whitespace is preserved in the node
+         * @return index of the new node
+         */
+        private int add(int type, int parent, boolean preserveSpace) {
+            if (size == types.length) {
+                int capacity = size * 2;
+                types = Arrays.copyOf(types, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                firstChildren = Arrays.copyOf(firstChildren, capacity);
+                nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                names = Arrays.copyOf(names, capacity);
+                values = Arrays.copyOf(values, capacity);
+                positions = Arrays.copyOf(positions, capacity);
+            }
+            types[size] = (byte) (preserveSpace ? type | PRESERVE_SPACE : type);
+            parents[size] = parent;
+            firstChildren[size] = -1;
+            nextSiblings[size] = -1;
+            ends[size] = size;
+            names[size] = -1;
+            values[size] = -1;
+            positions[size] = 0;
+            return size++;
+        }
+
+        /**
+         * Append a child to the children of the current element.
+         * @param level of the parent
+         * @param child index of the child
+         * @param key of the node test that selects the child
+         */
+        private void link(Level level, int child, int key) {
+            if (level.lastChild < 0) {
+                firstChildren[level.node] = child;
+            }
+            else {
+                nextSiblings[level.lastChild] = child;
+            }
+            level.lastChild = child;
+            positions[child] = level.count(key);
+        }
+
+        /**
+         * Add an element with its namespace declarations and attributes,
+         * and make it the current element.
+         * @param reader positioned at the start of the element
+         */
+        private void startElement(XMLStreamReader reader) {
+            Level level = current();
+            flushText(level);
+            int element = add(ELEMENT_NODE, level.node, false);
+            names[element] = nameId(emptyToNull(reader.getPrefix()),
+                    reader.getLocalName(), emptyToNull(reader.getNamespaceURI()));
+            link(level, element,
+                    2 + 2 * ((Integer) expandedNameIds.get(names[element])).intValue());
+
+            int count = reader.getNamespaceCount();
+            for (int i = 0; i < count; i++) {
+                int node = add(NAMESPACE_NODE, element, false);
+                String prefix = reader.getNamespacePrefix(i);
+                String uri = reader.getNamespaceURI(i);
+                names[node] = nameId(null, prefix == null ? "" : prefix, null);
+                values[node] = stringId(uri == null ? "" : uri);
+            }
+
+            boolean preserveSpace = level.preserveSpace;
+            count = reader.getAttributeCount();
+            for (int i = 0; i < count; i++) {
+                int node = add(ATTRIBUTE_NODE, element, false);
+                String prefix = emptyToNull(reader.getAttributePrefix(i));
+                String localName = reader.getAttributeLocalName(i);
+                String value = reader.getAttributeValue(i);
+                names[node] = nameId(prefix, localName,
+                        emptyToNull(reader.getAttributeNamespace(i)));
+                values[node] = stringId(value);
+                if ("xml".equals(prefix) && localName.equals("space")
+                        && !value.equals("")) {
+                    preserveSpace = value.equals("preserve");
+                }
+            }
+            if (preserveSpace) {
+                types[element] |= PRESERVE_SPACE;
+            }
+
+            if (++depth == levels.length) {
+                levels = (Level[]) Arrays.copyOf(levels, depth * 2);
+            }
+            if (levels[depth] == null) {
+                levels[depth] = new Level();
+            }
+            levels[depth].reset(element, preserveSpace);
+        }
+
+        /**
+         * Finish the current element.
+         */
+        private void endElement() {
+            Level level = current();
+            flushText(level);
+            ends[level.node] = size - 1;
+            depth--;
+        }
+
+        /**
+         * Add a comment or processing instruction to the current element.
+         * @param type of the node
+         * @param target of a processing instruction
+         * @param value of the node
+         */
+        private void addLeaf(int type, String target, String value) {
+            Level level = current();
+            flushText(level);
+            int node = add(type, level.node, level.preserveSpace);
+            values[node] = stringId(value == null ? "" : value);
+            if (target == null) {
+                link(level, node, COMMENT_KEY);
+            }
+            else {
+                names[node] = nameId(null, target, null);
+                link(level, node, 3 + 2 * names[node]);
+            }
+        }
+
+        /**
+         * Collect text until the next node that is not text.
+         * @param text to append
+         */
+        private void appendText(String text) {
+            // XML does not allow text outside the document element
+            if (depth > 0 && text != null && text.length() > 0) {
+                current().appendText(text);
+            }
+        }
+
+        /**
+         * Add the text collected so far as a text node.
+         * @param level of the parent
+         */
+        private void flushText(Level level) {
+            String text = level.takeText();
+            if (text != null) {
+                int node = add(TEXT_NODE, level.node, level.preserveSpace);
+                values[node] = stringId(text);
+                link(level, node, TEXT_KEY);
+            }
+        }
+
+        /**
+         * Get the id of a name, adding it to the name table if needed.
+         * @param prefix of the name or null
+         * @param localName of the name
+         * @param namespaceURI of the name or null
+         * @return id
+         */
+        private int nameId(String prefix, String localName, String namespaceURI) {
+            int[] ids = (int[]) nameIdsByLocalName.get(localName);
+            int count = ids == null ? 0 : ids.length;
+            // elements are numbered among the siblings with the same
+            // namespace URI and local name, whatever their prefix
+            Integer expandedId = null;
+            for (int i = 0; i < count; i++) {
+                if (Objects.equals(namespaceURI, namespaceURITable.get(ids[i]))) {
+                    if (Objects.equals(prefix, prefixTable.get(ids[i]))) {
+                        return ids[i];
+                    }
+                    expandedId = (Integer) expandedNameIds.get(ids[i]);
+                }
+            }
+            int id = localNameTable.size();
+            localNameTable.add(poolName(localName));
+            prefixTable.add(poolName(prefix));
+            namespaceURITable.add(poolName(namespaceURI));
+            expandedNameIds.add(expandedId == null ? new Integer(id) : expandedId);
+            ids = ids == null ? new int[1] : Arrays.copyOf(ids, count + 1);
+            ids[count] = id;
+            nameIdsByLocalName.put(localName, ids);
+            return id;
+        }
+
+        /**
+         * Get the one instance of a name that all nodes share.
+         * @param name to pool
+         * @return String or null
+         */
+        private String poolName(String name) {
+            if (name == null) {
+                return null;
+            }
+            String pooled = (String) pooledNames.get(name);
+            if (pooled == null) {
+                pooled = name;
+                pooledNames.put(name, name);
+            }
+            return pooled;
+        }
+
+        /**
+         * Get the pool id of a value, adding it to the pool if needed.
+         * @param value to pool
+         * @return id
+         */
+        private int stringId(String value) {
+            Integer id = (Integer) stringIds.get(value);
+            if (id == null) {
+                id = new Integer(strings.size());
+                strings.add(value);
+                stringIds.put(value, id);
+            }
+            return id.intValue();
+        }
+
+        /**
+         * Turn "" into null, as StAX readers differ in which of the two
+         * they report for a missing prefix or namespace.
+         * @param string to check
+         * @return String or null
+         */
+        private static String emptyToNull(String string) {
+            return string == null || string.equals("") ? null : string;
+        }
+    }
+}
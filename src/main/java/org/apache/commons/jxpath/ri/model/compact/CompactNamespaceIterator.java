@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.compact;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.jxpath.ri.model.NodeIterator;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.apache.commons.jxpath.ri.model.dom.DOMNodePointer;
+import org.apache.commons.jxpath.ri.model.dom.NamespacePointer;
+
+/**
+ * An iterator of the namespaces in scope at an element of a
+ * {@link CompactDocument}: the nearest declaration of each prefix that
+ * is not an undeclaration, followed by the implicit xml namespace.
+ *
+ * @version $Revision$ $Date$
+ */
+public class CompactNamespaceIterator implements NodeIterator {
+    private NodePointer parent;
+    private List prefixes = new ArrayList();
+    private List uris = new ArrayList();
+    private int position = 0;
+
+    /**
+     * Create a new CompactNamespaceIterator.
+     * @param parent pointer to an element or the document
+     */
+    public CompactNamespaceIterator(CompactNodePointer parent) {
+        this.parent = parent;
+        CompactDocument document = parent.getDocument();
+        int element = parent.getNodeIndex();
+        if (element == 0) {
+            element = document.getDocumentElement();
+        }
+        if (element < 0
+                || document.getNodeType(element) != CompactDocument.ELEMENT_NODE) {
+            return;
+        }
+        Set seen = new HashSet();
+        for (; element > 0; element = document.getParent(element)) {
+            int end = document.getEnd(element);
+            for (int i = element + 1; i <= end
+                    && document.getNodeType(i) == CompactDocument.NAMESPACE_NODE; i++) {
+                String prefix = document.getLocalName(i);
+                if (seen.add(prefix) && !document.getValue(i).equals("")) {
+                    prefixes.add(prefix);
+                    uris.add(document.getValue(i));
+                }
+            }
+        }
+        prefixes.add("xml");
+        uris.add(DOMNodePointer.XML_NAMESPACE_URI);
+    }
+
+    public NodePointer getNodePointer() {
+        if (position == 0) {
+            if (!setPosition(1)) {
+                return null;
+            }
+            position = 0;
+        }
+        int index = position - 1;
+        if (index < 0) {
+            index = 0;
+        }
+        return new NamespacePointer(parent, (String) prefixes.get(index),
+                (String) uris.get(index));
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public boolean setPosition(int position) {
+        this.position = position;
+        return position >= 1 && position <= prefixes.size();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.compact;
+
+/**
+ * A node of a {@link CompactDocument}: the document and the index of the
+ * node in it. This is what <code>Pointer.getNode()</code> returns for
+ * nodes of compact documents other than the document itself. Two
+ * CompactNodes are equal if they stand for the same node.
+ *
+ * @version $Revision$ $Date$
+ */
+public final class CompactNode {
+    private final CompactDocument document;
+    private final int index;
+
+    /**
+     * Create a new CompactNode.
+     * @param document owning document
+     * @param index of the node
+     */
+    CompactNode(CompactDocument document, int index) {
+        this.document = document;
+        this.index = index;
+    }
+
+    /**
+     * Get the document of this node.
+     * @return CompactDocument
+     */
+    public CompactDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * Get the index of this node in its document.
+     * @return int
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the type of this node.
+     * @return one of the CompactDocument.*_NODE constants
+     */
+    public int getNodeType() {
+        return document.getNodeType(index);
+    }
+
+    /**
+     * Get the local name of this node.
+     * @return String
+     * @see CompactDocument#getLocalName(int)
+     */
+    public String getLocalName() {
+        return document.getLocalName(index);
+    }
+
+    /**
+     * Get the namespace URI of this node.
+     * @return String
+     */
+    public String getNamespaceURI() {
+        return document.getNamespaceURI(index);
+    }
+
+    /**
+     * Get the XPath string value of this node.
+     * @return String
+     */
+    public String getStringValue() {
+        return document.getStringValue(index);
+    }
+
+    public int hashCode() {
+        return System.identityHashCode(document) + index;
+    }
+
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+        if (!(object instanceof CompactNode)) {
+            return false;
+        }
+        CompactNode other = (CompactNode) object;
+        return document == other.document && index == other.index;
+    }
+
+    public String toString() {
+        return "[" + index + ": " + document.getLocalName(index) + "]";
+    }
+}
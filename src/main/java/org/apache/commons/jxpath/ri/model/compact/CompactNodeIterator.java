@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.compact;
+
+import org.apache.commons.jxpath.ri.compiler.NodeNameTest;
+import org.apache.commons.jxpath.ri.compiler.NodeTest;
+import org.apache.commons.jxpath.ri.model.CursorNodeIterator;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+
+/**
+ * An iterator of children of a node of a {@link CompactDocument}. It moves
+ * along the sibling links of the document and only creates a pointer for
+ * a child that is asked for.
+ *
+ * @version $Revision$ $Date$
+ */
+public class CompactNodeIterator implements CursorNodeIterator {
+    private NodePointer parent;
+    private NodeTest nodeTest;
+    private CompactDocument document;
+    private int node;
+    private int child = -1;
+    private boolean reverse;
+    private int position = 0;
+    private String localName;
+    private boolean testLocalName;
+    private CompactNodePointer cursor;
+
+    /**
+     * Create a new CompactNodeIterator.
+     * @param parent pointer to a node of a compact document
+     * @param nodeTest test
+     * @param reverse whether to iterate in reverse
+     * @param startWith starting pointer
+     */
+    public CompactNodeIterator(
+        CompactNodePointer parent,
+        NodeTest nodeTest,
+        boolean reverse,
+        NodePointer startWith) {
+        this.parent = parent;
+        this.document = parent.getDocument();
+        this.node = parent.getNodeIndex();
+        if (startWith instanceof CompactNodePointer) {
+            this.child = ((CompactNodePointer) startWith).getNodeIndex();
+        }
+        this.nodeTest = nodeTest;
+        this.reverse = reverse;
+        if (nodeTest instanceof NodeNameTest
+                && !((NodeNameTest) nodeTest).isWildcard()) {
+            // children with another local name can be skipped by identity
+            localName = document.getPooledName(
+                    ((NodeNameTest) nodeTest).getNodeName().getName());
+            testLocalName = true;
+        }
+    }
+
+    public NodePointer getNodePointer() {
+        if (position == 0) {
+            setPosition(1);
+        }
+        return child < 0 ? null : new CompactNodePointer(parent, document, child);
+    }
+
+    public NodePointer getCursorPointer() {
+        if (position == 0) {
+            setPosition(1);
+        }
+        if (child < 0) {
+            return null;
+        }
+        if (cursor == null) {
+            cursor = new CompactNodePointer(parent, document, child);
+        }
+        else if (cursor.getNodeIndex() != child) {
+            cursor.setNodeIndex(child);
+        }
+        return cursor;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public boolean setPosition(int position) {
+        while (this.position < position) {
+            if (!next()) {
+                return false;
+            }
+        }
+        while (this.position > position) {
+            if (!previous()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Set the previous position.
+     * @return whether valid
+     */
+    private boolean previous() {
+        position--;
+        if (!reverse) {
+            if (position == 0) {
+                child = -1;
+            }
+            else if (child < 0) {
+                child = document.getLastChild(node);
+            }
+            else {
+                child = document.getPreviousSibling(child);
+            }
+            while (child >= 0 && !testChild()) {
+                child = document.getPreviousSibling(child);
+            }
+        }
+        else if (child >= 0) {
+            child = document.getNextSibling(child);
+            while (child >= 0 && !testChild()) {
+                child = document.getNextSibling(child);
+            }
+        }
+        return child >= 0;
+    }
+
+    /**
+     * Set the next position.
+     * @return whether valid
+     */
+    private boolean next() {
+        position++;
+        if (position > 1 && child < 0) {
+            return false;
+        }
+        if (!reverse) {
+            if (position == 1 && child < 0) {
+                child = document.getFirstChild(node);
+            }
+            else {
+                child = document.getNextSibling(child);
+            }
+            while (child >= 0 && !testChild()) {
+                child = document.getNextSibling(child);
+            }
+        }
+        else {
+            if (position == 1 && child < 0) {
+                child = document.getLastChild(node);
+            }
+            else {
+                child = document.getPreviousSibling(child);
+            }
+            while (child >= 0 && !testChild()) {
+                child = document.getPreviousSibling(child);
+            }
+        }
+        return child >= 0;
+    }
+
+    /**
+     * Test child.
+     * @return result of the test
+     */
+    private boolean testChild() {
+        if (testLocalName && document.getLocalName(child) != localName) {
+            return false;
+        }
+        return CompactNodePointer.testNode(document, child, nodeTest);
+    }
+}
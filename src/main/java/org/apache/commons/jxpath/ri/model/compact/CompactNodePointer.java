@@ -0,0 +1,412 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.compact;
+
+import java.util.Locale;
+
+import org.apache.commons.jxpath.ri.Compiler;
+import org.apache.commons.jxpath.ri.NamespaceResolver;
+import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.compiler.NodeNameTest;
+import org.apache.commons.jxpath.ri.compiler.NodeTest;
+import org.apache.commons.jxpath.ri.compiler.NodeTypeTest;
+import org.apache.commons.jxpath.ri.compiler.ProcessingInstructionTest;
+import org.apache.commons.jxpath.ri.model.NodeIterator;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.apache.commons.jxpath.ri.model.dom.DOMNodePointer;
+import org.apache.commons.jxpath.ri.model.dom.NamespacePointer;
+
+/**
+ * A Pointer that points to a node of a {@link CompactDocument}: the
+ * document, an element, an attribute, text, a comment or a processing
+ * instruction. Document order is the order of the node indexes, so
+ * comparing two pointers into the same document does not walk their
+ * parent chains. Compact documents are read-only.
+ *
+ * @version $Revision$ $Date$
+ */
+public class CompactNodePointer extends NodePointer {
+
+    private static final long serialVersionUID = 2716328526178420452L;
+
+    private final CompactDocument document;
+    private int node;
+    private NamespaceResolver localNamespaceResolver;
+
+    /**
+     * Create a new CompactNodePointer.
+     * @param document the node belongs to
+     * @param node index of the node
+     * @param locale Locale
+     */
+    public CompactNodePointer(CompactDocument document, int node, Locale locale) {
+        super(null, locale);
+        this.document = document;
+        this.node = node;
+    }
+
+    /**
+     * Create a new CompactNodePointer.
+     * @param parent pointer
+     * @param document the node belongs to
+     * @param node index of the node
+     */
+    public CompactNodePointer(NodePointer parent, CompactDocument document, int node) {
+        super(parent);
+        this.document = document;
+        this.node = node;
+    }
+
+    /**
+     * Get the document of the node.
+     * @return CompactDocument
+     */
+    public CompactDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * Get the index of the node in its document.
+     * @return int
+     */
+    public int getNodeIndex() {
+        return node;
+    }
+
+    /**
+     * Point at another child of the same parent, for use as the cursor
+     * of a CompactNodeIterator.
+     * @param node index of the node to point at
+     */
+    void setNodeIndex(int node) {
+        this.node = node;
+        localNamespaceResolver = null;
+    }
+
+    public boolean testNode(NodeTest test) {
+        return testNode(document, node, test);
+    }
+
+    /**
+     * Test a node.
+     * @param document the node belongs to
+     * @param index of the node
+     * @param test to execute
+     * @return true if the node passes the test
+     */
+    static boolean testNode(CompactDocument document, int index, NodeTest test) {
+        if (test == null) {
+            return true;
+        }
+        int type = document.getNodeType(index);
+        if (type == CompactDocument.ATTRIBUTE_NODE
+                || type == CompactDocument.NAMESPACE_NODE) {
+            return test instanceof NodeTypeTest
+                    && ((NodeTypeTest) test).getNodeType() == Compiler.NODE_TYPE_NODE;
+        }
+        if (test instanceof NodeNameTest) {
+            if (type != CompactDocument.ELEMENT_NODE) {
+                return false;
+            }
+
+            NodeNameTest nodeNameTest = (NodeNameTest) test;
+            QName testName = nodeNameTest.getNodeName();
+            String testPrefix = testName.getPrefix();
+            boolean wildcard = nodeNameTest.isWildcard();
+            if (wildcard && testPrefix == null) {
+                return true;
+            }
+            if (wildcard
+                    || testName.getName().equals(document.getLocalName(index))) {
+                String nodeNS = document.getNamespaceURI(index);
+                return equalStrings(nodeNameTest.getNamespaceURI(), nodeNS)
+                        || nodeNS == null
+                        && equalStrings(testPrefix, document.getPrefix(index));
+            }
+            return false;
+        }
+        if (test instanceof NodeTypeTest) {
+            switch (((NodeTypeTest) test).getNodeType()) {
+                case Compiler.NODE_TYPE_NODE :
+                    return true;
+                case Compiler.NODE_TYPE_TEXT :
+                    return type == CompactDocument.TEXT_NODE;
+                case Compiler.NODE_TYPE_COMMENT :
+                    return type == CompactDocument.COMMENT_NODE;
+                case Compiler.NODE_TYPE_PI :
+                    return type == CompactDocument.PROCESSING_INSTRUCTION_NODE;
+                default :
+                    return false;
+            }
+        }
+        if (test instanceof ProcessingInstructionTest
+                && type == CompactDocument.PROCESSING_INSTRUCTION_NODE) {
+            String testPI = ((ProcessingInstructionTest) test).getTarget();
+            return testPI.equals(document.getLocalName(index));
+        }
+        return false;
+    }
+
+    /**
+     * Test string equality.
+     * @param s1 String 1
+     * @param s2 String 2
+     * @return true if == or .equals()
+     */
+    private static boolean equalStrings(String s1, String s2) {
+        if (s1 == s2) {
+            return true;
+        }
+        s1 = s1 == null ? "" : s1.trim();
+        s2 = s2 == null ? "" : s2.trim();
+        return s1.equals(s2);
+    }
+
+    public QName getName() {
+        switch (document.getNodeType(node)) {
+            case CompactDocument.ELEMENT_NODE :
+            case CompactDocument.ATTRIBUTE_NODE :
+                return new QName(document.getPrefix(node), document.getLocalName(node));
+            case CompactDocument.PROCESSING_INSTRUCTION_NODE :
+                return new QName(null, document.getLocalName(node));
+            default :
+                return new QName(null, null);
+        }
+    }
+
+    public String getNamespaceURI() {
+        return document.getNamespaceURI(node);
+    }
+
+    public NodeIterator childIterator(NodeTest test, boolean reverse,
+            NodePointer startWith) {
+        return new CompactNodeIterator(this, test, reverse, startWith);
+    }
+
+    public NodeIterator attributeIterator(QName name) {
+        return new CompactAttributeIterator(this, name);
+    }
+
+    public NodePointer namespacePointer(String prefix) {
+        return new NamespacePointer(this, prefix);
+    }
+
+    public NodeIterator namespaceIterator() {
+        return new CompactNamespaceIterator(this);
+    }
+
+    public synchronized NamespaceResolver getNamespaceResolver() {
+        if (localNamespaceResolver == null) {
+            localNamespaceResolver = new NamespaceResolver(super.getNamespaceResolver());
+            localNamespaceResolver.setNamespaceContextPointer(this);
+        }
+        return localNamespaceResolver;
+    }
+
+    public String getNamespaceURI(String prefix) {
+        if (prefix == null || prefix.equals("")) {
+            return getDefaultNamespaceURI();
+        }
+        if (prefix.equals("xml")) {
+            return DOMNodePointer.XML_NAMESPACE_URI;
+        }
+        if (prefix.equals("xmlns")) {
+            return DOMNodePointer.XMLNS_NAMESPACE_URI;
+        }
+        return document.lookupNamespaceURI(node, prefix);
+    }
+
+    public String getDefaultNamespaceURI() {
+        return document.lookupNamespaceURI(node, "");
+    }
+
+    public Object getBaseValue() {
+        return document.getNode(node);
+    }
+
+    public Object getImmediateNode() {
+        return document.getNode(node);
+    }
+
+    public boolean isActual() {
+        return true;
+    }
+
+    public boolean isCollection() {
+        return false;
+    }
+
+    public int getLength() {
+        return 1;
+    }
+
+    public boolean isLeaf() {
+        return document.getFirstChild(node) < 0;
+    }
+
+    /**
+     * Returns true if the xml:lang attribute for the current node
+     * or its parent has the specified prefix <i>lang</i>.
+     * If no node has this prefix, calls <code>super.isLanguage(lang)</code>.
+     * @param lang ns to test
+     * @return boolean
+     */
+    public boolean isLanguage(String lang) {
+        String current = document.findEnclosingXMLAttribute(node, "lang");
+        return current == null ? super.isLanguage(lang)
+                : current.toUpperCase(Locale.ENGLISH).startsWith(lang.toUpperCase(Locale.ENGLISH));
+    }
+
+    public Object getValue() {
+        return document.getStringValue(node);
+    }
+
+    /**
+     * Compact documents are read-only.
+     * @param value ignored
+     */
+    public void setValue(Object value) {
+        throw new UnsupportedOperationException("Cannot modify compact XML documents");
+    }
+
+    /**
+     * Compact documents are read-only.
+     */
+    public void remove() {
+        throw new UnsupportedOperationException("Cannot modify compact XML documents");
+    }
+
+    public String asPath() {
+        StringBuffer buffer = new StringBuffer();
+        if (parent != null) {
+            buffer.append(parent.asPath());
+        }
+        switch (document.getNodeType(node)) {
+            case CompactDocument.ELEMENT_NODE :
+                // If the parent pointer is not a CompactNodePointer, it is
+                // the parent's responsibility to produce the node test part
+                // of the path
+                if (parent instanceof CompactNodePointer) {
+                    appendSlash(buffer);
+                    String ln = document.getLocalName(node);
+                    String nsURI = document.getNamespaceURI(node);
+                    String prefix = nsURI == null ? null
+                            : getNamespaceResolver().getPrefix(nsURI);
+                    if (nsURI == null || prefix != null) {
+                        if (prefix != null) {
+                            buffer.append(prefix).append(':');
+                        }
+                        buffer.append(ln);
+                        buffer.append('[').append(document.getPosition(node)).append(']');
+                    }
+                    else {
+                        buffer.append("node()");
+                        buffer.append('[').append(getRelativePositionOfElement()).append(']');
+                    }
+                }
+                break;
+            case CompactDocument.ATTRIBUTE_NODE :
+                if (parent != null) {
+                    appendSlash(buffer);
+                }
+                buffer.append('@').append(getName());
+                break;
+            case CompactDocument.TEXT_NODE :
+                buffer.append("/text()");
+                buffer.append('[').append(document.getPosition(node)).append(']');
+                break;
+            case CompactDocument.COMMENT_NODE :
+                buffer.append("/comment()");
+                buffer.append('[').append(document.getPosition(node)).append(']');
+                break;
+            case CompactDocument.PROCESSING_INSTRUCTION_NODE :
+                buffer.append("/processing-instruction(\'");
+                buffer.append(document.getLocalName(node)).append("')");
+                buffer.append('[').append(document.getPosition(node)).append(']');
+                break;
+            default :
+                // the document path is empty
+                break;
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Append a slash to a path unless it ends with one.
+     * @param buffer path
+     */
+    private static void appendSlash(StringBuffer buffer) {
+        if (buffer.length() == 0 || buffer.charAt(buffer.length() - 1) != '/') {
+            buffer.append('/');
+        }
+    }
+
+    /**
+     * Get the position of this element among the elements of its parent,
+     * which is not recorded in the document.
+     * @return 1-based position
+     */
+    private int getRelativePositionOfElement() {
+        int count = 1;
+        for (int sibling = document.getFirstChild(document.getParent(node));
+                sibling != node; sibling = document.getNextSibling(sibling)) {
+            if (document.getNodeType(sibling) == CompactDocument.ELEMENT_NODE) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int hashCode() {
+        return System.identityHashCode(document) + node;
+    }
+
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+        if (!(object instanceof CompactNodePointer)) {
+            return false;
+        }
+        CompactNodePointer other = (CompactNodePointer) object;
+        return document == other.document && node == other.node;
+    }
+
+    public int compareTo(Object object) {
+        if (object instanceof CompactNodePointer) {
+            CompactNodePointer other = (CompactNodePointer) object;
+            if (document == other.document && node != other.node) {
+                return node < other.node ? -1 : 1;
+            }
+        }
+        return super.compareTo(object);
+    }
+
+    public int compareChildNodePointers(NodePointer pointer1,
+            NodePointer pointer2) {
+        // namespace pointers come before attributes and children
+        if (!(pointer1 instanceof CompactNodePointer)) {
+            return pointer2 instanceof CompactNodePointer ? -1 : 0;
+        }
+        if (!(pointer2 instanceof CompactNodePointer)) {
+            return 1;
+        }
+        int index1 = ((CompactNodePointer) pointer1).node;
+        int index2 = ((CompactNodePointer) pointer2).node;
+        return index1 == index2 ? 0 : index1 < index2 ? -1 : 1;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.compact;
+
+import java.util.Locale;
+
+import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.model.ClassBasedNodePointerFactory;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+
+/**
+ * Implements NodePointerFactory for compact documents and their nodes.
+ *
+ * @version $Revision$ $Date$
+ */
+public class CompactPointerFactory implements ClassBasedNodePointerFactory {
+
+    /** factory order constant */
+    public static final int COMPACT_POINTER_FACTORY_ORDER = 120;
+
+    public int getOrder() {
+        return COMPACT_POINTER_FACTORY_ORDER;
+    }
+
+    public NodePointer createNodePointer(
+            QName name, Object bean, Locale locale) {
+        if (bean instanceof CompactDocument) {
+            return new CompactNodePointer((CompactDocument) bean, 0, locale);
+        }
+        if (bean instanceof CompactNode) {
+            CompactNode node = (CompactNode) bean;
+            return new CompactNodePointer(node.getDocument(), node.getIndex(), locale);
+        }
+        return null;
+    }
+
+    public NodePointer createNodePointer(
+            NodePointer parent, QName name, Object bean) {
+        if (bean instanceof CompactDocument) {
+            return new CompactNodePointer(parent, (CompactDocument) bean, 0);
+        }
+        if (bean instanceof CompactNode) {
+            CompactNode node = (CompactNode) bean;
+            return new CompactNodePointer(parent, node.getDocument(), node.getIndex());
+        }
+        return null;
+    }
+
+    public boolean isClassBased(Class type) {
+        return true;
+    }
+}
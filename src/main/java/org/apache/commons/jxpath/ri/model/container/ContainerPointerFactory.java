@@ -20,8 +20,8 @@ import java.util.Locale;
 
 import org.apache.commons.jxpath.Container;
 import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.model.ClassBasedNodePointerFactory;
 import org.apache.commons.jxpath.ri.model.NodePointer;
-import org.apache.commons.jxpath.ri.model.NodePointerFactory;
 
 /**
  * Implements NodePointerFactory for {@link Container} objects.
@@ -29,7 +29,7 @@ import org.apache.commons.jxpath.ri.model.NodePointerFactory;
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
  */
-public class ContainerPointerFactory implements NodePointerFactory {
+public class ContainerPointerFactory implements ClassBasedNodePointerFactory {
     /** factory order for this factory */
     public static final int CONTAINER_POINTER_FACTORY_ORDER = 200;
 
@@ -47,4 +47,8 @@ public class ContainerPointerFactory implements NodePointerFactory {
         return bean instanceof Container ? new ContainerPointer(parent,
                 (Container) bean) : null;
     }
+
+    public boolean isClassBased(Class type) {
+        return true;
+    }
 }
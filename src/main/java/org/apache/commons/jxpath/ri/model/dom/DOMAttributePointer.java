@@ -101,10 +101,12 @@ public class DOMAttributePointer extends NodePointer {
      */
     public void setValue(Object value) {
         attr.setValue((String) TypeUtils.convert(value, String.class));
+        DOMNodePointer.modified();
     }
 
     public void remove() {
         attr.getOwnerElement().removeAttributeNode(attr);
+        DOMNodePointer.modified();
     }
 
     public String asPath() {
@@ -121,6 +123,11 @@ public class DOMAttributePointer extends NodePointer {
         return buffer.toString();
     }
 
+    public int compareTo(Object object) {
+        int order = DOMDocumentOrder.compare(this, object);
+        return order == DOMDocumentOrder.UNKNOWN ? super.compareTo(object) : order;
+    }
+
     public int hashCode() {
         return System.identityHashCode(attr);
     }
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.dom;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Preorder numbers of the nodes of a DOM document, used to compare DOM
+ * pointers in document order without walking up their pointer chains and
+ * across sibling lists. The index is built on the first comparison; see
+ * {@link JXPathContextReferenceImpl#setIndexDocuments(boolean)}. User data
+ * is DOM Level 3, so the indexes live in a side table; every node refers
+ * to its document, so both the table and the indexes hold the nodes weakly.
+ *
+ * @version $Revision$ $Date$
+ */
+final class DOMDocumentOrder {
+    /** Returned by {@link #compare(NodePointer, Object)} when it cannot tell */
+    static final int UNKNOWN = Integer.MIN_VALUE;
+
+    /** Document -> DOMDocumentOrder */
+    private static final Map INDEXES = new WeakHashMap();
+
+    private final Map order = new WeakHashMap();
+    private int counter;
+
+    /**
+     * Number the nodes of the supplied document.
+     * @param document to index
+     */
+    private DOMDocumentOrder(Document document) {
+        number(document);
+    }
+
+    /**
+     * Number a node, its attributes and then its children.
+     * @param node to number
+     */
+    private void number(Node node) {
+        order.put(node, new Integer(counter++));
+        NamedNodeMap attributes = node.getAttributes();
+        if (attributes != null) {
+            int length = attributes.getLength();
+            for (int i = 0; i < length; i++) {
+                order.put(attributes.item(i), new Integer(counter++));
+            }
+        }
+        for (Node child = node.getFirstChild(); child != null;
+                child = child.getNextSibling()) {
+            number(child);
+        }
+    }
+
+    /**
+     * Compare the nodes of two DOM pointers in document order.
+     * @param pointer DOMNodePointer or DOMAttributePointer
+     * @param object the other pointer
+     * @return -1 or 1, or UNKNOWN when the index is disabled, the pointers
+     * do not point to distinct nodes of the same document, or a node is
+     * not attached to the document
+     */
+    static int compare(NodePointer pointer, Object object) {
+        if (!JXPathContextReferenceImpl.isIndexDocuments()
+                || !(object instanceof DOMNodePointer
+                        || object instanceof DOMAttributePointer)) {
+            return UNKNOWN;
+        }
+        Node node1 = (Node) pointer.getBaseValue();
+        Node node2 = (Node) ((NodePointer) object).getBaseValue();
+        Document document = getDocument(node1);
+        if (node1 == node2 || document == null
+                || document != getDocument(node2)) {
+            return UNKNOWN;
+        }
+        Integer order1;
+        Integer order2;
+        synchronized (INDEXES) {
+            DOMDocumentOrder index = (DOMDocumentOrder) INDEXES.get(document);
+            if (index == null || !index.contains(node1, node2)) {
+                if (index != null
+                        && !(isAttached(node1) && isAttached(node2))) {
+                    return UNKNOWN;
+                }
+                index = new DOMDocumentOrder(document);
+                INDEXES.put(document, index);
+            }
+            order1 = (Integer) index.order.get(node1);
+            order2 = (Integer) index.order.get(node2);
+        }
+        if (order1 == null || order2 == null) {
+            return UNKNOWN;
+        }
+        return order1.intValue() < order2.intValue() ? -1 : 1;
+    }
+
+    /**
+     * Drop the index of the document the supplied node belongs to, if any.
+     * Called whenever JXPath modifies a document.
+     * @param node that is about to change
+     */
+    static void invalidate(Node node) {
+        if (!JXPathContextReferenceImpl.isIndexDocuments()) {
+            return;
+        }
+        Document document = getDocument(node);
+        if (document != null) {
+            synchronized (INDEXES) {
+                INDEXES.remove(document);
+            }
+        }
+    }
+
+    /**
+     * Learn whether both nodes have been numbered.
+     * @param node1 first node
+     * @param node2 second node
+     * @return boolean
+     */
+    private boolean contains(Node node1, Node node2) {
+        return order.containsKey(node1) && order.containsKey(node2);
+    }
+
+    /**
+     * Get the document of a node.
+     * @param node to check
+     * @return Document or null
+     */
+    private static Document getDocument(Node node) {
+        return node.getNodeType() == Node.DOCUMENT_NODE ? (Document) node
+                : node.getOwnerDocument();
+    }
+
+    /**
+     * Learn whether a node can be reached from its document, i.e. whether
+     * it is missing from an index because it was added after the index
+     * was built rather than because it is detached.
+     * @param node to check
+     * @return boolean
+     */
+    private static boolean isAttached(Node node) {
+        Node current = node;
+        while (current != null && current.getNodeType() != Node.DOCUMENT_NODE) {
+            current = current.getNodeType() == Node.ATTRIBUTE_NODE
+                    ? ((Attr) current).getOwnerElement() : current.getParentNode();
+        }
+        return current != null;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.dom;
+
+import java.util.Map;
+
+import org.apache.commons.jxpath.ri.model.AttributeIdentityManager;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * An {@link AttributeIdentityManager} for DOM documents. When installed,
+ * <code>id()</code> on a DOM document consults it instead of
+ * {@link Document#getElementById(String)}.
+ *
+ * @version $Revision$ $Date$
+ */
+public class DOMIdentityManager extends AttributeIdentityManager {
+
+    /**
+     * Create a new DOMIdentityManager.
+     * @param attributeNames qualified names of the ID attributes, e.g.
+     * <code>{"id", "xml:id"}</code>
+     */
+    public DOMIdentityManager(String[] attributeNames) {
+        super(attributeNames);
+    }
+
+    protected Object getDocument(Object node) {
+        if (!(node instanceof Node)) {
+            return null;
+        }
+        Node domNode = (Node) node;
+        return domNode.getNodeType() == Node.DOCUMENT_NODE ? domNode
+                : domNode.getOwnerDocument();
+    }
+
+    protected int getModificationCount() {
+        return DOMNodePointer.getModificationCount();
+    }
+
+    protected void collectIDs(Object document, String[] attributeNames,
+            Map nodes) {
+        Element root = ((Document) document).getDocumentElement();
+        if (root != null) {
+            collectIDs(root, attributeNames, nodes);
+        }
+    }
+
+    /**
+     * Record the IDs of an element and its descendants.
+     * @param element to walk
+     * @param attributeNames qualified names of the ID attributes
+     * @param nodes id -> WeakReference to the element
+     */
+    private void collectIDs(Element element, String[] attributeNames,
+            Map nodes) {
+        for (int i = 0; i < attributeNames.length; i++) {
+            Attr attr = element.getAttributeNode(attributeNames[i]);
+            if (attr != null) {
+                addID(nodes, attr.getValue(), element);
+                break;
+            }
+        }
+        for (Node child = element.getFirstChild(); child != null;
+                child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                collectIDs((Element) child, attributeNames, nodes);
+            }
+        }
+    }
+
+    protected NodePointer createPointer(Object node, NodePointer pointer,
+            String id) {
+        return new DOMNodePointer((Node) node, pointer.getLocale(), id);
+    }
+}
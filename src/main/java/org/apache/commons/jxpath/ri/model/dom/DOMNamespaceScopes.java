@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.dom;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * The namespace declarations in scope of the elements of a DOM document,
+ * collected once per element from its own <code>xmlns</code> attributes
+ * and its parent's scope, and kept in a side table keyed weakly by the
+ * document, as in {@link DOMDocumentOrder}. An element that declares
+ * nothing shares the map of its parent. Maps the prefix, or "" for the
+ * default namespace, to the declared URI. See
+ * {@link JXPathContextReferenceImpl#setIndexDocuments(boolean)}.
+ *
+ * @version $Revision$ $Date$
+ */
+final class DOMNamespaceScopes {
+    /** Document -> DOMNamespaceScopes */
+    private static final Map TABLES = new WeakHashMap();
+
+    private final Map scopes = new WeakHashMap();
+    private final int modificationCount;
+
+    /**
+     * Create a new DOMNamespaceScopes.
+     * @param modificationCount of DOM trees when created
+     */
+    private DOMNamespaceScopes(int modificationCount) {
+        this.modificationCount = modificationCount;
+    }
+
+    /**
+     * Get the namespace declarations in scope of a node.
+     * @param node to check
+     * @return prefix -> URI, or null if documents are not indexed
+     */
+    static Map getScope(Node node) {
+        if (!JXPathContextReferenceImpl.isIndexDocuments()) {
+            return null;
+        }
+        Node current = node;
+        if (current.getNodeType() == Node.DOCUMENT_NODE) {
+            current = ((Document) current).getDocumentElement();
+        }
+        while (current != null && current.getNodeType() != Node.ELEMENT_NODE) {
+            current = current.getParentNode();
+        }
+        if (current == null) {
+            return Collections.EMPTY_MAP;
+        }
+        Document document = current.getOwnerDocument();
+        int count = DOMNodePointer.getModificationCount();
+        synchronized (TABLES) {
+            DOMNamespaceScopes table = (DOMNamespaceScopes) TABLES.get(document);
+            if (table == null || table.modificationCount != count) {
+                table = new DOMNamespaceScopes(count);
+                TABLES.put(document, table);
+            }
+            return table.getElementScope((Element) current);
+        }
+    }
+
+    /**
+     * Get the scope of an element, collecting it if needed.
+     * @param element to check
+     * @return prefix -> URI
+     */
+    private Map getElementScope(Element element) {
+        Map scope = (Map) scopes.get(element);
+        if (scope == null) {
+            Node parent = element.getParentNode();
+            while (parent != null && parent.getNodeType() != Node.ELEMENT_NODE) {
+                parent = parent.getParentNode();
+            }
+            Map inherited = parent == null ? Collections.EMPTY_MAP
+                    : getElementScope((Element) parent);
+            scope = inherited;
+            NamedNodeMap attributes = element.getAttributes();
+            int length = attributes.getLength();
+            for (int i = 0; i < length; i++) {
+                Node attr = attributes.item(i);
+                String name = attr.getNodeName();
+                String prefix = null;
+                if (name.equals("xmlns")) {
+                    prefix = "";
+                }
+                else if (name.startsWith("xmlns:")) {
+                    prefix = name.substring(6);
+                }
+                if (prefix != null) {
+                    if (scope == inherited) {
+                        scope = new HashMap(inherited);
+                    }
+                    scope.put(prefix, attr.getNodeValue());
+                }
+            }
+            scopes.put(element, scope);
+        }
+        return scope;
+    }
+}
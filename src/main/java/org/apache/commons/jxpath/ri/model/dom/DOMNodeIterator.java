@@ -17,7 +17,7 @@
 package org.apache.commons.jxpath.ri.model.dom;
 
 import org.apache.commons.jxpath.ri.compiler.NodeTest;
-import org.apache.commons.jxpath.ri.model.NodeIterator;
+import org.apache.commons.jxpath.ri.model.CursorNodeIterator;
 import org.apache.commons.jxpath.ri.model.NodePointer;
 import org.w3c.dom.Node;
 
@@ -27,13 +27,14 @@ import org.w3c.dom.Node;
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
  */
-public class DOMNodeIterator implements NodeIterator {
+public class DOMNodeIterator implements CursorNodeIterator {
     private NodePointer parent;
     private NodeTest nodeTest;
     private Node node;
     private Node child = null;
     private boolean reverse;
     private int position = 0;
+    private DOMNodePointer cursor;
 
     /**
      * Create a new DOMNodeIterator.
@@ -63,6 +64,22 @@ public class DOMNodeIterator implements NodeIterator {
         return child == null ? null : new DOMNodePointer(parent, child);
     }
 
+    public NodePointer getCursorPointer() {
+        if (position == 0) {
+            setPosition(1);
+        }
+        if (child == null) {
+            return null;
+        }
+        if (cursor == null) {
+            cursor = new DOMNodePointer(parent, child);
+        }
+        else if (cursor.getImmediateNode() != child) {
+            cursor.setNode(child);
+        }
+        return cursor;
+    }
+
     public int getPosition() {
         return position;
     }
@@ -19,12 +19,15 @@ package org.apache.commons.jxpath.ri.model.dom;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.jxpath.IdentityManager;
 import org.apache.commons.jxpath.JXPathAbstractFactoryException;
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathException;
 import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.ri.Compiler;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
 import org.apache.commons.jxpath.ri.NamespaceResolver;
 import org.apache.commons.jxpath.ri.QName;
 import org.apache.commons.jxpath.ri.compiler.NodeNameTest;
@@ -60,6 +63,13 @@ public class DOMNodePointer extends NodePointer {
     private String defaultNamespace;
     private String id;
     private NamespaceResolver localNamespaceResolver;
+    private transient DOMSiblingPositions childPositions;
+    private transient String path;
+    private transient Map namespaceScope;
+    private transient int cacheStamp = MODIFICATIONS.get();
+
+    /** Counts changes made by JXPath to DOM trees, see {@link #modified()} */
+    private static final AtomicInteger MODIFICATIONS = new AtomicInteger();
 
     /** XML namespace URI */
     public static final String XML_NAMESPACE_URI =
@@ -233,6 +243,11 @@ public class DOMNodePointer extends NodePointer {
             return XMLNS_NAMESPACE_URI;
         }
 
+        Map scope = getNamespaceScope();
+        if (scope != null) {
+            return getDeclaredURI(scope, prefix);
+        }
+
         String namespace = null;
         if (namespaces == null) {
             namespaces = new HashMap();
@@ -272,6 +287,10 @@ public class DOMNodePointer extends NodePointer {
     }
 
     public String getDefaultNamespaceURI() {
+        Map scope = getNamespaceScope();
+        if (scope != null) {
+            return getDeclaredURI(scope, "");
+        }
         if (defaultNamespace == null) {
             Node aNode = node;
             if (aNode instanceof Document) {
@@ -295,6 +314,34 @@ public class DOMNodePointer extends NodePointer {
         return defaultNamespace.equals("") ? null : defaultNamespace;
     }
 
+    /**
+     * Get the namespace declarations in scope of this node, shared with all
+     * other pointers to nodes of the same element.
+     * @return prefix -> URI, or null if documents are not indexed
+     */
+    private Map getNamespaceScope() {
+        if (!JXPathContextReferenceImpl.isIndexDocuments()) {
+            return null;
+        }
+        checkCaches();
+        if (namespaceScope == null) {
+            namespaceScope = DOMNamespaceScopes.getScope(node);
+        }
+        return namespaceScope;
+    }
+
+    /**
+     * Look a prefix up in a namespace scope.
+     * @param scope prefix -> URI
+     * @param prefix to look up, "" for the default namespace
+     * @return the URI, or null if not declared or undeclared
+     */
+    private static String getDeclaredURI(Map scope, String prefix) {
+        String namespace = (String) scope.get(prefix);
+        // TBD: We are supposed to resolve relative URIs to absolute ones.
+        return namespace == null || namespace.equals("") ? null : namespace;
+    }
+
     public Object getBaseValue() {
         return node;
     }
@@ -303,6 +350,21 @@ public class DOMNodePointer extends NodePointer {
         return node;
     }
 
+    /**
+     * Point at another child of the same parent, for use as the cursor
+     * of a DOMNodeIterator.
+     * @param node to point at
+     */
+    void setNode(Node node) {
+        this.node = node;
+        namespaces = null;
+        defaultNamespace = null;
+        localNamespaceResolver = null;
+        childPositions = null;
+        path = null;
+        namespaceScope = null;
+    }
+
     public boolean isActual() {
         return true;
     }
@@ -369,6 +431,7 @@ public class DOMNodePointer extends NodePointer {
      * @param value to set
      */
     public void setValue(Object value) {
+        DOMDocumentOrder.invalidate(node);
         if (node.getNodeType() == Node.TEXT_NODE
             || node.getNodeType() == Node.CDATA_SECTION_NODE) {
             String string = (String) TypeUtils.convert(value, String.class);
@@ -410,12 +473,14 @@ public class DOMNodePointer extends NodePointer {
                 }
             }
         }
+        modified();
     }
 
     public NodePointer createChild(JXPathContext context, QName name, int index) {
         if (index == WHOLE_COLLECTION) {
             index = 0;
         }
+        DOMDocumentOrder.invalidate(node);
         boolean success =
             getAbstractFactory(context).createObject(
                 context,
@@ -423,6 +488,7 @@ public class DOMNodePointer extends NodePointer {
                 node,
                 name.toString(),
                 index);
+        modified();
         if (success) {
             NodeTest nodeTest;
             String prefix = name.getPrefix();
@@ -448,6 +514,7 @@ public class DOMNodePointer extends NodePointer {
     }
 
     public NodePointer createAttribute(JXPathContext context, QName name) {
+        DOMDocumentOrder.invalidate(node);
         if (!(node instanceof Element)) {
             return super.createAttribute(context, name);
         }
@@ -470,27 +537,44 @@ public class DOMNodePointer extends NodePointer {
                 element.setAttribute(name.getName(), "");
             }
         }
+        modified();
         NodeIterator it = attributeIterator(name);
         it.setPosition(1);
         return it.getNodePointer();
     }
 
     public void remove() {
+        DOMDocumentOrder.invalidate(node);
         Node parent = node.getParentNode();
         if (parent == null) {
             throw new JXPathException("Cannot remove root DOM node");
         }
         parent.removeChild(node);
+        modified();
     }
 
     public String asPath() {
         if (id != null) {
             return "id('" + escape(id) + "')";
         }
+        // Changes made to the tree by other means than JXPath cannot be
+        // seen, so paths are only kept while documents are indexed
+        boolean indexed = JXPathContextReferenceImpl.isIndexDocuments();
+        if (indexed) {
+            checkCaches();
+            if (path != null) {
+                return path;
+            }
+        }
 
         StringBuffer buffer = new StringBuffer();
+        // the path is kept for the children's paths if it only depends
+        // on the positions of nodes, which JXPath tracks changes of
+        boolean cacheable = indexed && parent == null;
         if (parent != null) {
             buffer.append(parent.asPath());
+            cacheable = indexed && parent instanceof DOMNodePointer
+                    && ((DOMNodePointer) parent).path != null;
         }
         switch (node.getNodeType()) {
             case Node.ELEMENT_NODE :
@@ -510,6 +594,7 @@ public class DOMNodePointer extends NodePointer {
                         buffer.append(getRelativePositionByQName()).append(']');
                     }
                     else {
+                        cacheable = false;
                         String prefix = getNamespaceResolver().getPrefix(nsURI);
                         if (prefix != null) {
                             buffer.append(prefix);
@@ -546,7 +631,66 @@ public class DOMNodePointer extends NodePointer {
             default:
                 break;
         }
-        return buffer.toString();
+        String result = buffer.toString();
+        if (cacheable) {
+            path = result;
+        }
+        return result;
+    }
+
+    /**
+     * Record a change made by JXPath to a DOM tree, which drops the cached
+     * paths and sibling positions of all DOM pointers. Counted whether or not
+     * documents are indexed, as the ID indexes of {@link DOMIdentityManager}
+     * depend on it.
+     */
+    static void modified() {
+        MODIFICATIONS.incrementAndGet();
+    }
+
+    /**
+     * Get the number of changes made by JXPath to DOM trees so far.
+     * @return int
+     */
+    static int getModificationCount() {
+        return MODIFICATIONS.get();
+    }
+
+    /**
+     * Drop the cached path, sibling positions and namespace scope if a DOM
+     * tree has been changed since they were computed.
+     */
+    private void checkCaches() {
+        int stamp = MODIFICATIONS.get();
+        if (cacheStamp != stamp) {
+            childPositions = null;
+            path = null;
+            namespaceScope = null;
+            cacheStamp = stamp;
+        }
+    }
+
+    /**
+     * Get the position of this node among its like siblings from the
+     * positions cached by the parent pointer, if documents are indexed and
+     * it points to the parent node.
+     * @param kind of siblings to count, see {@link DOMSiblingPositions}
+     * @return 1..n, or 0 if not available
+     */
+    private int getCachedPosition(int kind) {
+        if (!JXPathContextReferenceImpl.isIndexDocuments()
+                || !(parent instanceof DOMNodePointer)) {
+            return 0;
+        }
+        DOMNodePointer parentPointer = (DOMNodePointer) parent;
+        if (parentPointer.node != node.getParentNode()) {
+            return 0;
+        }
+        parentPointer.checkCaches();
+        if (parentPointer.childPositions == null) {
+            parentPointer.childPositions = new DOMSiblingPositions(parentPointer.node);
+        }
+        return parentPointer.childPositions.getPosition(node, kind);
     }
 
     /**
@@ -554,6 +698,11 @@ public class DOMNodePointer extends NodePointer {
      * @return 1..n
      */
     private int getRelativePositionByQName() {
+        int position = getCachedPosition(getNamespaceURI() == null
+                ? DOMSiblingPositions.BY_NAME : DOMSiblingPositions.BY_EXPANDED_NAME);
+        if (position > 0) {
+            return position;
+        }
         int count = 1;
         Node n = node.getPreviousSibling();
         while (n != null) {
@@ -578,6 +727,10 @@ public class DOMNodePointer extends NodePointer {
      * @return 1..n
      */
     private int getRelativePositionOfElement() {
+        int position = getCachedPosition(DOMSiblingPositions.ELEMENT);
+        if (position > 0) {
+            return position;
+        }
         int count = 1;
         Node n = node.getPreviousSibling();
         while (n != null) {
@@ -594,6 +747,10 @@ public class DOMNodePointer extends NodePointer {
      * @return 1..n
      */
     private int getRelativePositionOfTextNode() {
+        int position = getCachedPosition(DOMSiblingPositions.TEXT);
+        if (position > 0) {
+            return position;
+        }
         int count = 1;
         Node n = node.getPreviousSibling();
         while (n != null) {
@@ -611,6 +768,10 @@ public class DOMNodePointer extends NodePointer {
      * @return 1..n
      */
     private int getRelativePositionOfPI() {
+        int position = getCachedPosition(DOMSiblingPositions.PI);
+        if (position > 0) {
+            return position;
+        }
         int count = 1;
         String target = ((ProcessingInstruction) node).getTarget();
         Node n = node.getPreviousSibling();
@@ -677,7 +838,12 @@ public class DOMNodePointer extends NodePointer {
         Element element = (Element) node;
 
         String uri = element.getNamespaceURI();
-        if (uri == null) {
+        Map scope = uri == null ? DOMNamespaceScopes.getScope(element) : null;
+        if (scope != null) {
+            String prefix = getPrefix(node);
+            uri = (String) scope.get(prefix == null ? "" : prefix);
+        }
+        else if (uri == null) {
             String prefix = getPrefix(node);
             String qname = prefix == null ? "xmlns" : "xmlns:" + prefix;
 
@@ -733,12 +899,18 @@ public class DOMNodePointer extends NodePointer {
     }
 
     /**
-     * Locates a node by ID.
+     * Locates a node by ID, using the context's identity manager if it is a
+     * {@link DOMIdentityManager}, else the ID attributes declared by the
+     * document's DTD or schema.
      * @param context starting context
      * @param id to find
      * @return Pointer
      */
     public Pointer getPointerByID(JXPathContext context, String id) {
+        IdentityManager manager = context.getIdentityManager();
+        if (manager instanceof DOMIdentityManager) {
+            return ((DOMIdentityManager) manager).getPointerByID(this, id);
+        }
         Document document = node.getNodeType() == Node.DOCUMENT_NODE ? (Document) node
                 : node.getOwnerDocument();
         Element element = document.getElementById(id);
@@ -746,6 +918,11 @@ public class DOMNodePointer extends NodePointer {
                 : new DOMNodePointer(element, getLocale(), id);
     }
 
+    public int compareTo(Object object) {
+        int order = DOMDocumentOrder.compare(this, object);
+        return order == DOMDocumentOrder.UNKNOWN ? super.compareTo(object) : order;
+    }
+
     public int compareChildNodePointers(NodePointer pointer1,
             NodePointer pointer2) {
         Node node1 = (Node) pointer1.getBaseValue();
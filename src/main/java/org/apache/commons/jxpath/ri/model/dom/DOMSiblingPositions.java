@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.dom;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+/**
+ * The positions of the children of a DOM node among their like siblings,
+ * as printed by {@link DOMNodePointer#asPath()}, computed in one pass over
+ * the children instead of one backward scan per child.
+ *
+ * @version $Revision$ $Date$
+ */
+final class DOMSiblingPositions {
+    /** Position among elements with the same node name */
+    static final int BY_NAME = 0;
+    /** Position among elements with the same namespace URI and local name */
+    static final int BY_EXPANDED_NAME = 1;
+    /** Position among elements */
+    static final int ELEMENT = 2;
+    /** Position among text and CDATA nodes */
+    static final int TEXT = 3;
+    /** Position among processing instructions with the same target */
+    static final int PI = 4;
+
+    private final Map positions = new IdentityHashMap();
+
+    /**
+     * Number the children of the supplied node.
+     * @param parent node
+     */
+    DOMSiblingPositions(Node parent) {
+        Map names = new HashMap();
+        Map expandedNames = new HashMap();
+        Map targets = new HashMap();
+        int elements = 0;
+        int texts = 0;
+        for (Node child = parent.getFirstChild(); child != null;
+                child = child.getNextSibling()) {
+            int[] position = new int[PI + 1];
+            switch (child.getNodeType()) {
+                case Node.ELEMENT_NODE :
+                    position[BY_NAME] = next(names, child.getNodeName());
+                    String ns = DOMNodePointer.getNamespaceURI(child);
+                    if (ns != null) {
+                        position[BY_EXPANDED_NAME] = next(expandedNames,
+                                Arrays.asList(new String[] {ns, child.getLocalName()}));
+                    }
+                    position[ELEMENT] = ++elements;
+                    break;
+                case Node.TEXT_NODE :
+                case Node.CDATA_SECTION_NODE :
+                    position[TEXT] = ++texts;
+                    break;
+                case Node.PROCESSING_INSTRUCTION_NODE :
+                    position[PI] = next(targets,
+                            ((ProcessingInstruction) child).getTarget());
+                    break;
+                default :
+                    continue;
+            }
+            positions.put(child, position);
+        }
+    }
+
+    /**
+     * Get the position of a child.
+     * @param child node
+     * @param kind of siblings to count, e.g. {@link #ELEMENT}
+     * @return 1..n, or 0 if the child is not known or not of that kind
+     */
+    int getPosition(Node child, int kind) {
+        int[] position = (int[]) positions.get(child);
+        return position == null ? 0 : position[kind];
+    }
+
+    /**
+     * Increment the counter for a key.
+     * @param counts key -> int[1]
+     * @param key to count
+     * @return the new count
+     */
+    private static int next(Map counts, Object key) {
+        int[] count = (int[]) counts.get(key);
+        if (count == null) {
+            count = new int[1];
+            counts.put(key, count);
+        }
+        return ++count[0];
+    }
+}
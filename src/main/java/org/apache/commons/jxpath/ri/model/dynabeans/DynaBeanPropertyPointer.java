@@ -16,9 +16,6 @@
  */
 package org.apache.commons.jxpath.ri.model.dynabeans;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-
 import org.apache.commons.beanutils.DynaBean;
 import org.apache.commons.beanutils.DynaClass;
 import org.apache.commons.beanutils.DynaProperty;
@@ -36,11 +33,10 @@ import org.apache.commons.jxpath.util.ValueUtils;
  * @version $Revision$ $Date$
  */
 public class DynaBeanPropertyPointer extends PropertyPointer {
-    private static final String CLASS = "class";
-
     private DynaBean dynaBean;
     private String name;
     private String[] names;
+    private transient DynaClassPropertyNames nameTable;
 
     private static final long serialVersionUID = 2094421509141267239L;
 
@@ -67,27 +63,41 @@ public class DynaBeanPropertyPointer extends PropertyPointer {
     }
 
     public int getPropertyCount() {
-        return getPropertyNames().length;
+        return getSharedPropertyNames().length;
     }
 
     public String[] getPropertyNames() {
-        /* @todo do something about the sorting - LIKE WHAT? - MJB */
         if (names == null) {
-            DynaClass dynaClass = dynaBean.getDynaClass();
-            DynaProperty[] dynaProperties = dynaClass.getDynaProperties();
-            ArrayList properties = new ArrayList(dynaProperties.length);
-            for (int i = 0; i < dynaProperties.length; i++) {
-                String name = dynaProperties[i].getName();
-                if (!CLASS.equals(name)) {
-                    properties.add(name);
-                }
-            }
-            names = (String[]) properties.toArray(new String[properties.size()]);
-            Arrays.sort(names);
+            names = (String[]) getSharedPropertyNames().clone();
         }
         return names;
     }
 
+    /**
+     * Get the sorted names shared by all DynaBeans of this bean's DynaClass.
+     * Callers outside JXPath get a copy from {@link #getPropertyNames()}.
+     * @return String[]
+     */
+    protected String[] getSharedPropertyNames() {
+        return getNameTable().getNames();
+    }
+
+    public int indexOfProperty(String name) {
+        int index = getNameTable().indexOf(name);
+        return index == -1 ? UNSPECIFIED_PROPERTY : index;
+    }
+
+    /**
+     * Get the names table shared by all DynaBeans of this bean's DynaClass.
+     * @return DynaClassPropertyNames
+     */
+    private DynaClassPropertyNames getNameTable() {
+        if (nameTable == null) {
+            nameTable = DynaClassPropertyNames.forClass(dynaBean.getDynaClass());
+        }
+        return nameTable;
+    }
+
     /**
      * Returns the name of the currently selected property or "*"
      * if none has been selected.
@@ -95,7 +105,7 @@ public class DynaBeanPropertyPointer extends PropertyPointer {
      */
     public String getPropertyName() {
         if (name == null) {
-            String[] names = getPropertyNames();
+            String[] names = getSharedPropertyNames();
             name = propertyIndex >= 0 && propertyIndex < names.length ? names[propertyIndex] : "*";
         }
         return name;
@@ -117,13 +127,10 @@ public class DynaBeanPropertyPointer extends PropertyPointer {
      */
     public int getPropertyIndex() {
         if (propertyIndex == UNSPECIFIED_PROPERTY) {
-            String[] names = getPropertyNames();
-            for (int i = 0; i < names.length; i++) {
-                if (names[i].equals(name)) {
-                    propertyIndex = i;
-                    name = null;
-                    break;
-                }
+            int i = indexOfProperty(name);
+            if (i != UNSPECIFIED_PROPERTY) {
+                propertyIndex = i;
+                name = null;
             }
         }
         return super.getPropertyIndex();
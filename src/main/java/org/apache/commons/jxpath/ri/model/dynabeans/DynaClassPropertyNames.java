@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.dynabeans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.beanutils.DynaClass;
+import org.apache.commons.beanutils.DynaProperty;
+
+/**
+ * The sorted property names of a DynaClass, shared by the pointers to all
+ * DynaBeans of that class. A table is checked against the properties of
+ * the class each time it is looked up, so that properties added to a
+ * MutableDynaClass, such as a LazyDynaClass, are seen.
+ *
+ * @version $Revision$ $Date$
+ */
+final class DynaClassPropertyNames {
+    private static final String CLASS = "class";
+
+    private static final Map BY_CLASS =
+        Collections.synchronizedMap(new WeakHashMap());
+
+    private final DynaProperty[] properties;
+    private final String[] names;
+    private final Map indexByName;
+
+    /**
+     * Create a new DynaClassPropertyNames.
+     * @param properties of the DynaClass
+     */
+    private DynaClassPropertyNames(DynaProperty[] properties) {
+        this.properties = properties;
+        ArrayList list = new ArrayList(properties.length);
+        for (int i = 0; i < properties.length; i++) {
+            String name = properties[i].getName();
+            if (!CLASS.equals(name)) {
+                list.add(name);
+            }
+        }
+        names = (String[]) list.toArray(new String[list.size()]);
+        Arrays.sort(names);
+        indexByName = new HashMap();
+        for (int i = names.length; --i >= 0;) {
+            indexByName.put(names[i], new Integer(i));
+        }
+    }
+
+    /**
+     * Get the names table for a DynaClass.
+     * @param dynaClass to describe
+     * @return DynaClassPropertyNames
+     */
+    static DynaClassPropertyNames forClass(DynaClass dynaClass) {
+        DynaProperty[] properties = dynaClass.getDynaProperties();
+        DynaClassPropertyNames table =
+            (DynaClassPropertyNames) BY_CLASS.get(dynaClass);
+        if (table == null || !table.describes(properties)) {
+            table = new DynaClassPropertyNames(properties);
+            BY_CLASS.put(dynaClass, table);
+        }
+        return table;
+    }
+
+    /**
+     * Learn whether this table was built from the supplied properties.
+     * @param properties current properties of the DynaClass
+     * @return boolean
+     */
+    private boolean describes(DynaProperty[] properties) {
+        if (properties == this.properties) {
+            return true;
+        }
+        // Some DynaClasses return a copy of their properties
+        if (properties.length != this.properties.length) {
+            return false;
+        }
+        for (int i = 0; i < properties.length; i++) {
+            if (!properties[i].getName().equals(this.properties[i].getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the property names, "class" excepted, sorted alphabetically.
+     * The array is shared and must not be modified.
+     * @return String[]
+     */
+    String[] getNames() {
+        return names;
+    }
+
+    /**
+     * Get the index of a name in {@link #getNames()}.
+     * @param name to find
+     * @return int index or -1 if missing
+     */
+    int indexOf(String name) {
+        Integer index = (Integer) indexByName.get(name);
+        return index == null ? -1 : index.intValue();
+    }
+}
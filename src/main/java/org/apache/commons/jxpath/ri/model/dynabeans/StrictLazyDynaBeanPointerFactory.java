@@ -21,8 +21,8 @@ import java.util.Locale;
 import org.apache.commons.beanutils.LazyDynaBean;
 import org.apache.commons.beanutils.LazyDynaClass;
 import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.model.ClassBasedNodePointerFactory;
 import org.apache.commons.jxpath.ri.model.NodePointer;
-import org.apache.commons.jxpath.ri.model.NodePointerFactory;
 import org.apache.commons.jxpath.ri.model.beans.PropertyPointer;
 
 /**
@@ -35,7 +35,8 @@ import org.apache.commons.jxpath.ri.model.beans.PropertyPointer;
  *
  * @version $Revision$ $Date$
  */
-public class StrictLazyDynaBeanPointerFactory implements NodePointerFactory {
+public class StrictLazyDynaBeanPointerFactory
+        implements ClassBasedNodePointerFactory {
     /**
      * Pointer implementation.
      */
@@ -106,4 +107,7 @@ public class StrictLazyDynaBeanPointerFactory implements NodePointerFactory {
                 (LazyDynaBean) object) : null;
     }
 
+    public boolean isClassBased(Class type) {
+        return true;
+    }
 }
@@ -22,8 +22,8 @@ import org.apache.commons.jxpath.DynamicPropertyHandler;
 import org.apache.commons.jxpath.JXPathBeanInfo;
 import org.apache.commons.jxpath.JXPathIntrospector;
 import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.model.ClassBasedNodePointerFactory;
 import org.apache.commons.jxpath.ri.model.NodePointer;
-import org.apache.commons.jxpath.ri.model.NodePointerFactory;
 import org.apache.commons.jxpath.ri.model.beans.NullPointer;
 import org.apache.commons.jxpath.util.ValueUtils;
 
@@ -33,7 +33,7 @@ import org.apache.commons.jxpath.util.ValueUtils;
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
  */
-public class DynamicPointerFactory implements NodePointerFactory {
+public class DynamicPointerFactory implements ClassBasedNodePointerFactory {
 
     /**
      * Factory order constant.
@@ -75,4 +75,9 @@ public class DynamicPointerFactory implements NodePointerFactory {
         }
         return null;
     }
+
+    public boolean isClassBased(Class type) {
+        // Registering the class with JXPathIntrospector changes the decision
+        return false;
+    }
 }
@@ -17,6 +17,7 @@
 package org.apache.commons.jxpath.ri.model.dynamic;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
 
 import org.apache.commons.jxpath.AbstractFactory;
@@ -24,6 +25,7 @@ import org.apache.commons.jxpath.DynamicPropertyHandler;
 import org.apache.commons.jxpath.JXPathAbstractFactoryException;
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathInvalidAccessException;
+import org.apache.commons.jxpath.MapDynamicPropertyHandler;
 import org.apache.commons.jxpath.ri.model.NodePointer;
 import org.apache.commons.jxpath.ri.model.beans.PropertyPointer;
 import org.apache.commons.jxpath.util.ValueUtils;
@@ -94,6 +96,54 @@ public class DynamicPropertyPointer extends PropertyPointer {
         return names;
     }
 
+    public int indexOfProperty(String name) {
+        return indexOfSortedName(getPropertyNames(), name);
+    }
+
+    /**
+     * Select the named property if it exists. The keys of a Map are
+     * looked up directly rather than listed and sorted.
+     * @param propertyName property name
+     * @return <code>false</code> if there is no such property
+     */
+    public boolean selectProperty(String propertyName) {
+        if (!propertyName.equals(requiredPropertyName) && names == null
+                && handler.getClass() == MapDynamicPropertyHandler.class
+                && getBean() instanceof Map) {
+            if (!containsKey((Map) getBean(), propertyName)) {
+                return false;
+            }
+            setPropertyName(propertyName);
+            return true;
+        }
+        return super.selectProperty(propertyName);
+    }
+
+    /**
+     * Learn whether a Map has the key <code>name</code>. Keys are looked up
+     * as Strings, as MapDynamicPropertyHandler reads them; only a Map that
+     * does not accept String keys has its keys compared by their string
+     * value, as listed by MapDynamicPropertyHandler.
+     * @param map to search
+     * @param name to find
+     * @return boolean
+     */
+    private static boolean containsKey(Map map, String name) {
+        try {
+            return map.containsKey(name);
+        }
+        catch (RuntimeException ex) { //NOPMD
+            // The map does not accept String keys, compare them all
+        }
+        Iterator it = map.keySet().iterator();
+        while (it.hasNext()) {
+            if (String.valueOf(it.next()).equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns the name of the currently selected property or "*"
      * if none has been selected.
@@ -131,12 +181,9 @@ public class DynamicPropertyPointer extends PropertyPointer {
      */
     public int getPropertyIndex() {
         if (propertyIndex == UNSPECIFIED_PROPERTY) {
-            String[] names = getPropertyNames();
-            for (int i = 0; i < names.length; i++) {
-                if (names[i].equals(name)) {
-                    setPropertyIndex(i);
-                    break;
-                }
+            int i = indexOfProperty(name);
+            if (i != UNSPECIFIED_PROPERTY) {
+                setPropertyIndex(i);
             }
         }
         return super.getPropertyIndex();
@@ -178,7 +225,7 @@ public class DynamicPropertyPointer extends PropertyPointer {
                     getPropertyName()));
         }
         else {
-            value = ValueUtils.getValue(handler.getProperty(
+            value = getCollectionElement(handler.getProperty(
                     getBean(),
                     getPropertyName()), index);
         }
@@ -86,10 +86,12 @@ public class JDOMAttributePointer extends NodePointer {
 
     public void setValue(Object value) {
         attr.setValue((String) TypeUtils.convert(value, String.class));
+        JDOMNodePointer.modified();
     }
 
     public void remove() {
         attr.getParent().removeAttribute(attr);
+        JDOMNodePointer.modified();
     }
 
     public String asPath() {
@@ -106,6 +108,11 @@ public class JDOMAttributePointer extends NodePointer {
         return buffer.toString();
     }
 
+    public int compareTo(Object object) {
+        int order = JDOMDocumentOrder.compare(this, object);
+        return order == JDOMDocumentOrder.UNKNOWN ? super.compareTo(object) : order;
+    }
+
     public int hashCode() {
         return System.identityHashCode(attr);
     }
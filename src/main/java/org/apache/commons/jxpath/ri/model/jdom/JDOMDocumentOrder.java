@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.jdom;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.jdom.Attribute;
+import org.jdom.Content;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.Parent;
+
+/**
+ * Preorder numbers of the nodes of a JDOM document, used to compare JDOM
+ * pointers in document order without walking up their pointer chains and
+ * across content lists. JDOM has no place to hang data on a document, so
+ * the indexes live in a side table; both the table and the indexes hold
+ * the nodes weakly. See
+ * {@link JXPathContextReferenceImpl#setIndexDocuments(boolean)}.
+ *
+ * @version $Revision$ $Date$
+ */
+final class JDOMDocumentOrder {
+    /** Returned by {@link #compare(NodePointer, Object)} when it cannot tell */
+    static final int UNKNOWN = Integer.MIN_VALUE;
+
+    /** Root (Document or parentless Element) -> JDOMDocumentOrder */
+    private static final Map INDEXES = new WeakHashMap();
+
+    private final Map order = new WeakHashMap();
+    private int counter;
+
+    /**
+     * Number the nodes of the tree under the supplied root.
+     * @param root Document or Element
+     */
+    private JDOMDocumentOrder(Object root) {
+        number(root);
+    }
+
+    /**
+     * Number a node, its attributes and then its content.
+     * @param node to number
+     */
+    private void number(Object node) {
+        order.put(node, new Integer(counter++));
+        List content;
+        if (node instanceof Element) {
+            List attributes = ((Element) node).getAttributes();
+            int length = attributes.size();
+            for (int i = 0; i < length; i++) {
+                order.put(attributes.get(i), new Integer(counter++));
+            }
+            content = ((Element) node).getContent();
+        }
+        else if (node instanceof Document) {
+            content = ((Document) node).getContent();
+        }
+        else {
+            return;
+        }
+        int length = content.size();
+        for (int i = 0; i < length; i++) {
+            number(content.get(i));
+        }
+    }
+
+    /**
+     * Compare the nodes of two JDOM pointers in document order.
+     * @param pointer JDOMNodePointer or JDOMAttributePointer
+     * @param object the other pointer
+     * @return -1 or 1, or UNKNOWN when the index is disabled or the pointers
+     * do not point to distinct nodes of the same tree
+     */
+    static int compare(NodePointer pointer, Object object) {
+        if (!JXPathContextReferenceImpl.isIndexDocuments()
+                || !(object instanceof JDOMNodePointer
+                        || object instanceof JDOMAttributePointer)) {
+            return UNKNOWN;
+        }
+        Object node1 = pointer.getBaseValue();
+        Object node2 = ((NodePointer) object).getBaseValue();
+        Object root = getRoot(node1);
+        if (node1 == node2 || root == null || root != getRoot(node2)) {
+            return UNKNOWN;
+        }
+        // both nodes are attached to the root, so a miss means the
+        // tree has grown since the index was built
+        Integer order1;
+        Integer order2;
+        synchronized (INDEXES) {
+            JDOMDocumentOrder index = (JDOMDocumentOrder) INDEXES.get(root);
+            if (index == null || !index.order.containsKey(node1)
+                    || !index.order.containsKey(node2)) {
+                index = new JDOMDocumentOrder(root);
+                INDEXES.put(root, index);
+            }
+            order1 = (Integer) index.order.get(node1);
+            order2 = (Integer) index.order.get(node2);
+        }
+        if (order1 == null || order2 == null) {
+            return UNKNOWN;
+        }
+        return order1.intValue() < order2.intValue() ? -1 : 1;
+    }
+
+    /**
+     * Drop the index of the tree the supplied node belongs to, if any.
+     * Called whenever JXPath modifies a tree.
+     * @param node that is about to change
+     */
+    static void invalidate(Object node) {
+        if (!JXPathContextReferenceImpl.isIndexDocuments()) {
+            return;
+        }
+        Object root = getRoot(node);
+        if (root != null) {
+            synchronized (INDEXES) {
+                INDEXES.remove(root);
+            }
+        }
+    }
+
+    /**
+     * Get the top of the tree a node belongs to.
+     * @param node to check
+     * @return Document, Element without a parent, or null for other nodes
+     * without a parent
+     */
+    private static Object getRoot(Object node) {
+        Object current = node;
+        if (current instanceof Attribute) {
+            current = ((Attribute) current).getParent();
+        }
+        while (current instanceof Content) {
+            Parent parent = ((Content) current).getParent();
+            if (parent == null) {
+                return current instanceof Element ? current : null;
+            }
+            current = parent;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.jdom;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.jxpath.ri.model.AttributeIdentityManager;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.jdom.Attribute;
+import org.jdom.Document;
+import org.jdom.Element;
+
+/**
+ * An {@link AttributeIdentityManager} for JDOM documents.
+ *
+ * @version $Revision$ $Date$
+ */
+public class JDOMIdentityManager extends AttributeIdentityManager {
+
+    /**
+     * Create a new JDOMIdentityManager.
+     * @param attributeNames qualified names of the ID attributes, e.g.
+     * <code>{"id", "xml:id"}</code>
+     */
+    public JDOMIdentityManager(String[] attributeNames) {
+        super(attributeNames);
+    }
+
+    protected Object getDocument(Object node) {
+        if (node instanceof Document) {
+            return node;
+        }
+        if (node instanceof Element) {
+            return ((Element) node).getDocument();
+        }
+        return null;
+    }
+
+    protected int getModificationCount() {
+        return JDOMNodePointer.getModificationCount();
+    }
+
+    protected void collectIDs(Object document, String[] attributeNames,
+            Map nodes) {
+        Document doc = (Document) document;
+        if (doc.hasRootElement()) {
+            collectIDs(doc.getRootElement(), attributeNames, nodes);
+        }
+    }
+
+    /**
+     * Record the IDs of an element and its descendants.
+     * @param element to walk
+     * @param attributeNames qualified names of the ID attributes
+     * @param nodes id -> WeakReference to the element
+     */
+    private void collectIDs(Element element, String[] attributeNames,
+            Map nodes) {
+        String id = getID(element, attributeNames);
+        if (id != null) {
+            addID(nodes, id, element);
+        }
+        List content = element.getContent();
+        int length = content.size();
+        for (int i = 0; i < length; i++) {
+            Object child = content.get(i);
+            if (child instanceof Element) {
+                collectIDs((Element) child, attributeNames, nodes);
+            }
+        }
+    }
+
+    /**
+     * Get the value of the first ID attribute an element has.
+     * @param element to check
+     * @param attributeNames qualified names of the ID attributes
+     * @return String or null
+     */
+    private static String getID(Element element, String[] attributeNames) {
+        List attributes = element.getAttributes();
+        int size = attributes.size();
+        for (int i = 0; i < attributeNames.length; i++) {
+            for (int j = 0; j < size; j++) {
+                Attribute attr = (Attribute) attributes.get(j);
+                if (attr.getQualifiedName().equals(attributeNames[i])) {
+                    return attr.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    protected NodePointer createPointer(Object node, NodePointer pointer,
+            String id) {
+        return new JDOMNodePointer(node, pointer.getLocale(), id);
+    }
+}
@@ -20,7 +20,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.jxpath.ri.compiler.NodeTest;
-import org.apache.commons.jxpath.ri.model.NodeIterator;
+import org.apache.commons.jxpath.ri.model.CursorNodeIterator;
 import org.apache.commons.jxpath.ri.model.NodePointer;
 import org.jdom.Document;
 import org.jdom.Element;
@@ -31,7 +31,7 @@ import org.jdom.Element;
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
  */
-public class JDOMNodeIterator implements NodeIterator {
+public class JDOMNodeIterator implements CursorNodeIterator {
     private NodePointer parent;
     private NodeTest nodeTest;
 
@@ -40,6 +40,7 @@ public class JDOMNodeIterator implements NodeIterator {
     private int index = 0;
     private List children;
     private Object child;
+    private JDOMNodePointer cursor;
 
     /**
      * Create a new JDOMNodeIterator.
@@ -81,6 +82,22 @@ public class JDOMNodeIterator implements NodeIterator {
         return new JDOMNodePointer(parent, child);
     }
 
+    public NodePointer getCursorPointer() {
+        if (child == null) {
+            if (!setPosition(1)) {
+                return null;
+            }
+            position = 0;
+        }
+        if (cursor == null) {
+            cursor = new JDOMNodePointer(parent, child);
+        }
+        else if (cursor.getImmediateNode() != child) {
+            cursor.setNode(child);
+        }
+        return cursor;
+    }
+
     public int getPosition() {
         return position;
     }
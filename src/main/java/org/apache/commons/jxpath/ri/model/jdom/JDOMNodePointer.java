@@ -18,11 +18,15 @@ package org.apache.commons.jxpath.ri.model.jdom;
 
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.jxpath.IdentityManager;
 import org.apache.commons.jxpath.JXPathAbstractFactoryException;
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathException;
+import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.ri.Compiler;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
 import org.apache.commons.jxpath.ri.NamespaceResolver;
 import org.apache.commons.jxpath.ri.QName;
 import org.apache.commons.jxpath.ri.compiler.NodeNameTest;
@@ -53,6 +57,12 @@ public class JDOMNodePointer extends NodePointer {
     private Object node;
     private String id;
     private NamespaceResolver localNamespaceResolver;
+    private transient JDOMSiblingPositions childPositions;
+    private transient String path;
+    private transient int cacheStamp = MODIFICATIONS.get();
+
+    /** Counts changes made by JXPath to JDOM trees, see {@link #modified()} */
+    private static final AtomicInteger MODIFICATIONS = new AtomicInteger();
 
     /** XML ns uri */
     public static final String XML_NAMESPACE_URI =
@@ -94,6 +104,18 @@ public class JDOMNodePointer extends NodePointer {
         this.node = node;
     }
 
+    /**
+     * Point at another child of the same parent, for use as the cursor
+     * of a JDOMNodeIterator.
+     * @param node to point at
+     */
+    void setNode(Object node) {
+        this.node = node;
+        localNamespaceResolver = null;
+        childPositions = null;
+        path = null;
+    }
+
     public NodeIterator childIterator(
         NodeTest test,
         boolean reverse,
@@ -122,7 +144,7 @@ public class JDOMNodePointer extends NodePointer {
      * @param node Node to check
      * @return String
      */
-    private static String getNamespaceURI(Object node) {
+    static String getNamespaceURI(Object node) {
         if (node instanceof Element) {
             Element element = (Element) node;
             String ns = element.getNamespaceURI();
@@ -160,6 +182,26 @@ public class JDOMNodePointer extends NodePointer {
         return ns == null ? null : ns.getURI();
     }
 
+    /**
+     * Locates a node by ID, searching the document of this node if the
+     * context's identity manager is a {@link JDOMIdentityManager}.
+     * @param context starting context
+     * @param id to find
+     * @return Pointer
+     */
+    public Pointer getPointerByID(JXPathContext context, String id) {
+        IdentityManager manager = context.getIdentityManager();
+        if (manager instanceof JDOMIdentityManager) {
+            return ((JDOMIdentityManager) manager).getPointerByID(this, id);
+        }
+        return super.getPointerByID(context, id);
+    }
+
+    public int compareTo(Object object) {
+        int order = JDOMDocumentOrder.compare(this, object);
+        return order == JDOMDocumentOrder.UNKNOWN ? super.compareTo(object) : order;
+    }
+
     public int compareChildNodePointers(
         NodePointer pointer1,
         NodePointer pointer2) {
@@ -286,6 +328,7 @@ public class JDOMNodePointer extends NodePointer {
     }
 
     public void setValue(Object value) {
+        JDOMDocumentOrder.invalidate(node);
         if (node instanceof Text) {
             String string = (String) TypeUtils.convert(value, String.class);
             if (string != null && !string.equals("")) {
@@ -328,6 +371,7 @@ public class JDOMNodePointer extends NodePointer {
                 }
             }
         }
+        modified();
     }
 
     /**
@@ -547,6 +591,7 @@ public class JDOMNodePointer extends NodePointer {
         if (index == WHOLE_COLLECTION) {
             index = 0;
         }
+        JDOMDocumentOrder.invalidate(node);
         boolean success =
             getAbstractFactory(context).createObject(
                 context,
@@ -554,6 +599,7 @@ public class JDOMNodePointer extends NodePointer {
                 node,
                 name.toString(),
                 index);
+        modified();
         if (success) {
             NodeTest nodeTest;
             String prefix = name.getPrefix();
@@ -580,6 +626,7 @@ public class JDOMNodePointer extends NodePointer {
     }
 
     public NodePointer createAttribute(JXPathContext context, QName name) {
+        JDOMDocumentOrder.invalidate(node);
         if (!(node instanceof Element)) {
             return super.createAttribute(context, name);
         }
@@ -604,27 +651,44 @@ public class JDOMNodePointer extends NodePointer {
                 element.setAttribute(name.getName(), "");
             }
         }
+        modified();
         NodeIterator it = attributeIterator(name);
         it.setPosition(1);
         return it.getNodePointer();
     }
 
     public void remove() {
+        JDOMDocumentOrder.invalidate(node);
         Element parent = nodeParent(node);
         if (parent == null) {
             throw new JXPathException("Cannot remove root JDOM node");
         }
         parent.getContent().remove(node);
+        modified();
     }
 
     public String asPath() {
         if (id != null) {
             return "id('" + escape(id) + "')";
         }
+        // Changes made to the tree by other means than JXPath cannot be
+        // seen, so paths are only kept while documents are indexed
+        boolean indexed = JXPathContextReferenceImpl.isIndexDocuments();
+        if (indexed) {
+            checkCaches();
+            if (path != null) {
+                return path;
+            }
+        }
 
         StringBuffer buffer = new StringBuffer();
+        // the path is kept for the children's paths if it only depends
+        // on the positions of nodes, which JXPath tracks changes of
+        boolean cacheable = indexed && parent == null;
         if (parent != null) {
             buffer.append(parent.asPath());
+            cacheable = indexed && parent instanceof JDOMNodePointer
+                    && ((JDOMNodePointer) parent).path != null;
         }
         if (node instanceof Element) {
             // If the parent pointer is not a JDOMNodePointer, it is
@@ -644,6 +708,7 @@ public class JDOMNodePointer extends NodePointer {
                     buffer.append(getRelativePositionByQName()).append(']');
                 }
                 else {
+                    cacheable = false;
                     String prefix = getNamespaceResolver().getPrefix(nsURI);
                     if (prefix != null) {
                         buffer.append(prefix);
@@ -674,7 +739,66 @@ public class JDOMNodePointer extends NodePointer {
             buffer.append('[').append(getRelativePositionOfPI()).append(
                 ']');
         }
-        return buffer.toString();
+        String result = buffer.toString();
+        if (cacheable) {
+            path = result;
+        }
+        return result;
+    }
+
+    /**
+     * Record a change made by JXPath to a JDOM tree, which drops the cached
+     * paths and sibling positions of all JDOM pointers. Counted whether or not
+     * documents are indexed, as the ID indexes of {@link JDOMIdentityManager}
+     * depend on it.
+     */
+    static void modified() {
+        MODIFICATIONS.incrementAndGet();
+    }
+
+    /**
+     * Get the number of changes made by JXPath to JDOM trees so far.
+     * @return int
+     */
+    static int getModificationCount() {
+        return MODIFICATIONS.get();
+    }
+
+    /**
+     * Drop the cached path and sibling positions if a JDOM tree has been
+     * changed since they were computed.
+     */
+    private void checkCaches() {
+        int stamp = MODIFICATIONS.get();
+        if (cacheStamp != stamp) {
+            childPositions = null;
+            path = null;
+            cacheStamp = stamp;
+        }
+    }
+
+    /**
+     * Get the position of this node among its like siblings from the
+     * positions cached by the parent pointer, if documents are indexed and
+     * it points to the parent node.
+     * @param parentNode the parent of this node
+     * @param kind of siblings to count, see {@link JDOMSiblingPositions}
+     * @return 1..n, or 0 if not available
+     */
+    private int getCachedPosition(Object parentNode, int kind) {
+        if (!JXPathContextReferenceImpl.isIndexDocuments()
+                || !(parent instanceof JDOMNodePointer)) {
+            return 0;
+        }
+        JDOMNodePointer parentPointer = (JDOMNodePointer) parent;
+        if (parentPointer.node != parentNode) {
+            return 0;
+        }
+        parentPointer.checkCaches();
+        if (parentPointer.childPositions == null) {
+            parentPointer.childPositions = new JDOMSiblingPositions(parentNode);
+        }
+        return parentPointer.childPositions.getPosition(node, kind);
     }
 
     /**
@@ -687,6 +811,11 @@ public class JDOMNodePointer extends NodePointer {
             if (!(parent instanceof Element)) {
                 return 1;
             }
+            int position = getCachedPosition(parent, getNamespaceURI() == null
+                    ? JDOMSiblingPositions.BY_NAME : JDOMSiblingPositions.BY_EXPANDED_NAME);
+            if (position > 0) {
+                return position;
+            }
 
             List children = ((Element) parent).getContent();
             int count = 0;
@@ -730,6 +859,10 @@ public class JDOMNodePointer extends NodePointer {
         else {
             children = ((Document) parent).getContent();
         }
+        int position = getCachedPosition(parent, JDOMSiblingPositions.ELEMENT);
+        if (position > 0) {
+            return position;
+        }
         int count = 0;
         for (int i = 0; i < children.size(); i++) {
             Object child = children.get(i);
@@ -758,6 +891,10 @@ public class JDOMNodePointer extends NodePointer {
         if (parent == null) {
             return 1;
         }
+        int position = getCachedPosition(parent, JDOMSiblingPositions.TEXT);
+        if (position > 0) {
+            return position;
+        }
         List children = parent.getContent();
         int count = 0;
         for (int i = 0; i < children.size(); i++) {
@@ -782,6 +919,10 @@ public class JDOMNodePointer extends NodePointer {
         if (parent == null) {
             return 1;
         }
+        int position = getCachedPosition(parent, JDOMSiblingPositions.PI);
+        if (position > 0) {
+            return position;
+        }
         List children = parent.getContent();
         int count = 0;
         for (int i = 0; i < children.size(); i++) {
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.jdom;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.ProcessingInstruction;
+import org.jdom.Text;
+
+/**
+ * The positions of the children of a JDOM Element or Document among their
+ * like siblings, as printed by {@link JDOMNodePointer#asPath()}, computed in
+ * one pass over the content instead of one scan per child.
+ *
+ * @version $Revision$ $Date$
+ */
+final class JDOMSiblingPositions {
+    /** Position among elements with the same name */
+    static final int BY_NAME = 0;
+    /** Position among elements with the same namespace URI and name */
+    static final int BY_EXPANDED_NAME = 1;
+    /** Position among elements */
+    static final int ELEMENT = 2;
+    /** Position among text and CDATA nodes */
+    static final int TEXT = 3;
+    /** Position among processing instructions with the same target */
+    static final int PI = 4;
+
+    private final Map positions = new IdentityHashMap();
+
+    /**
+     * Number the content of the supplied parent.
+     * @param parent Element or Document
+     */
+    JDOMSiblingPositions(Object parent) {
+        List content = parent instanceof Element ? ((Element) parent).getContent()
+                : ((Document) parent).getContent();
+        Map names = new HashMap();
+        Map expandedNames = new HashMap();
+        Map targets = new HashMap();
+        int elements = 0;
+        int texts = 0;
+        int size = content.size();
+        for (int i = 0; i < size; i++) {
+            Object child = content.get(i);
+            int[] position = new int[PI + 1];
+            if (child instanceof Element) {
+                Element element = (Element) child;
+                position[BY_NAME] = next(names, element.getName());
+                String ns = JDOMNodePointer.getNamespaceURI(element);
+                if (ns != null) {
+                    position[BY_EXPANDED_NAME] = next(expandedNames,
+                            Arrays.asList(new String[] {ns, element.getName()}));
+                }
+                position[ELEMENT] = ++elements;
+            }
+            else if (child instanceof Text) {
+                position[TEXT] = ++texts;
+            }
+            else if (child instanceof ProcessingInstruction) {
+                position[PI] = next(targets,
+                        ((ProcessingInstruction) child).getTarget());
+            }
+            else {
+                continue;
+            }
+            positions.put(child, position);
+        }
+    }
+
+    /**
+     * Get the position of a child.
+     * @param child node
+     * @param kind of siblings to count, e.g. {@link #ELEMENT}
+     * @return 1..n, or 0 if the child is not known or not of that kind
+     */
+    int getPosition(Object child, int kind) {
+        int[] position = (int[]) positions.get(child);
+        return position == null ? 0 : position[kind];
+    }
+
+    /**
+     * Increment the counter for a key.
+     * @param counts key -> int[1]
+     * @param key to count
+     * @return the new count
+     */
+    private static int next(Map counts, Object key) {
+        int[] count = (int[]) counts.get(key);
+        if (count == null) {
+            count = new int[1];
+            counts.put(key, count);
+        }
+        return ++count[0];
+    }
+}
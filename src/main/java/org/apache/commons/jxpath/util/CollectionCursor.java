@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.util;
+
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Positional access to the elements of a collection that remembers where
+ * it is. {@link ValueUtils#getValue(Object, int)} walks a Collection that
+ * is not a List from its first element on every call; a cursor keeps the
+ * iterator between calls, so that reading the elements in order costs
+ * one step each. When an element before the current one is requested,
+ * the cursor takes a single snapshot of the collection and serves all
+ * further requests from it.
+ * <p>
+ * A cursor is meant to live as long as one traversal of the collection:
+ * it notices a change of size, but not an element replaced by another.
+ * It is not thread safe.
+ *
+ * @version $Revision$ $Date$
+ */
+public final class CollectionCursor {
+    private Collection collection;
+    private Iterator iterator;
+    private int position;
+    private Object current;
+    private Object[] snapshot;
+
+    /**
+     * Returns the index'th element of the supplied collection, like
+     * {@link ValueUtils#getValue(Object, int)}.
+     * @param collection to read
+     * @param index of the element
+     * @return Object
+     */
+    public Object getValue(Object collection, int index) {
+        Object value = ValueUtils.getValue(collection);
+        if (!(value instanceof Collection) || value instanceof List) {
+            return ValueUtils.getValue(value, index);
+        }
+        Collection coll = (Collection) value;
+        int size = coll.size();
+        if (index < 0 || index >= size) {
+            return null;
+        }
+        if (coll != this.collection
+                || (snapshot != null && snapshot.length != size)) {
+            reset(coll);
+        }
+        if (snapshot != null) {
+            return snapshot[index];
+        }
+        if (iterator != null && index == position - 1) {
+            return current;
+        }
+        if (iterator != null && index < position) {
+            snapshot = coll.toArray();
+            iterator = null;
+            current = null;
+            return snapshot.length == size ? snapshot[index] : null;
+        }
+        try {
+            if (iterator == null) {
+                iterator = coll.iterator();
+                position = 0;
+            }
+            while (position < index) {
+                iterator.next();
+                position++;
+            }
+            current = iterator.next();
+            position++;
+            return current;
+        }
+        catch (ConcurrentModificationException ex) {
+            reset(null);
+            return ValueUtils.getValue(coll, index);
+        }
+        catch (NoSuchElementException ex) {
+            reset(null);
+            return null;
+        }
+    }
+
+    /**
+     * Start over with the supplied collection.
+     * @param collection new collection
+     */
+    private void reset(Collection collection) {
+        this.collection = collection;
+        iterator = null;
+        position = 0;
+        current = null;
+        snapshot = null;
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.util;
+
+import java.beans.IndexedPropertyDescriptor;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.apache.commons.jxpath.JXPathException;
+
+/**
+ * Reads and writes one JavaBean property through method handles that are
+ * looked up once, rather than resolving the accessible read or write
+ * method and calling <code>Method.invoke</code> on every access like the
+ * corresponding methods of {@link ValueUtils} do.
+ * <p>
+ * The results and the exceptions are the same as those of
+ * {@link ValueUtils}. Whenever a handle is not available, for instance
+ * because the method cannot be accessed through a public lookup, or the
+ * arguments would not be accepted by the method, the call is passed on
+ * to {@link ValueUtils}.
+ * <p>
+ * Subclasses, like those generated by
+ * {@link org.apache.commons.jxpath.apt.JXPathBeanProcessor}, can call the
+ * accessor methods directly instead.
+ *
+ * @version $Revision$ $Date$
+ */
+public class PropertyAccessor {
+    private static final MethodType GETTER_TYPE =
+        MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE =
+        MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType INDEXED_GETTER_TYPE =
+        MethodType.methodType(Object.class, Object.class, int.class);
+    private static final MethodType INDEXED_SETTER_TYPE =
+        MethodType.methodType(void.class, Object.class, int.class,
+                Object.class);
+
+    private final PropertyDescriptor propertyDescriptor;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    private final MethodHandle indexedGetter;
+    private final MethodHandle indexedSetter;
+    private final Class getterClass;
+    private final Class setterClass;
+    private final Class indexedGetterClass;
+    private final Class indexedSetterClass;
+    private final Class propertyType;
+    private final Class indexedPropertyType;
+    private final boolean indexed;
+
+    /**
+     * Create a new PropertyAccessor.
+     * @param propertyDescriptor the property to access
+     */
+    public PropertyAccessor(PropertyDescriptor propertyDescriptor) {
+        this(propertyDescriptor, true);
+    }
+
+    /**
+     * Create a new PropertyAccessor.
+     * @param propertyDescriptor the property to access
+     * @param link whether to look up method handles; if <code>false</code>
+     * the methods of this class use {@link ValueUtils}
+     */
+    protected PropertyAccessor(PropertyDescriptor propertyDescriptor,
+            boolean link) {
+        this.propertyDescriptor = propertyDescriptor;
+        propertyType = propertyDescriptor.getPropertyType();
+        Method read = null;
+        Method write = null;
+        if (link) {
+            read = ValueUtils.getAccessibleMethod(
+                    propertyDescriptor.getReadMethod());
+            write = ValueUtils.getAccessibleMethod(
+                    propertyDescriptor.getWriteMethod());
+        }
+        getter = unreflect(read, GETTER_TYPE);
+        getterClass = getter == null ? null : read.getDeclaringClass();
+        setter = unreflect(write, SETTER_TYPE);
+        setterClass = setter == null ? null : write.getDeclaringClass();
+
+        Method indexedRead = null;
+        Method indexedWrite = null;
+        Class indexedType = null;
+        indexed = propertyDescriptor instanceof IndexedPropertyDescriptor;
+        if (indexed && link) {
+            IndexedPropertyDescriptor ipd =
+                (IndexedPropertyDescriptor) propertyDescriptor;
+            // ValueUtils does not look for accessible versions of these
+            indexedRead = ipd.getIndexedReadMethod();
+            indexedWrite = ipd.getIndexedWriteMethod();
+            indexedType = ipd.getIndexedPropertyType();
+        }
+        indexedGetter = unreflect(indexedRead, INDEXED_GETTER_TYPE);
+        indexedGetterClass =
+            indexedGetter == null ? null : indexedRead.getDeclaringClass();
+        indexedSetter = unreflect(indexedWrite, INDEXED_SETTER_TYPE);
+        indexedSetterClass =
+            indexedSetter == null ? null : indexedWrite.getDeclaringClass();
+        indexedPropertyType = indexedType;
+    }
+
+    /**
+     * Get the descriptor of the property.
+     * @return PropertyDescriptor
+     */
+    public PropertyDescriptor getPropertyDescriptor() {
+        return propertyDescriptor;
+    }
+
+    /**
+     * Returns the value of the property.
+     * @param bean to read
+     * @return Object value
+     * @see ValueUtils#getValue(Object, PropertyDescriptor)
+     */
+    public Object getValue(Object bean) {
+        if (getter == null || !getterClass.isInstance(bean)) {
+            return ValueUtils.getValue(bean, propertyDescriptor);
+        }
+        try {
+            return (Object) getter.invokeExact(bean);
+        }
+        catch (Throwable ex) {
+            throw readFailure(bean, ex);
+        }
+    }
+
+    /**
+     * Modifies the value of the property, converting the value to the
+     * type of the property if necessary.
+     * @param bean to modify
+     * @param value to set
+     * @see ValueUtils#setValue(Object, PropertyDescriptor, Object)
+     */
+    public void setValue(Object bean, Object value) {
+        Object converted = null;
+        boolean ready = setter != null && setterClass.isInstance(bean);
+        if (ready) {
+            try {
+                converted = ValueUtils.convert(value, propertyType);
+                ready = isAssignable(propertyType, converted);
+            }
+            catch (RuntimeException ex) {
+                // Let ValueUtils report the failure
+                ready = false;
+            }
+        }
+        if (!ready) {
+            ValueUtils.setValue(bean, propertyDescriptor, value);
+            return;
+        }
+        try {
+            setter.invokeExact(bean, converted);
+        }
+        catch (Throwable ex) {
+            throw writeFailure(bean, ex);
+        }
+    }
+
+    /**
+     * Returns the index'th element of the property.
+     * @param bean to read
+     * @param index int
+     * @return Object
+     * @see ValueUtils#getValue(Object, PropertyDescriptor, int)
+     */
+    public Object getValue(Object bean, int index) {
+        if (indexedGetter != null && indexedGetterClass.isInstance(bean)) {
+            try {
+                return (Object) indexedGetter.invokeExact(bean, index);
+            }
+            catch (IndexOutOfBoundsException ex) {
+                return null;
+            }
+            catch (Throwable ex) {
+                throw new JXPathException(
+                    "Cannot access property: " + propertyDescriptor.getName(),
+                    ex);
+            }
+        }
+        if (indexed) {
+            return ValueUtils.getValue(bean, propertyDescriptor, index);
+        }
+        return ValueUtils.getValue(getValue(bean), index);
+    }
+
+    /**
+     * Modifies the index'th element of the property, converting the value
+     * to the required type if necessary.
+     * @param bean to modify
+     * @param index int
+     * @param value to set
+     * @see ValueUtils#setValue(Object, PropertyDescriptor, int, Object)
+     */
+    public void setValue(Object bean, int index, Object value) {
+        Object converted = null;
+        boolean ready =
+            indexedSetter != null && indexedSetterClass.isInstance(bean);
+        if (ready) {
+            try {
+                converted = ValueUtils.convert(value, indexedPropertyType);
+                ready = isAssignable(indexedPropertyType, converted);
+            }
+            catch (RuntimeException ex) {
+                // Let ValueUtils report the failure
+                ready = false;
+            }
+        }
+        if (ready) {
+            try {
+                indexedSetter.invokeExact(bean, index, converted);
+                return;
+            }
+            catch (Throwable ex) {
+                throw new RuntimeException(
+                    "Cannot access property: "
+                        + propertyDescriptor.getName()
+                        + ", "
+                        + new InvocationTargetException(ex).getMessage());
+            }
+        }
+        if (indexed) {
+            ValueUtils.setValue(bean, propertyDescriptor, index, value);
+            return;
+        }
+        Object collection = getValue(bean);
+        if (ValueUtils.isCollection(collection)) {
+            ValueUtils.setValue(collection, index, value);
+        }
+        else if (index == 0) {
+            setValue(bean, value);
+        }
+        else {
+            throw new RuntimeException(
+                "Not a collection: " + propertyDescriptor.getName());
+        }
+    }
+
+    /**
+     * Convert a value to the specified type like
+     * {@link ValueUtils#setValue(Object, PropertyDescriptor, Object)} does.
+     * @param value to convert
+     * @param type to convert to
+     * @return Object
+     */
+    protected static Object convert(Object value, Class type) {
+        return ValueUtils.convert(value, type);
+    }
+
+    /**
+     * Create the exception reporting that the getter failed.
+     * @param bean that was read
+     * @param ex thrown by the getter
+     * @return JXPathException
+     */
+    protected JXPathException readFailure(Object bean, Throwable ex) {
+        return new JXPathException(
+            "Cannot access property: " + bean.getClass().getName()
+                + "." + propertyDescriptor.getName(),
+            new InvocationTargetException(ex));
+    }
+
+    /**
+     * Create the exception reporting that the setter failed.
+     * @param bean that was modified
+     * @param ex thrown by the setter
+     * @return JXPathException
+     */
+    protected JXPathException writeFailure(Object bean, Throwable ex) {
+        return new JXPathException(
+            "Cannot modify property: " + bean.getClass().getName()
+                + "." + propertyDescriptor.getName(),
+            new InvocationTargetException(ex));
+    }
+
+    /**
+     * Learn whether a method handle adapted to generic types accepts a
+     * value for a parameter of the specified type.
+     * @param type parameter type
+     * @param value to pass
+     * @return boolean
+     */
+    private static boolean isAssignable(Class type, Object value) {
+        if (value == null) {
+            return !type.isPrimitive();
+        }
+        return TypeUtils.wrapPrimitive(type).isInstance(value);
+    }
+
+    /**
+     * Look up a method handle and adapt it to a generic type.
+     * @param method to look up, may be <code>null</code>
+     * @param type to adapt the handle to
+     * @return MethodHandle, <code>null</code> if not available
+     */
+    private static MethodHandle unreflect(Method method, MethodType type) {
+        if (method == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.publicLookup().unreflect(method).asType(type);
+        }
+        catch (Exception ex) {
+            // Use reflection for this one
+            return null;
+        }
+    }
+}
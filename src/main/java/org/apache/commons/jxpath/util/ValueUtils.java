@@ -29,6 +29,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.apache.commons.jxpath.Container;
 import org.apache.commons.jxpath.DynamicPropertyHandler;
@@ -44,6 +45,39 @@ public class ValueUtils {
     private static Map dynamicPropertyHandlerMap = new HashMap();
     private static final int UNKNOWN_LENGTH_MAX_COUNT = 16000;
 
+    /**
+     * Iterates over the elements of an array, primitive or not, in place.
+     */
+    private static final class ArrayIterator implements Iterator {
+        private final Object array;
+        private final int length;
+        private int index;
+
+        /**
+         * Create a new ArrayIterator.
+         * @param array to iterate
+         */
+        private ArrayIterator(Object array) {
+            this.array = array;
+            this.length = Array.getLength(array);
+        }
+
+        public boolean hasNext() {
+            return index < length;
+        }
+
+        public Object next() {
+            if (index >= length) {
+                throw new NoSuchElementException();
+            }
+            return Array.get(array, index++);
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     /**
      * Returns true if the object is an array or a Collection.
      * @param value to test
@@ -160,15 +194,10 @@ public class ValueUtils {
             return Collections.EMPTY_LIST.iterator();
         }
         if (collection.getClass().isArray()) {
-            int length = Array.getLength(collection);
-            if (length == 0) {
+            if (Array.getLength(collection) == 0) {
                 return Collections.EMPTY_LIST.iterator();
             }
-            ArrayList list = new ArrayList();
-            for (int i = 0; i < length; i++) {
-                list.add(Array.get(collection, i));
-            }
-            return list.iterator();
+            return new ArrayIterator(collection);
         }
         if (collection instanceof Collection) {
             return ((Collection) collection).iterator();
@@ -412,7 +441,7 @@ public class ValueUtils {
      * @param type destination
      * @return conversion result
      */
-    private static Object convert(Object value, Class type) {
+    static Object convert(Object value, Class type) {
         try {
             return TypeUtils.convert(value, type);
         }
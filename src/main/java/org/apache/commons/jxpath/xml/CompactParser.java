@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.xml;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.jxpath.JXPathException;
+import org.apache.commons.jxpath.ri.model.compact.CompactDocument;
+
+/**
+ * An implementation of the XMLParser interface that reads XML with StAX
+ * into a read-only {@link CompactDocument}. Adjacent text and CDATA are
+ * always merged, so the coalescing setting makes no difference.
+ *
+ * @version $Revision$ $Date$
+ */
+public class CompactParser extends XMLParser2 {
+
+    public Object parseXML(InputStream stream) {
+        if (!isNamespaceAware()) {
+            throw new JXPathException("Compact parser configuration error. "
+                    + "It does not support the namespaceAware=false setting.");
+        }
+        if (isValidating()) {
+            throw new JXPathException("Compact parser configuration error. "
+                    + "StAX does not support the validating=true setting.");
+        }
+
+        try {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+            factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES,
+                    Boolean.valueOf(isExpandEntityReferences()));
+            XMLStreamReader reader = factory.createXMLStreamReader(stream);
+            try {
+                return CompactDocument.parse(reader, isIgnoringComments(),
+                        isIgnoringElementContentWhitespace());
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (XMLStreamException ex) {
+            throw new JXPathException("Compact parser error", ex);
+        }
+    }
+}
@@ -46,6 +46,9 @@ public class DocumentContainer extends XMLParser2 implements Container {
     /** JDOM constant */
     public static final String MODEL_JDOM = "JDOM";
 
+    /** Compact, read-only model constant */
+    public static final String MODEL_COMPACT = "COMPACT";
+
     private static final long serialVersionUID = -8713290334113427066L;
 
     private static HashMap parserClasses = new HashMap();
@@ -54,6 +57,8 @@ public class DocumentContainer extends XMLParser2 implements Container {
                           "org.apache.commons.jxpath.xml.DOMParser");
         parserClasses.put(MODEL_JDOM,
                           "org.apache.commons.jxpath.xml.JDOMParser");
+        parserClasses.put(MODEL_COMPACT,
+                          "org.apache.commons.jxpath.xml.CompactParser");
     }
 
     private static HashMap parsers = new HashMap();
@@ -63,8 +68,8 @@ public class DocumentContainer extends XMLParser2 implements Container {
     private String model;
 
     /**
-     * Add an XML parser.  Parsers for the models "DOM" and "JDOM" are
-     * pre-registered.
+     * Add an XML parser.  Parsers for the models "DOM", "JDOM" and
+     * "COMPACT" are pre-registered.
      * @param model model name
      * @param parser parser
      */
@@ -74,7 +79,8 @@ public class DocumentContainer extends XMLParser2 implements Container {
 
     /**
      * Add a class of a custom XML parser.
-     * Parsers for the models "DOM" and "JDOM" are pre-registered.
+     * Parsers for the models "DOM", "JDOM" and "COMPACT" are
+     * pre-registered.
      * @param model model name
      * @param parserClassName parser classname
      */
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath;
+
+import java.beans.PropertyDescriptor;
+
+import junit.framework.TestCase;
+
+/**
+ * Test JXPathBasicBeanInfo.
+ *
+ * @version $Revision$ $Date$
+ */
+public class JXPathBasicBeanInfoTest extends TestCase {
+
+    public void testPropertyDescriptors() {
+        JXPathBasicBeanInfo beanInfo = new JXPathBasicBeanInfo(TestBean.class);
+        PropertyDescriptor[] pds = beanInfo.getPropertyDescriptors();
+        assertNotSame(pds, beanInfo.getPropertyDescriptors());
+        assertEquals(pds.length, beanInfo.getPropertyCount());
+        for (int i = 0; i < pds.length; i++) {
+            if (i > 0) {
+                assertTrue(pds[i - 1].getName().compareTo(pds[i].getName()) < 0);
+            }
+            assertSame(pds[i], beanInfo.getPropertyDescriptor(i));
+            assertSame(pds[i], beanInfo.getPropertyDescriptor(pds[i].getName()));
+            assertEquals(i, beanInfo.getPropertyIndex(pds[i].getName()));
+            assertSame(pds[i], beanInfo.getPropertyAccessor(pds[i].getName())
+                    .getPropertyDescriptor());
+        }
+        assertNull(beanInfo.getPropertyDescriptor(-1));
+        assertNull(beanInfo.getPropertyDescriptor(pds.length));
+        assertNull(beanInfo.getPropertyDescriptor("missing"));
+        assertEquals(-1, beanInfo.getPropertyIndex("missing"));
+    }
+
+    public void testObject() {
+        JXPathBasicBeanInfo beanInfo = new JXPathBasicBeanInfo(Object.class);
+        assertEquals(0, beanInfo.getPropertyDescriptors().length);
+        assertEquals(0, beanInfo.getPropertyCount());
+    }
+}
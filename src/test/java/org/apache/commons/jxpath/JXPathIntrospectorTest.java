@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath;
+
+import java.util.HashMap;
+
+import junit.framework.TestCase;
+
+/**
+ * Test JXPathIntrospector.
+ *
+ * @version $Revision$ $Date$
+ */
+public class JXPathIntrospectorTest extends TestCase {
+
+    public static class ConcurrentBean {
+    }
+
+    public interface Marker {
+    }
+
+    public static class FirstMarked implements Marker {
+    }
+
+    public static class SecondMarked implements Marker {
+    }
+
+    public static class MapSubclass extends HashMap {
+    }
+
+    public void testConcurrentLookup() throws Exception {
+        final JXPathBeanInfo[] results = new JXPathBeanInfo[16];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    results[index] =
+                        JXPathIntrospector.getBeanInfo(ConcurrentBean.class);
+                }
+            };
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        for (int i = 0; i < results.length; i++) {
+            assertSame(results[0], results[i]);
+        }
+    }
+
+    public void testDynamicSuperclass() {
+        assertTrue(JXPathIntrospector.getBeanInfo(MapSubclass.class).isDynamic());
+    }
+
+    public void testRegistrationAfterLookup() {
+        assertFalse(JXPathIntrospector.getBeanInfo(FirstMarked.class).isDynamic());
+        JXPathIntrospector.registerDynamicClass(Marker.class,
+                MapDynamicPropertyHandler.class);
+        assertTrue(JXPathIntrospector.getBeanInfo(SecondMarked.class).isDynamic());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.apt;
+
+import java.beans.IndexedPropertyDescriptor;
+import java.beans.PropertyDescriptor;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.jxpath.JXPathBasicBeanInfo;
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathException;
+import org.apache.commons.jxpath.JXPathIntrospector;
+import org.apache.commons.jxpath.JXPathTestCase;
+import org.apache.commons.jxpath.apt.beans.AnnotatedBean;
+import org.apache.commons.jxpath.apt.beans.AnnotatedInterface;
+import org.apache.commons.jxpath.apt.beans.ExplicitBeanInfoBean;
+import org.apache.commons.jxpath.apt.beans.GenericBean;
+import org.apache.commons.jxpath.util.PropertyAccessor;
+
+/**
+ * Test the XBeanInfo classes generated at compile time for the beans of
+ * the <code>beans</code> package.
+ *
+ * @version $Revision$ $Date$
+ */
+public class JXPathBeanProcessorTest extends JXPathTestCase {
+
+    private AnnotatedBean bean;
+    private JXPathContext context;
+    private JXPathBasicBeanInfo beanInfo;
+
+    public void setUp() {
+        bean = new AnnotatedBean();
+        context = JXPathContext.newContext(bean);
+        beanInfo = (JXPathBasicBeanInfo)
+                JXPathIntrospector.getBeanInfo(AnnotatedBean.class);
+    }
+
+    public void testGenerated() {
+        assertEquals(AnnotatedBean.class.getName() + "XBeanInfo",
+                beanInfo.getClass().getName());
+    }
+
+    public void testSameDescriptorsAsIntrospector() {
+        assertSameDescriptors(AnnotatedBean.class);
+    }
+
+    public void testInterface() {
+        // the properties of superinterfaces are not included
+        assertSameDescriptors(AnnotatedInterface.class);
+        assertEquals(1, JXPathIntrospector.getBeanInfo(AnnotatedInterface.class)
+                .getPropertyDescriptors().length);
+    }
+
+    public void testExplicitBeanInfo() {
+        assertNotGenerated(ExplicitBeanInfoBean.class);
+        assertNotGenerated(ExplicitBeanInfoBean.Sub.class);
+        JXPathContext ctx = JXPathContext.newContext(new ExplicitBeanInfoBean());
+        assertXPathValue(ctx, "name", "name");
+        assertXPathValue(ctx, "count(hidden)", new Double(0));
+    }
+
+    public void testGenericSetter() {
+        List tags = Collections.singletonList("tag");
+        context.setValue("tags", tags);
+        assertSame(tags, bean.getTags());
+    }
+
+    public void testGenericBean() {
+        assertSameDescriptors(GenericBean.class);
+        GenericBean generic = new GenericBean();
+        JXPathContext ctx = JXPathContext.newContext(generic);
+        ctx.setValue("value", "v");
+        ctx.setValue("values", list("a", "b"));
+        ctx.setValue("type", String.class);
+        assertEquals("v", generic.getValue());
+        assertEquals(list("a", "b"), generic.getValues());
+        assertEquals(String.class, generic.getType());
+    }
+
+    /**
+     * Check that the XBeanInfo of a class was generated and describes the
+     * same properties as java.beans.Introspector.
+     * @param beanClass to check
+     */
+    private void assertSameDescriptors(Class beanClass) {
+        JXPathBasicBeanInfo beanInfo =
+            (JXPathBasicBeanInfo) JXPathIntrospector.getBeanInfo(beanClass);
+        assertEquals(beanClass.getName() + "XBeanInfo",
+                beanInfo.getClass().getName());
+        PropertyDescriptor[] expected =
+            new JXPathBasicBeanInfo(beanClass).getPropertyDescriptors();
+        PropertyDescriptor[] actual = beanInfo.getPropertyDescriptors();
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            String name = expected[i].getName();
+            assertEquals(name, actual[i].getName());
+            assertEquals(name, expected[i].getPropertyType(),
+                    actual[i].getPropertyType());
+            assertEquals(name, expected[i].getReadMethod(),
+                    actual[i].getReadMethod());
+            assertEquals(name, expected[i].getWriteMethod(),
+                    actual[i].getWriteMethod());
+            assertEquals(name,
+                    expected[i] instanceof IndexedPropertyDescriptor,
+                    actual[i] instanceof IndexedPropertyDescriptor);
+        }
+    }
+
+    /**
+     * Check that no XBeanInfo was generated for a class.
+     * @param beanClass to check
+     */
+    private void assertNotGenerated(Class beanClass) {
+        try {
+            Class.forName(beanClass.getName() + "XBeanInfo");
+            fail("Generated XBeanInfo of " + beanClass.getName());
+        }
+        catch (ClassNotFoundException ex) {
+            // expected
+        }
+    }
+
+    public void testDirectAccessors() {
+        assertTrue(beanInfo.getPropertyAccessor("name").getClass()
+                != PropertyAccessor.class);
+        assertTrue(beanInfo.getPropertyAccessor("items").getClass()
+                == PropertyAccessor.class);
+    }
+
+    public void testGetValue() {
+        assertXPathValue(context, "name", "bean");
+        assertXPathValue(context, "count", new Integer(1));
+        assertXPathValue(context, "active", Boolean.FALSE);
+        assertXPathValue(context, "items[2]", "b");
+        assertXPathValue(context, "count(items)", new Double(3));
+    }
+
+    public void testSetValue() {
+        context.setValue("count", "5");
+        assertEquals(5, bean.getCount());
+        context.setValue("active", Boolean.TRUE);
+        assertTrue(bean.isActive());
+        context.setValue("items[3]", "z");
+        assertEquals("z", bean.getItems(2));
+        context.setValue("writeOnly", "written");
+        assertEquals("written", bean.getName());
+        AnnotatedBean nested = new AnnotatedBean();
+        context.setValue("nested", nested);
+        assertSame(nested, bean.getNested());
+        context.setValue("nested/name", "nested");
+        assertEquals("nested", nested.getName());
+    }
+
+    public void testNotAssignable() {
+        try {
+            context.setValue("nested", "string");
+            fail("Assigned a String to an AnnotatedBean property");
+        }
+        catch (RuntimeException ex) {
+            // expected
+        }
+    }
+
+    public void testFailures() {
+        try {
+            beanInfo.getPropertyAccessor("failing").getValue(bean);
+            fail("Getter did not fail");
+        }
+        catch (JXPathException ex) {
+            assertTrue(ex.getMessage().indexOf("failing") >= 0);
+        }
+        try {
+            context.setValue("list", "x");
+            fail("Modified a read-only property");
+        }
+        catch (JXPathException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.apt.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.jxpath.JXPathBean;
+
+/**
+ * A bean with an XBeanInfo generated by JXPathBeanProcessor.
+ *
+ * @version $Revision$ $Date$
+ */
+@JXPathBean
+public class AnnotatedBean {
+    private String name = "bean";
+    private int count = 1;
+    private boolean active;
+    private String[] items = {"a", "b", "c"};
+    private List list = new ArrayList();
+    private List<String> tags = new ArrayList<String>();
+    private AnnotatedBean nested;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public String[] getItems() {
+        return items;
+    }
+
+    public String getItems(int index) {
+        return items[index];
+    }
+
+    public void setItems(int index, String item) {
+        items[index] = item;
+    }
+
+    public List getList() {
+        return list;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    public AnnotatedBean getNested() {
+        return nested;
+    }
+
+    public void setNested(AnnotatedBean nested) {
+        this.nested = nested;
+    }
+
+    public String getFailing() {
+        throw new IllegalStateException("failing");
+    }
+
+    public void setWriteOnly(String value) {
+        this.name = value;
+    }
+
+    public static String getStatic() {
+        return "static";
+    }
+}
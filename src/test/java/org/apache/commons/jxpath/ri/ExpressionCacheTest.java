@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri;
+
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathTestCase;
+import org.apache.commons.jxpath.ri.compiler.Constant;
+import org.apache.commons.jxpath.ri.compiler.Expression;
+
+/**
+ * Test the compiled expression cache.
+ *
+ * @version $Revision$ $Date$
+ */
+public class ExpressionCacheTest extends JXPathTestCase {
+
+    private ExpressionCache savedCache;
+
+    protected void setUp() throws Exception {
+        savedCache = JXPathContextReferenceImpl.getExpressionCache();
+    }
+
+    protected void tearDown() throws Exception {
+        JXPathContextReferenceImpl.setExpressionCache(savedCache);
+    }
+
+    public void testHitAndMiss() {
+        ExpressionCache cache = new ConcurrentExpressionCache();
+        Expression expr = new Constant("foo");
+        assertNull(cache.get("'foo'"));
+        cache.put("'foo'", expr, 10);
+        assertSame(expr, cache.get("'foo'"));
+
+        ExpressionCacheStatistics stats = cache.getStatistics();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getCompileCount());
+        assertEquals(10, stats.getCompileTime());
+        assertEquals(0.5, stats.getHitRate(), 0.0);
+    }
+
+    public void testCapacity() {
+        ConcurrentExpressionCache cache = new ConcurrentExpressionCache(10,
+                ConcurrentExpressionCache.STRONG);
+        for (int i = 0; i < 100; i++) {
+            cache.put(String.valueOf(i), new Constant(new Integer(i)), 0);
+        }
+        assertEquals(10, cache.size());
+        assertEquals(90, cache.getStatistics().getEvictionCount());
+    }
+
+    public void testRecentlyUsedSurvives() {
+        ConcurrentExpressionCache cache = new ConcurrentExpressionCache(10,
+                ConcurrentExpressionCache.STRONG);
+        Expression hot = new Constant("hot");
+        cache.put("hot", hot, 0);
+        for (int i = 0; i < 100; i++) {
+            assertSame(hot, cache.get("hot"));
+            cache.put(String.valueOf(i), new Constant(new Integer(i)), 0);
+        }
+        assertSame(hot, cache.get("hot"));
+    }
+
+    public void testDisabled() {
+        ConcurrentExpressionCache cache = new ConcurrentExpressionCache(0,
+                ConcurrentExpressionCache.STRONG);
+        cache.put("1", new Constant(new Integer(1)), 0);
+        assertEquals(0, cache.size());
+        assertNull(cache.get("1"));
+    }
+
+    public void testSoftReferences() {
+        ConcurrentExpressionCache cache = new ConcurrentExpressionCache(10,
+                ConcurrentExpressionCache.SOFT);
+        Expression expr = new Constant("foo");
+        cache.put("'foo'", expr, 0);
+        assertSame(expr, cache.get("'foo'"));
+    }
+
+    public void testContextUsesCache() {
+        ConcurrentExpressionCache cache = new ConcurrentExpressionCache();
+        JXPathContextReferenceImpl.setExpressionCache(cache);
+        JXPathContext context = JXPathContext.newContext(null);
+        assertXPathValue(context, "1 + 2", new Double(3));
+        assertXPathValue(context, "1 + 2", new Double(3));
+
+        ExpressionCacheStatistics stats = cache.getStatistics();
+        assertEquals(1, stats.getCompileCount());
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, cache.size());
+    }
+}
@@ -50,6 +50,15 @@ import org.apache.commons.jxpath.ri.compiler.VariableReference;
 
 public class JXPathCompiledExpressionTest extends JXPathTestCase {
 
+    protected void setUp() throws Exception {
+        // These tests check the trees built by the compiler
+        JXPathContextReferenceImpl.setOptimizeExpressions(false);
+    }
+
+    protected void tearDown() throws Exception {
+        JXPathContextReferenceImpl.setOptimizeExpressions(true);
+    }
+
     public void testConstant() {
         assertXPathExpression("1", Constant.class);
         assertXPathExpression("1.5", Constant.class);
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jxpath.JXPathInvalidSyntaxException;
+import org.apache.commons.jxpath.ri.compiler.TreeCompiler;
+
+/**
+ * Checks that the hand-written parser compiles expressions exactly like
+ * the JavaCC generated one.
+ *
+ * @version $Revision$ $Date$
+ */
+public class RecursiveDescentParserTest extends TestCase {
+
+    private static final String[] VALID = {
+        "1", "1.", ".5", "1.5", "'foo'", "\"bar\"", "'a&apos;b&quot;c'",
+        "$var", "$ns:var", "$last", "foo", "foo:bar", "*", "foo:*", "*:foo",
+        "@foo", "@*", "@ns:foo", ".", "..", "./..", "/", "/foo", "//foo",
+        "/foo//bar/@baz", "foo/bar[1]/baz[@name = 'x'][2]",
+        "child::foo", "attribute::foo", "ancestor-or-self::node()",
+        "descendant-or-self::*", "following-sibling::foo[last()]",
+        "text()", "node()", "comment()", "processing-instruction()",
+        "processing-instruction('pi')", "text", "node", "count",
+        "last()", "count(foo)", "string(.)", "concat('a', 'b', 'c')",
+        "ns:func(1, $x, foo/bar)", "func()", "last:foo()", "key('a', 'b')",
+        "1 + 2 - 3 + 4", "1 - 2 + 3", "1 * 2 div 3 mod 4", "-1", "- - 1",
+        "1 - -1", "a-b", "a - b", "a = b != c", "a < b <= c > d >= e",
+        "a or b and c or d", "div div div", "mod mod mod", "or or or",
+        "a | b | c", "$x[1]/foo", "(foo)[1]", "(foo)", "/ | /foo",
+        "foo[. = 'x' and (@a or @b)]", "map/key[@name='k']/value",
+        "id('x')/@y", "sum(//price) div count(//price)",
+        "f\u00f6\u00f6/b\u00e4r", "_x.y-z",
+    };
+
+    private static final String[] INVALID = {
+        "", "child ::foo", "foo::bar", "processing-instruction",
+        "foo(", "foo(,)", "'unterminated", "a!b", "#", "a b", "1..2",
+        "/foo/", "//", "$", "@", "foo[", "foo]", "foo[]", "(", ")",
+        "\u20ac",
+    };
+
+    public void testSameTreeAsJavaCC() {
+        Compiler compiler = new TreeCompiler();
+        for (int i = 0; i < VALID.length; i++) {
+            String xpath = VALID[i];
+            Object expected = Parser.parseExpressionWithJavaCC(xpath, compiler);
+            Object actual =
+                new RecursiveDescentParser(xpath, compiler).parseExpression();
+            assertEquals("Parsing <" + xpath + ">",
+                String.valueOf(expected), String.valueOf(actual));
+        }
+    }
+
+    public void testInvalid() {
+        Compiler compiler = new TreeCompiler();
+        for (int i = 0; i < INVALID.length; i++) {
+            String xpath = INVALID[i];
+            try {
+                Parser.parseExpressionWithJavaCC(xpath, compiler);
+                fail("JavaCC accepted <" + xpath + ">");
+            }
+            catch (JXPathInvalidSyntaxException ex) {
+                // expected
+            }
+            try {
+                new RecursiveDescentParser(xpath, compiler).parseExpression();
+                fail("Accepted <" + xpath + ">");
+            }
+            catch (JXPathInvalidSyntaxException ex) {
+                // expected
+            }
+        }
+    }
+}
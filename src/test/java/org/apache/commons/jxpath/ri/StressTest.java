@@ -19,6 +19,7 @@ package org.apache.commons.jxpath.ri;
 import junit.framework.TestCase;
 
 import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.ri.compiler.TreeCompiler;
 
 /**
  * Test thread safety.
@@ -60,6 +61,45 @@ public class StressTest extends TestCase {
         assertEquals("Test count", THREAD_COUNT * THREAD_DURATION, count);
     }    
 
+    public void testParserThreads() throws Throwable {
+        exception = null;
+        Thread[] threadArray = new Thread[THREAD_COUNT];
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            threadArray[i] = new Thread(new ParserRunnable(i));
+        }
+        for (int i = 0; i < threadArray.length; i++) {
+            threadArray[i].start();
+        }
+        for (int i = 0; i < threadArray.length; i++) {
+            threadArray[i].join();
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private final class ParserRunnable implements Runnable {
+        private final int id;
+
+        public ParserRunnable(int id) {
+            this.id = id;
+        }
+
+        public void run() {
+            Compiler compiler = new TreeCompiler();
+            for (int j = 0; j < THREAD_DURATION && exception == null; j++) {
+                try {
+                    String xpath = "/a" + id + "[b = " + j + "]/c";
+                    Object expr = Parser.parseExpression(xpath, compiler);
+                    assertEquals(xpath, String.valueOf(expr));
+                }
+                catch (Throwable t) {
+                    exception = t;
+                }
+            }
+        }
+    }
+
     private final class StressRunnable implements Runnable {
         public void run() {
             for (int j = 0; j < THREAD_DURATION && exception == null; j++) {
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.compiler;
+
+import java.util.Locale;
+
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathTestCase;
+import org.apache.commons.jxpath.NestedTestBean;
+import org.apache.commons.jxpath.TestBean;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.apache.commons.jxpath.ri.Parser;
+import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+
+/**
+ * Test the direct evaluation of bean paths compiled by BeanPathCompiler.
+ *
+ * @version $Revision$ $Date$
+ */
+public class BeanPathCompilerTest extends JXPathTestCase {
+
+    private static final String[] PATHS = {
+        "int", "nestedBean", "nestedBean/name", "/nestedBean/int",
+        "beans[2]/name", "beans[1]/strings[3]", "nestedBean[1]/name",
+        "list", "list[2]", "list[3]", "integers[2]", "map/Key1",
+        "set[1]", "object",
+    };
+
+    private TestBean bean;
+    private JXPathContext context;
+
+    public void setUp() {
+        bean = new TestBean();
+        JXPathContextReferenceImpl.setDefaultCompiler(new BeanPathCompiler());
+        context = JXPathContext.newContext(bean);
+    }
+
+    public void tearDown() {
+        JXPathContextReferenceImpl.setDefaultCompiler(new TreeCompiler());
+    }
+
+    public void testCompiledForm() {
+        assertTrue(compile("a/b[1]/c") instanceof BeanLocationPath);
+        assertTrue(compile("/a") instanceof BeanLocationPath);
+        assertFalse(compile("a/*") instanceof BeanLocationPath);
+        assertFalse(compile("a/ns:b") instanceof BeanLocationPath);
+        assertFalse(compile("a/@b") instanceof BeanLocationPath);
+        assertFalse(compile("a[last()]") instanceof BeanLocationPath);
+        assertFalse(compile("a[0]") instanceof BeanLocationPath);
+        assertFalse(compile("a[1.5]") instanceof BeanLocationPath);
+        assertFalse(compile("a[1][1]") instanceof BeanLocationPath);
+        assertFalse(compile("a//b") instanceof BeanLocationPath);
+    }
+
+    public void testSameValuesAsInterpreter() {
+        for (int i = 0; i < PATHS.length; i++) {
+            Object expected = interpret(PATHS[i]);
+            assertEquals("Evaluating <" + PATHS[i] + ">", expected,
+                    context.getValue(PATHS[i]));
+            // The second evaluation uses the linked getters
+            assertEquals("Evaluating <" + PATHS[i] + ">", expected,
+                    context.getValue(PATHS[i]));
+        }
+    }
+
+    public void testDirectValue() {
+        assertSame(bean.getNestedBean().getName(),
+                directValue("nestedBean/name"));
+        assertSame(bean.getBeans()[1], directValue("beans[2]"));
+        assertSame(bean.getList(), directValue("list"));
+        assertSame(bean.getObject(), directValue("object"));
+
+        BeanLocationPath path = (BeanLocationPath) compile("name");
+        assertNull(path.getDirectValue(pointer(new NestedTestBean(null))));
+    }
+
+    public void testUnresolved() {
+        // Dynamic properties, indexed properties, missing values and
+        // collections without a position are left to the interpreter
+        assertSame(BeanLocationPath.UNRESOLVED, directValue("map/Key1"));
+        assertSame(BeanLocationPath.UNRESOLVED, directValue("integers[2]"));
+        assertSame(BeanLocationPath.UNRESOLVED, directValue("beans[5]"));
+        assertSame(BeanLocationPath.UNRESOLVED, directValue("missing"));
+        assertSame(BeanLocationPath.UNRESOLVED, directValue("nestedBean/foo"));
+        assertSame(BeanLocationPath.UNRESOLVED, directValue("beans/name"));
+        assertSame(BeanLocationPath.UNRESOLVED, directValue("int[2]"));
+    }
+
+    public void testRelink() {
+        BeanLocationPath path = (BeanLocationPath) compile("name");
+        NestedTestBean nested = new NestedTestBean("nested");
+        assertEquals("nested", path.getDirectValue(pointer(nested)));
+        assertSame(BeanLocationPath.UNRESOLVED,
+                path.getDirectValue(pointer(bean)));
+        assertEquals("nested", path.getDirectValue(pointer(nested)));
+    }
+
+    private Object compile(String xpath) {
+        return Parser.parseExpression(xpath, new BeanPathCompiler());
+    }
+
+    private Object directValue(String xpath) {
+        return ((BeanLocationPath) compile(xpath)).getDirectValue(
+                pointer(bean));
+    }
+
+    private NodePointer pointer(Object object) {
+        return NodePointer.newNodePointer(new QName(null, "root"), object,
+                Locale.getDefault());
+    }
+
+    private Object interpret(String xpath) {
+        JXPathContextReferenceImpl.setDefaultCompiler(new TreeCompiler());
+        try {
+            return JXPathContext.newContext(bean).getValue(xpath);
+        }
+        finally {
+            JXPathContextReferenceImpl.setDefaultCompiler(
+                    new BeanPathCompiler());
+        }
+    }
+}
@@ -18,7 +18,9 @@ package org.apache.commons.jxpath.ri.compiler;
 
 import java.text.DecimalFormatSymbols;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.jxpath.ExtendedKeyManager;
 import org.apache.commons.jxpath.IdentityManager;
@@ -120,6 +122,31 @@ public class CoreFunctionTest extends JXPathTestCase {
         assertXPathValue(context, "round(2 div 0)", new Double(Double.POSITIVE_INFINITY));
     }
 
+    public void testLastFunction() {
+        Map small = new HashMap();
+        small.put("items", Arrays.asList(new Integer[] {new Integer(1),
+                new Integer(2)}));
+        Map large = new HashMap();
+        large.put("items", Arrays.asList(new Integer[] {new Integer(3),
+                new Integer(4), new Integer(5)}));
+        Map root = new HashMap();
+        root.put("groups", Arrays.asList(new Map[] {small, large}));
+        JXPathContext context = JXPathContext.newContext(root);
+
+        // last() must be computed again for each set
+        assertXPathValueIterator(context, "groups/items[last()]",
+                list(new Integer(2), new Integer(5)));
+        assertXPathValueIterator(context,
+                "groups/items[position() = last() - 1]",
+                list(new Integer(1), new Integer(4)));
+        assertXPathValue(context, "count(groups[last()]/items)",
+                new Double(3));
+        assertXPathValue(context, "(groups/items)[last()]", new Integer(5));
+        assertXPathValue(context,
+                "count((groups/items | groups/items)[position() < last()])",
+                new Double(4));
+    }
+
     public void testIDFunction() {
         context.setIdentityManager(new IdentityManager() {
             public Pointer getPointerByID(JXPathContext context, String id) {
@@ -37,6 +37,9 @@ public class CoreOperationTest extends JXPathTestCase {
             vars.declareVariable("integer", new Integer(1));
             vars.declareVariable("array", new double[] { 0.25, 0.5, 0.75 });
             vars.declareVariable("nan", new Double(Double.NaN));
+            vars.declareVariable("strings", new String[] { "a", "0.5", "" });
+            vars.declareVariable("mixed", new Object[] { Boolean.FALSE,
+                    new Double(-0.0), "x" });
         }
     }
 
@@ -100,6 +103,23 @@ public class CoreOperationTest extends JXPathTestCase {
         assertXPathValue(context, "$array = 1", Boolean.FALSE, Boolean.class);
         assertXPathValue(context, "$array > 1", Boolean.FALSE, Boolean.class);
         assertXPathValue(context, "$array < 0", Boolean.FALSE, Boolean.class);
+        assertXPathValue(context, "count($array | $array)", new Double(3));
+        assertXPathValue(context, "($array | $array)[last()]", new Double(0.75));
+    }
+
+    public void testNodeSetJoin() {
+        assertXPathValue(context, "$array = $strings", Boolean.TRUE, Boolean.class);
+        assertXPathValue(context, "$strings = $array", Boolean.TRUE, Boolean.class);
+        assertXPathValue(context, "$strings = 'a'", Boolean.TRUE, Boolean.class);
+        assertXPathValue(context, "$strings = 'b'", Boolean.FALSE, Boolean.class);
+        assertXPathValue(context, "$strings = 0", Boolean.TRUE, Boolean.class);
+        assertXPathValue(context, "$mixed = 0", Boolean.TRUE, Boolean.class);
+        assertXPathValue(context, "$mixed = $array", Boolean.FALSE, Boolean.class);
+        assertXPathValue(context, "$mixed = $strings", Boolean.TRUE, Boolean.class);
+        assertXPathValue(context, "$mixed = 'y'", Boolean.FALSE, Boolean.class);
+        assertXPathValue(context, "$array = $nan", Boolean.FALSE, Boolean.class);
+        assertXPathValue(context, "$array[1] = $array[2]", Boolean.FALSE, Boolean.class);
+        assertXPathValue(context, "$array != $array", Boolean.TRUE, Boolean.class);
     }
 
     public void testEmptyNodeSetOperations() {
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.compiler;
+
+import org.apache.commons.jxpath.BasicVariables;
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathTestCase;
+import org.apache.commons.jxpath.TestBean;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.apache.commons.jxpath.ri.Parser;
+
+/**
+ * Test the simplification of compiled expressions.
+ *
+ * @version $Revision$ $Date$
+ */
+public class ExpressionOptimizerTest extends JXPathTestCase {
+
+    public void testFolding() {
+        assertOptimized("1 + 2 * 3", Constant.class, "7");
+        assertOptimized("-(3 + 1)", Constant.class, "-4");
+        assertOptimized("concat('a', 'b', 'c')", Constant.class, "'abc'");
+        assertOptimized("not(true())", Constant.class, "false()");
+        assertOptimized("1 = 1 and 2 > 1", Constant.class, "true()");
+        assertOptimized("string-length(substring('hello', 2))",
+                Constant.class, "4");
+        assertOptimized("foo[1 + 1]", LocationPath.class, "foo[2]");
+        assertOptimized("foo[@name = concat('a', 'b')]", LocationPath.class,
+                "foo[@name = 'ab']");
+        assertOptimized("$x[2 * 2]/foo", ExpressionPath.class, "$x[4]/foo");
+        assertOptimized("(1 + 1)[1]", ExpressionPath.class, "2[1]");
+    }
+
+    public void testNotFolded() {
+        assertOptimized("$x + 1", CoreOperationAdd.class, "$x + 1");
+        assertOptimized("string()", CoreFunction.class, "string()");
+        assertOptimized("last() - 1", CoreOperationSubtract.class,
+                "last() - 1");
+        assertOptimized("count(/foo)", CoreFunction.class, "count(/foo)");
+        assertOptimized("format-number(1, '#')", CoreFunction.class,
+                "format-number(1, '#')");
+        assertOptimized("f:g(1 + 1)", ExtensionFunction.class, "f:g(2)");
+        assertOptimized("1 | 2", CoreOperationUnion.class, "1 | 2");
+    }
+
+    public void testBooleanSimplification() {
+        assertOptimized("foo and true()", CoreFunction.class,
+                "boolean(foo)");
+        assertOptimized("foo or false() or bar", CoreOperationOr.class,
+                "foo or bar");
+        assertOptimized("1 = 0 and foo", Constant.class, "false()");
+        assertOptimized("foo or 1 and bar", CoreOperationOr.class,
+                "foo or boolean(bar)");
+        assertOptimized("foo and bar and 0 and baz", CoreOperationAnd.class,
+                "foo and bar and 0");
+        assertOptimized("foo and 0", CoreOperationAnd.class, "foo and 0");
+    }
+
+    public void testSameValues() {
+        JXPathContext context = JXPathContext.newContext(new TestBean());
+        assertXPathValue(context, "integers[1 + 1]", new Integer(2));
+        assertXPathValue(context, "nestedBean[1 = 1 and name]/int",
+                new Integer(1));
+        assertXPathValue(context, "boolean(nestedBean) and true()",
+                Boolean.TRUE);
+        assertXPathValue(context, "nestedBean/int or false()", Boolean.TRUE);
+        assertXPathValue(context, "substring('12345', 1.5, 2.6)", "234");
+        assertXPathValue(context, "(1 + 1)[1]", new Double(2));
+    }
+
+    public void testHoisting() {
+        Expression expression = ExpressionOptimizer.optimize((Expression) Parser
+                .parseExpression("foo[. > /bar * $rate][$i]",
+                        new TreeCompiler()));
+        assertEquals("foo[. > /bar * $rate][$i]", expression.toString());
+        Expression[] predicates =
+            ((LocationPath) expression).getSteps()[0].getPredicates();
+        Expression[] args = ((Operation) predicates[0]).getArguments();
+        assertTrue(args[0] instanceof LocationPath);
+        assertTrue(args[1] instanceof InvariantExpression);
+        assertTrue(predicates[1] instanceof VariableReference);
+    }
+
+    public void testInvariantComputedOnce() {
+        final int[] lookups = new int[1];
+        JXPathContext context = JXPathContext.newContext(new TestBean());
+        context.setVariables(new BasicVariables() {
+            public Object getVariable(String varName) {
+                lookups[0]++;
+                return super.getVariable(varName);
+            }
+        });
+        context.getVariables().declareVariable("min", new Integer(2));
+
+        lookups[0] = 0;
+        assertXPathValue(context, "beans[int > $min + 0]/name", "Name 2");
+        int hoisted = lookups[0];
+
+        JXPathContextReferenceImpl.setOptimizeExpressions(false);
+        try {
+            lookups[0] = 0;
+            assertXPathValue(context, "beans[int > $min + 0]/name", "Name 2");
+            assertTrue("Looked up " + hoisted + " times",
+                    hoisted < lookups[0]);
+        }
+        finally {
+            JXPathContextReferenceImpl.setOptimizeExpressions(true);
+        }
+    }
+
+    private void assertOptimized(String xpath, Class expectedClass,
+            String expected) {
+        Expression expression = ExpressionOptimizer.optimize(
+                (Expression) Parser.parseExpression(xpath, new TreeCompiler()));
+        assertEquals("Expression class for " + xpath, expectedClass,
+                expression.getClass());
+        assertEquals("Expression toString() for " + xpath, expected,
+                expression.toString());
+    }
+}
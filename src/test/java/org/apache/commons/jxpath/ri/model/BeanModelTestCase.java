@@ -533,6 +533,17 @@ public abstract class BeanModelTestCase extends JXPathTestCase {
             context,
             "count(/descendant::int/preceding-sibling::node())",
             new Double(10));
+
+        // Named preceding siblings
+        assertXPathValue(
+            context,
+            "count(/nestedBean/preceding-sibling::integers)",
+            new Double(4));
+
+        assertXPathValue(
+            context,
+            "count(/boolean/preceding-sibling::nestedBean)",
+            new Double(0));
     }
 
     public void testAxisSelf() {
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathTestCase;
+import org.apache.commons.jxpath.TestBean;
+import org.apache.commons.jxpath.xml.DocumentContainer;
+
+/**
+ * Checks that the cursor of a CursorNodeIterator shows the same node as
+ * the pointer returned by getNodePointer().
+ *
+ * @version $Revision$ $Date$
+ */
+public class CursorNodeIteratorTest extends JXPathTestCase {
+
+    public void testBeanChildren() {
+        checkChildren(JXPathContext.newContext(new TestBean()));
+    }
+
+    public void testDOMChildren() {
+        checkChildren(JXPathContext.newContext(new DocumentContainer(
+                JXPathTestCase.class.getResource("Vendor.xml"),
+                DocumentContainer.MODEL_DOM)));
+    }
+
+    public void testJDOMChildren() {
+        checkChildren(JXPathContext.newContext(new DocumentContainer(
+                JXPathTestCase.class.getResource("Vendor.xml"),
+                DocumentContainer.MODEL_JDOM)));
+    }
+
+    public void testDescendantsKeepTheirPaths() {
+        JXPathContext context = JXPathContext.newContext(new TestBean());
+        List paths = new ArrayList();
+        for (Iterator it = context.iteratePointers("//name"); it.hasNext();) {
+            paths.add(it.next());
+        }
+        assertTrue(paths.size() > 1);
+        for (int i = 0; i < paths.size(); i++) {
+            NodePointer pointer = (NodePointer) paths.get(i);
+            assertSame(pointer.getNode(),
+                    context.getValue(pointer.asPath()));
+        }
+    }
+
+    /**
+     * Walk the tree below the context node, comparing the cursor of every
+     * iterator with a pointer of its own.
+     * @param context to walk
+     */
+    private void checkChildren(JXPathContext context) {
+        checkChildren((NodePointer) context.getPointer("/"), 0);
+    }
+
+    /**
+     * Compare cursors with pointers for the children of a node.
+     * @param parent node
+     * @param depth of the parent
+     */
+    private void checkChildren(NodePointer parent, int depth) {
+        NodeIterator it = parent.childIterator(null, false, null);
+        if (!(it instanceof CursorNodeIterator) || depth > 4) {
+            return;
+        }
+        CursorNodeIterator cursors = (CursorNodeIterator) it;
+        for (int i = 1; it.setPosition(i); i++) {
+            NodePointer pointer = it.getNodePointer();
+            NodePointer cursor = cursors.getCursorPointer();
+            assertEquals(pointer.asPath(), cursor.asPath());
+            assertSame(pointer.getNode(), cursor.getNode());
+            assertEquals(pointer.isLeaf(), cursor.isLeaf());
+            if (!pointer.isLeaf()) {
+                checkChildren(pointer, depth + 1);
+            }
+        }
+    }
+}
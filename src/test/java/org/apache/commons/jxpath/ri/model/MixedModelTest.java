@@ -506,6 +506,47 @@ public class MixedModelTest extends JXPathTestCase {
             "/matrix[1]/.[1]");
     }
     
+    /**
+     * "//arr" is not evaluated as "descendant::arr" on beans: null and
+     * collection valued properties are counted by the original chain.
+     */
+    public void testDescendantsOfBeans() {
+        List list = new ArrayList();
+        list.add(new TreeBean("a", new TreeBean[] {
+                new TreeBean("a1", null), new TreeBean("a2", null)}));
+        list.add(new TreeBean("b", null));
+        list.add(new TreeBean("c", new TreeBean[] {new TreeBean("c1", null)}));
+        Map map = new HashMap();
+        map.put("list", list);
+        context = JXPathContext.newContext(map);
+
+        assertXPathValue(context, "count(//arr)", new Double(4));
+        assertXPathValue(context,
+                "count(/descendant-or-self::node()/child::arr)",
+                new Double(4));
+        assertXPathValue(context, "count(list//arr)", new Double(4));
+        assertXPathValueIterator(context, "//arr/name",
+                list("a1", "a2", "c1"));
+    }
+
+    public static class TreeBean {
+        private String name;
+        private TreeBean[] arr;
+
+        public TreeBean(String name, TreeBean[] arr) {
+            this.name = name;
+            this.arr = arr;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public TreeBean[] getArr() {
+            return arr;
+        }
+    }
+
     /**
      * Scott Heaberlin's test - collection of collections
      */
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model;
+
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.model.beans.BeanPointer;
+import org.apache.commons.jxpath.ri.model.beans.NullPointer;
+
+/**
+ * Checks that NodePointer still asks the right NodePointerFactory once it
+ * remembers the factories for a class.
+ *
+ * @version $Revision$ $Date$
+ */
+public class NodePointerFactoryCacheTest extends TestCase {
+
+    public static class Tagged {
+        private final boolean special;
+
+        public Tagged(boolean special) {
+            this.special = special;
+        }
+    }
+
+    public static class Late {
+    }
+
+    /**
+     * Creates NullPointers for special Tagged objects only.
+     */
+    public static class TaggedPointerFactory implements NodePointerFactory {
+        public int getOrder() {
+            return 1;
+        }
+
+        public NodePointer createNodePointer(QName name, Object object,
+                Locale locale) {
+            return createNodePointer(null, name, object);
+        }
+
+        public NodePointer createNodePointer(NodePointer parent, QName name,
+                Object object) {
+            return object instanceof Tagged && ((Tagged) object).special
+                    ? new NullPointer(parent, name) : null;
+        }
+    }
+
+    /**
+     * Creates NullPointers for Late objects.
+     */
+    public static class LatePointerFactory
+            implements ClassBasedNodePointerFactory {
+        public int getOrder() {
+            return 2;
+        }
+
+        public NodePointer createNodePointer(QName name, Object object,
+                Locale locale) {
+            return createNodePointer(null, name, object);
+        }
+
+        public NodePointer createNodePointer(NodePointer parent, QName name,
+                Object object) {
+            return object instanceof Late ? new NullPointer(parent, name)
+                    : null;
+        }
+
+        public boolean isClassBased(Class type) {
+            return true;
+        }
+    }
+
+    private static boolean registered;
+
+    public void setUp() {
+        if (!registered) {
+            JXPathContextReferenceImpl.addNodePointerFactory(
+                new TaggedPointerFactory());
+            registered = true;
+        }
+        JXPathContext.newContext(null);
+    }
+
+    public void testValueDependentFactory() {
+        QName name = new QName("t");
+        for (int i = 0; i < 4; i++) {
+            boolean special = i % 2 == 1;
+            NodePointer pointer =
+                NodePointer.newChildNodePointer(null, name, new Tagged(special));
+            assertEquals(special, pointer instanceof NullPointer);
+            pointer = NodePointer.newNodePointer(
+                    name, new Tagged(special), Locale.getDefault());
+            assertEquals(special, pointer instanceof NullPointer);
+        }
+    }
+
+    public void testFactoryAddedLater() {
+        QName name = new QName("l");
+        assertTrue(NodePointer.newChildNodePointer(null, name, new Late())
+                instanceof BeanPointer);
+        JXPathContextReferenceImpl.addNodePointerFactory(
+            new LatePointerFactory());
+        JXPathContext.newContext(null);
+        assertTrue(NodePointer.newChildNodePointer(null, name, new Late())
+                instanceof NullPointer);
+    }
+}
@@ -844,9 +844,33 @@ public abstract class XMLModelTestCase extends JXPathTestCase {
                 "/vendor[1]/product[1]/goods:name[1]");
     }
 
+    public void testAsPathAfterRemove() {
+        Pointer jim = context.getPointer("vendor/contact[3]");
+        Pointer text = context.getPointer("vendor/contact[4]/text()");
+        assertEquals("/vendor[1]/contact[3]", jim.asPath());
+        assertEquals("/vendor[1]/contact[4]/text()[1]", text.asPath());
+
+        context.removePath("vendor/contact[1]");
+        assertEquals("/vendor[1]/contact[2]", jim.asPath());
+        assertEquals("/vendor[1]/contact[3]/text()[1]", text.asPath());
+        assertXPathPointerIterator(context, "vendor/contact", list(
+                "/vendor[1]/contact[1]", "/vendor[1]/contact[2]",
+                "/vendor[1]/contact[3]"));
+    }
+
     public void testUnion() {
         assertXPathValue(context, "/vendor[1]/contact[1] | /vendor[1]/contact[4]", "John");
         assertXPathValue(context, "/vendor[1]/contact[4] | /vendor[1]/contact[1]", "John");
+        assertXPathValueIterator(context,
+                "vendor/location/address/street | vendor/contact[2]"
+                + " | vendor/location/@id",
+                list("Jack", "100", "Orchard Road", "101", "Tangerine Drive"));
+        assertXPathValue(context,
+                "count(vendor/contact | vendor/contact[2] | vendor/contact)",
+                new Double(4));
+        assertXPathValue(context,
+                "(vendor//street | vendor/contact[1])[last()]",
+                "Tangerine Drive");
     }
 
     public void testNodes() {
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.compact;
+
+import java.io.StringReader;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.apache.commons.jxpath.AbstractFactory;
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.ri.model.XMLModelTestCase;
+import org.apache.commons.jxpath.xml.DocumentContainer;
+
+/**
+ * Tests JXPath with compact documents
+ *
+ * @version $Revision$ $Date$
+ */
+public class CompactModelTest extends XMLModelTestCase {
+
+    protected String getModel() {
+        return DocumentContainer.MODEL_COMPACT;
+    }
+
+    protected AbstractFactory getAbstractFactory() {
+        // compact documents are read-only
+        return null;
+    }
+
+    public void testGetNode() {
+        assertXPathNodeType(context, "/", CompactDocument.class);
+        assertXPathNodeType(context, "/vendor/location", CompactNode.class);
+        assertXPathNodeType(context, "//location/@name", CompactNode.class);
+        assertXPathNodeType(context, "//vendor", CompactNode.class);
+    }
+
+    public void testGetElementDescendantOrSelf() {
+        JXPathContext childContext = context.getRelativeContext(context.getPointer("/vendor"));
+        assertTrue(childContext.getContextBean() instanceof CompactNode);
+        assertXPathNodeType(childContext, "//vendor", CompactNode.class);
+    }
+
+    public void testDescendantDocumentOrder() throws Exception {
+        JXPathContext context = JXPathContext.newContext(
+                parse("<x><y><a>a2</a></y><a>a1</a></x>"));
+        assertXPathValueIterator(context, "//a", list("a2", "a1"));
+        assertXPathValueIterator(context, "x//a", list("a2", "a1"));
+        assertXPathValueIterator(context, "//y | //a", list("a2", "a2", "a1"));
+        assertXPathValue(context, "(//a)[1]", "a2");
+        assertXPathValue(context, "//a[1]", "a1");
+        assertXPathValueIterator(context, "//a[last()]", list("a2", "a1"));
+        assertXPathValueIterator(context, "//a/preceding::node()", list("a2", "a2", "a2"));
+    }
+
+    public void testNodeArrays() throws Exception {
+        CompactDocument document = parse(
+                "<x xmlns:p='pNS' a='1'>t<![CDATA[u]]><!--c--><p:y/>v<?pi d?></x>");
+        // document, x, xmlns:p, @a, text, comment, p:y, text, pi
+        assertEquals(9, document.getNodeCount());
+        assertEquals(CompactDocument.ELEMENT_NODE, document.getNodeType(1));
+        assertEquals(CompactDocument.NAMESPACE_NODE, document.getNodeType(2));
+        assertEquals(CompactDocument.ATTRIBUTE_NODE, document.getNodeType(3));
+        assertEquals("tu", document.getValue(4));
+        assertEquals(4, document.getFirstChild(1));
+        assertEquals(8, document.getLastChild(1));
+        assertEquals(5, document.getNextSibling(4));
+        assertEquals(-1, document.getPreviousSibling(4));
+        assertEquals(6, document.getPreviousSibling(7));
+        assertEquals(8, document.getEnd(1));
+        assertEquals("pNS", document.getNamespaceURI(6));
+        assertEquals(2, document.getPosition(7));
+        assertEquals("tuv", document.getStringValue(1).substring(0, 3));
+    }
+
+    public void testNodeTypeCommentPointer() throws Exception {
+        JXPathContext context = JXPathContext.newContext(
+                parse("<x><!--a--><y/><!--b--><y xml:space='preserve'> c </y></x>"));
+        assertXPathValueAndPointer(context, "x/comment()[2]", "b", "/x[1]/comment()[2]");
+        assertXPathValueAndPointer(context, "x/y[2]/text()", " c ", "/x[1]/y[2]/text()[1]");
+    }
+
+    public void testReadOnly() {
+        try {
+            context.getPointer("vendor/location/address/street").setValue("x");
+            fail("Compact documents are read-only");
+        }
+        catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+
+    public void testSetValue() {
+        // compact documents are read-only
+    }
+
+    public void testCreatePath() {
+        // compact documents are read-only
+    }
+
+    public void testCreatePathAndSetValue() {
+        // compact documents are read-only
+    }
+
+    public void testRemovePath() {
+        // compact documents are read-only
+    }
+
+    public void testAsPathAfterRemove() {
+        // compact documents are read-only
+    }
+
+    public void testID() {
+        // id() is not supported by compact documents
+    }
+
+    private CompactDocument parse(String xml) throws Exception {
+        return CompactDocument.parse(XMLInputFactory.newInstance()
+                .createXMLStreamReader(new StringReader(xml)), false, false);
+    }
+
+    protected String getXMLSignature(
+        Object node,
+        boolean elements,
+        boolean attributes,
+        boolean text,
+        boolean pi) 
+    {
+        StringBuffer buffer = new StringBuffer();
+        if (node instanceof CompactDocument) {
+            appendXMLSignature(buffer, (CompactDocument) node, 0, elements, text);
+        }
+        else {
+            CompactNode compactNode = (CompactNode) node;
+            appendXMLSignature(buffer, compactNode.getDocument(),
+                    compactNode.getIndex(), elements, text);
+        }
+        return buffer.toString();
+    }
+
+    private void appendXMLSignature(
+        StringBuffer buffer,
+        CompactDocument document,
+        int node,
+        boolean elements,
+        boolean text)
+    {
+        switch (document.getNodeType(node)) {
+            case CompactDocument.DOCUMENT_NODE :
+                buffer.append("<D>");
+                appendChildSignatures(buffer, document, node, elements, text);
+                buffer.append("</D");
+                break;
+
+            case CompactDocument.ELEMENT_NODE :
+                String tag = elements ? document.getLocalName(node) : "E";
+                buffer.append("<");
+                buffer.append(tag);
+                buffer.append(">");
+                appendChildSignatures(buffer, document, node, elements, text);
+                buffer.append("</");
+                buffer.append(tag);
+                buffer.append(">");
+                break;
+
+            case CompactDocument.TEXT_NODE :
+                if (text) {
+                    buffer.append(document.getValue(node).replace('\n', '='));
+                }
+                break;
+        }
+    }
+
+    private void appendChildSignatures(
+        StringBuffer buffer,
+        CompactDocument document,
+        int node,
+        boolean elements,
+        boolean text)
+    {
+        for (int child = document.getFirstChild(node); child >= 0;
+                child = document.getNextSibling(child)) {
+            appendXMLSignature(buffer, document, child, elements, text);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.dom;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Runs the DOM model tests with the document indexes enabled.
+ *
+ * @version $Revision$ $Date$
+ */
+public class DOMIndexedModelTest extends DOMModelTest {
+
+    public void setUp() {
+        JXPathContextReferenceImpl.setIndexDocuments(true);
+        boolean done = false;
+        try {
+            super.setUp();
+            done = true;
+        }
+        finally {
+            // tearDown is not called when setUp fails
+            if (!done) {
+                JXPathContextReferenceImpl.setIndexDocuments(false);
+            }
+        }
+    }
+
+    public void tearDown() throws Exception {
+        JXPathContextReferenceImpl.setIndexDocuments(false);
+        super.tearDown();
+    }
+
+    public void testIndexFollowsChanges() throws Exception {
+        Document document = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().newDocument();
+        Element x = document.createElement("x");
+        document.appendChild(x);
+        for (int i = 0; i < 3; i++) {
+            Element y = document.createElement("y");
+            y.setAttribute("n", String.valueOf(i));
+            x.appendChild(y);
+        }
+
+        JXPathContext context = JXPathContext.newContext(document);
+        assertXPathValueIterator(context, "x/y[3]/@n | x/y[1]/@n | x/y[2]/@n",
+                list("0", "1", "2"));
+
+        // added behind the index's back
+        Element y = document.createElement("y");
+        y.setAttribute("n", "-1");
+        x.insertBefore(y, x.getFirstChild());
+        assertXPathValueIterator(context, "x/y[3]/@n | x/y[1]/@n",
+                list("-1", "1"));
+
+        context.removePath("x/y[2]");
+        context.getPointer("x/y[1]").setValue("text");
+        assertXPathValueIterator(context, "x/y[1]/text() | x/y[2]/@n | x/y[1]/@n",
+                list("-1", "text", "1"));
+
+        // a detached node is not in document order
+        Element detached = document.createElement("y");
+        assertEquals(DOMDocumentOrder.UNKNOWN, DOMDocumentOrder.compare(
+                new DOMNodePointer(detached, null),
+                context.getPointer("x/y[1]")));
+    }
+
+    public void testNamespaceScopesFollowChanges() throws Exception {
+        Document document = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().newDocument();
+        Element x = document.createElement("x");
+        x.setAttribute("xmlns:p", "urn:a");
+        Element y = document.createElement("y");
+        y.setAttribute("xmlns:p", "urn:b");
+        y.setAttribute("xmlns", "urn:default");
+        Element z = document.createElement("p:z");
+        Element w = document.createElement("w");
+        document.appendChild(x);
+        x.appendChild(y);
+        y.appendChild(z);
+        x.appendChild(w);
+
+        assertEquals("urn:b", new DOMNodePointer(z, null).getNamespaceURI("p"));
+        assertEquals("urn:b", DOMNodePointer.getNamespaceURI(z));
+        assertEquals("urn:default",
+                new DOMNodePointer(z, null).getDefaultNamespaceURI());
+        DOMNodePointer pointer = new DOMNodePointer(w, null);
+        assertEquals("urn:a", pointer.getNamespaceURI("p"));
+        assertNull(pointer.getDefaultNamespaceURI());
+        assertNull(pointer.getNamespaceURI("q"));
+
+        // seen once JXPath changes any document
+        x.setAttribute("xmlns:p", "urn:c");
+        JXPathContext.newContext(document).setValue("x/w", "text");
+        assertEquals("urn:c", pointer.getNamespaceURI("p"));
+    }
+}
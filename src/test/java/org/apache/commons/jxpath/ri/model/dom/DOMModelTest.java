@@ -16,8 +16,18 @@
  */
 package org.apache.commons.jxpath.ri.model.dom;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
 import org.apache.commons.jxpath.AbstractFactory;
 import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.Pointer;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.apache.commons.jxpath.ri.model.NodePointer;
 import org.apache.commons.jxpath.ri.model.XMLModelTestCase;
 import org.apache.commons.jxpath.xml.DocumentContainer;
 
@@ -51,12 +61,128 @@ public class DOMModelTest extends XMLModelTestCase {
         assertXPathNodeType(context, "//vendor", Element.class);
     }
 
+    public void testAttributeIdentityManager() {
+        context.setIdentityManager(new DOMIdentityManager(new String[] {"xml:id", "name"}));
+        assertXPathValueAndPointer(context, "id('local')/address/street",
+                "Orchard Road", "id('local')/address[1]/street[1]");
+        // the first element with the ID wins
+        assertXPathValue(context, "id('jack')", "Jack");
+        assertXPathPointerLenient(context, "id('missing')", "id(missing)");
+
+        context.removePath("vendor/contact[@name = 'jack'][1]");
+        assertXPathValue(context, "id('jack')", "Jack Black");
+
+        // the document of the node is searched, whatever the context bean
+        JXPathContext mapContext = JXPathContext.newContext(new HashMap());
+        mapContext.setIdentityManager(context.getIdentityManager());
+        NodePointer vendor = (NodePointer) context.getPointer("vendor");
+        assertEquals("Jack Black",
+                vendor.getPointerByID(mapContext, "jack").getValue());
+    }
+
+    public void testAttributeIdentityManagerAfterSetValue() {
+        // the ID index follows JXPath's changes whether or not documents
+        // are indexed
+        boolean indexed = JXPathContextReferenceImpl.isIndexDocuments();
+        JXPathContextReferenceImpl.setIndexDocuments(false);
+        try {
+            context.setIdentityManager(
+                    new DOMIdentityManager(new String[] {"name"}));
+            assertXPathValue(context, "id('jim')", "Jim");
+            context.setValue("vendor/contact[@name = 'jim']/@name", "james");
+            assertXPathValue(context, "id('james')", "Jim");
+            assertXPathPointerLenient(context, "id('jim')", "id(jim)");
+        }
+        finally {
+            JXPathContextReferenceImpl.setIndexDocuments(indexed);
+        }
+    }
+
+    public void testAsPathAfterDirectChange() {
+        // Changes made through the DOM API cannot be seen, so paths are
+        // not kept unless documents are indexed
+        boolean indexed = JXPathContextReferenceImpl.isIndexDocuments();
+        JXPathContextReferenceImpl.setIndexDocuments(false);
+        try {
+            JXPathContext rel = context.getRelativeContext(
+                    context.getPointer("vendor"));
+            Pointer jim = rel.getPointer("contact[3]");
+            assertEquals("/vendor[1]/contact[3]", jim.asPath());
+
+            Node vendor = (Node) rel.getContextBean();
+            vendor.removeChild((Node) rel.getPointer("contact[1]").getNode());
+            assertEquals("/vendor[1]/contact[2]", jim.asPath());
+        }
+        finally {
+            JXPathContextReferenceImpl.setIndexDocuments(indexed);
+        }
+    }
+
     public void testGetElementDescendantOrSelf() {
         JXPathContext childContext = context.getRelativeContext(context.getPointer("/vendor"));
         assertTrue(childContext.getContextBean() instanceof Element);
         assertXPathNodeType(childContext, "//vendor", Element.class);
     }
 
+    public void testDescendantDocumentOrder() throws Exception {
+        // <x><y><a>a2</a></y><a>a1</a></x>: evaluated child by child,
+        // //a would find a1 before a2
+        Document document = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().newDocument();
+        Element x = document.createElement("x");
+        Element y = document.createElement("y");
+        document.appendChild(x);
+        x.appendChild(y);
+        y.appendChild(createElement(document, "a", "a2"));
+        x.appendChild(createElement(document, "a", "a1"));
+
+        JXPathContext context = JXPathContext.newContext(document);
+        assertXPathValueIterator(context, "//a", list("a2", "a1"));
+        assertXPathValueIterator(context, "//a[. != 'a3']", list("a2", "a1"));
+        assertXPathValueIterator(context, "x//a", list("a2", "a1"));
+        assertXPathValueIterator(context, "//y | //a", list("a2", "a2", "a1"));
+        assertXPathValue(context, "(//a)[1]", "a2");
+        assertXPathValue(context, "//a[1]", "a1");
+        assertXPathValueIterator(context, "//a[1]", list("a2", "a1"));
+        assertXPathValueIterator(context, "//a[last()]", list("a2", "a1"));
+    }
+
+    public void testNestedNodeSetVariable() throws Exception {
+        // <r><s><s><foo>x</foo></s></s><s><foo>y</foo></s></r>: the nodes
+        // of //s are nested, so $nodes//foo must still be de-duplicated
+        Document document = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().newDocument();
+        Element r = document.createElement("r");
+        Element outer = document.createElement("s");
+        Element inner = document.createElement("s");
+        Element second = document.createElement("s");
+        document.appendChild(r);
+        r.appendChild(outer);
+        outer.appendChild(inner);
+        inner.appendChild(createElement(document, "foo", "x"));
+        r.appendChild(second);
+        second.appendChild(createElement(document, "foo", "y"));
+
+        JXPathContext context = JXPathContext.newContext(document);
+        List nodes = context.selectNodes("//s");
+        List reversed = new ArrayList(nodes);
+        Collections.reverse(reversed);
+        context.getVariables().declareVariable("nodes", nodes);
+        context.getVariables().declareVariable("rev", reversed);
+        assertXPathValue(context, "count($nodes//foo)", new Double(2));
+        assertXPathValue(context, "count($rev//foo)", new Double(2));
+        assertXPathValueIterator(context, "$rev//foo", list("x", "y"));
+        assertXPathValueIterator(context, "$rev/foo", list("y", "x"));
+        assertXPathValueIterator(context, "$nodes[2]//foo", list("x"));
+    }
+
+    private Element createElement(Document document, String name,
+            String text) {
+        Element element = document.createElement(name);
+        element.appendChild(document.createTextNode(text));
+        return element;
+    }
+
     protected String getXMLSignature(
         Object node,
         boolean elements,
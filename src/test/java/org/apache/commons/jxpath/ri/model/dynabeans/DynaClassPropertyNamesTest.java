@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.dynabeans;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.beanutils.BasicDynaClass;
+import org.apache.commons.beanutils.DynaProperty;
+import org.apache.commons.beanutils.LazyDynaBean;
+import org.apache.commons.beanutils.LazyDynaClass;
+import org.apache.commons.jxpath.JXPathContext;
+
+/**
+ * Test DynaClassPropertyNames.
+ *
+ * @version $Revision$ $Date$
+ */
+public class DynaClassPropertyNamesTest extends TestCase {
+
+    public void testSharedNames() {
+        BasicDynaClass dynaClass = new BasicDynaClass("row", null,
+                new DynaProperty[] {
+                    new DynaProperty("b", String.class),
+                    new DynaProperty("class", String.class),
+                    new DynaProperty("a", String.class)});
+        DynaClassPropertyNames table = DynaClassPropertyNames.forClass(dynaClass);
+        assertSame(table, DynaClassPropertyNames.forClass(dynaClass));
+        assertEquals(2, table.getNames().length);
+        assertEquals("a", table.getNames()[0]);
+        assertEquals(1, table.indexOf("b"));
+        assertEquals(-1, table.indexOf("class"));
+    }
+
+    public void testPropertyNamesCopied() throws Exception {
+        BasicDynaClass dynaClass = new BasicDynaClass("row", null,
+                new DynaProperty[] {
+                    new DynaProperty("a", String.class),
+                    new DynaProperty("b", String.class)});
+        DynaBeanPropertyPointer pointer = new DynaBeanPropertyPointer(null,
+                dynaClass.newInstance());
+        pointer.getPropertyNames()[0] = "x";
+        assertEquals("a", DynaClassPropertyNames.forClass(dynaClass).getNames()[0]);
+        assertEquals(0, pointer.indexOfProperty("a"));
+
+        // JXPath itself reads the table shared by the DynaClass
+        DynaBeanPropertyPointer other = new DynaBeanPropertyPointer(null,
+                dynaClass.newInstance());
+        assertSame(pointer.getSharedPropertyNames(),
+                other.getSharedPropertyNames());
+    }
+
+    public void testPropertyAdded() {
+        LazyDynaClass dynaClass = new LazyDynaClass();
+        dynaClass.add("b", String.class);
+        DynaClassPropertyNames table = DynaClassPropertyNames.forClass(dynaClass);
+        assertEquals(-1, table.indexOf("a"));
+        dynaClass.add("a", String.class);
+        table = DynaClassPropertyNames.forClass(dynaClass);
+        assertEquals(0, table.indexOf("a"));
+        assertEquals(1, table.indexOf("b"));
+    }
+
+    public void testLazyDynaBean() {
+        LazyDynaBean bean = new LazyDynaBean();
+        bean.set("b", "B");
+        JXPathContext context = JXPathContext.newContext(bean);
+        assertEquals(new Double(1), context.getValue("count(*)"));
+        bean.set("a", "A");
+        assertEquals(new Double(2), context.getValue("count(*)"));
+        assertEquals("A", context.getValue("*[1]"));
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.commons.jxpath.ri.model.dynabeans;
 
+import junit.framework.TestSuite;
+
 import org.apache.commons.beanutils.LazyDynaBean;
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathNotFoundException;
@@ -28,6 +30,23 @@ import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
  */
 public class LazyDynaBeanTest extends JXPathTestCase {
 
+    /**
+     * Return the tests included in this test suite. The strict factory
+     * stays registered once it is added, so its test has to run last.
+     */
+    public static TestSuite suite() {
+        TestSuite suite = new TestSuite();
+        suite.addTest(createTest("testLazyProperty"));
+        suite.addTest(createTest("testStrictLazyDynaBeanPropertyFactory"));
+        return suite;
+    }
+
+    private static LazyDynaBeanTest createTest(String name) {
+        LazyDynaBeanTest test = new LazyDynaBeanTest();
+        test.setName(name);
+        return test;
+    }
+
     public void testLazyProperty() throws JXPathNotFoundException {
         LazyDynaBean bean = new LazyDynaBean();
         JXPathContext context = JXPathContext.newContext(bean);
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathTestCase;
@@ -52,6 +53,43 @@ public class DynamicPropertiesModelTest extends JXPathTestCase {
         assertXPathPointer(context, "map/Key2/name", "/map[@name='Key2']/name");
     }
 
+    public void testAxisSibling() {
+        assertXPathValue(context, "count(map/Key1/following-sibling::Key2)",
+                new Double(1));
+
+        assertXPathValue(context, "count(map/Key2/following-sibling::Key1)",
+                new Double(0));
+
+        assertXPathValue(context, "count(map/Key2/preceding-sibling::Key1)",
+                new Double(1));
+    }
+
+    public void testNamedChildLookup() {
+        Map map = new HashMap();
+        map.put("a", "A");
+        map.put("7", "Seven");
+        JXPathContext ctx = JXPathContext.newContext(map);
+
+        assertXPathValue(ctx, "count(a | b)", new Double(1));
+        assertXPathValue(ctx, "count(.[@name='7'] | .[@name='b'])",
+                new Double(1));
+        assertXPathValue(ctx, "string(a[. = 'A'])", "A");
+        assertXPathValue(ctx, "count(a | a[. = 'A'])", new Double(1));
+
+
+        // keys are looked up, not listed
+        map = new HashMap() {
+            public Set keySet() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        map.put("a", "A");
+        ctx = JXPathContext.newContext(map);
+        assertXPathValue(ctx, "count(a | b)", new Double(1));
+        assertXPathValue(ctx, "count(.[@name='a'] | .[@name='b'])",
+                new Double(1));
+    }
+
     public void testAxisDescendant() {
         assertXPathValue(context, "//Key1", "Value 1");
     }
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.jdom;
+
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.jdom.Document;
+import org.jdom.Element;
+
+/**
+ * Runs the JDOM model tests with the document indexes enabled.
+ *
+ * @version $Revision$ $Date$
+ */
+public class JDOMIndexedModelTest extends JDOMModelTest {
+
+    public void setUp() {
+        JXPathContextReferenceImpl.setIndexDocuments(true);
+        boolean done = false;
+        try {
+            super.setUp();
+            done = true;
+        }
+        finally {
+            // tearDown is not called when setUp fails
+            if (!done) {
+                JXPathContextReferenceImpl.setIndexDocuments(false);
+            }
+        }
+    }
+
+    public void tearDown() throws Exception {
+        JXPathContextReferenceImpl.setIndexDocuments(false);
+        super.tearDown();
+    }
+
+    public void testIndexFollowsChanges() {
+        Element x = new Element("x");
+        Document document = new Document(x);
+        for (int i = 0; i < 3; i++) {
+            x.addContent(new Element("y").setAttribute("n", String.valueOf(i)));
+        }
+
+        JXPathContext context = JXPathContext.newContext(document);
+        assertXPathValueIterator(context, "x/y[3]/@n | x/y[1]/@n | x/y[2]/@n",
+                list("0", "1", "2"));
+
+        // added behind the index's back
+        x.addContent(0, new Element("y").setAttribute("n", "-1"));
+        assertXPathValueIterator(context, "x/y[3]/@n | x/y[1]/@n",
+                list("-1", "1"));
+
+        context.removePath("x/y[2]");
+        context.getPointer("x/y[1]").setValue("text");
+        assertXPathValueIterator(context, "x/y[1]/text() | x/y[2]/@n | x/y[1]/@n",
+                list("-1", "text", "1"));
+
+        // a detached element is not in document order
+        assertEquals(JDOMDocumentOrder.UNKNOWN, JDOMDocumentOrder.compare(
+                new JDOMNodePointer(new Element("y"), null),
+                context.getPointer("x/y[1]")));
+    }
+}
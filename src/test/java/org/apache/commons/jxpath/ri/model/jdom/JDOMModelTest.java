@@ -16,10 +16,14 @@
  */
 package org.apache.commons.jxpath.ri.model.jdom;
 
+import java.util.HashMap;
 import java.util.List;
 
 import org.apache.commons.jxpath.AbstractFactory;
 import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.Pointer;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.apache.commons.jxpath.ri.model.NodePointer;
 import org.apache.commons.jxpath.ri.model.XMLModelTestCase;
 import org.apache.commons.jxpath.xml.DocumentContainer;
 
@@ -48,6 +52,63 @@ public class JDOMModelTest extends XMLModelTestCase {
         assertXPathNodeType(context, "//vendor", Element.class); //bugzilla #38586
     }
 
+    public void testAttributeIdentityManagerAfterSetValue() {
+        // the ID index follows JXPath's changes whether or not documents
+        // are indexed
+        boolean indexed = JXPathContextReferenceImpl.isIndexDocuments();
+        JXPathContextReferenceImpl.setIndexDocuments(false);
+        try {
+            context.setIdentityManager(
+                    new JDOMIdentityManager(new String[] {"name"}));
+            assertXPathValue(context, "id('jim')", "Jim");
+            context.setValue("vendor/contact[@name = 'jim']/@name", "james");
+            assertXPathValue(context, "id('james')", "Jim");
+            assertXPathPointerLenient(context, "id('jim')", "id(jim)");
+        }
+        finally {
+            JXPathContextReferenceImpl.setIndexDocuments(indexed);
+        }
+    }
+
+    public void testAsPathAfterDirectChange() {
+        // Changes made through the JDOM API cannot be seen, so paths are
+        // not kept unless documents are indexed
+        boolean indexed = JXPathContextReferenceImpl.isIndexDocuments();
+        JXPathContextReferenceImpl.setIndexDocuments(false);
+        try {
+            JXPathContext rel = context.getRelativeContext(
+                    context.getPointer("vendor"));
+            Pointer jim = rel.getPointer("contact[3]");
+            assertEquals("/vendor[1]/contact[3]", jim.asPath());
+
+            Element vendor = (Element) rel.getContextBean();
+            vendor.removeContent((Element) rel.getPointer("contact[1]").getNode());
+            assertEquals("/vendor[1]/contact[2]", jim.asPath());
+        }
+        finally {
+            JXPathContextReferenceImpl.setIndexDocuments(indexed);
+        }
+    }
+
+    public void testAttributeIdentityManager() {
+        context.setIdentityManager(new JDOMIdentityManager(new String[] {"xml:id", "name"}));
+        assertXPathValueAndPointer(context, "id('local')/address/street",
+                "Orchard Road", "id('local')/address[1]/street[1]");
+        // the first element with the ID wins
+        assertXPathValue(context, "id('jack')", "Jack");
+        assertXPathPointerLenient(context, "id('missing')", "id(missing)");
+
+        context.removePath("vendor/contact[@name = 'jack'][1]");
+        assertXPathValue(context, "id('jack')", "Jack Black");
+
+        // the document of the node is searched, whatever the context bean
+        JXPathContext mapContext = JXPathContext.newContext(new HashMap());
+        mapContext.setIdentityManager(context.getIdentityManager());
+        NodePointer vendor = (NodePointer) context.getPointer("vendor");
+        assertEquals("Jack Black",
+                vendor.getPointerByID(mapContext, "jack").getValue());
+    }
+
     public void testGetElementDescendantOrSelf() {
         JXPathContext childContext = context.getRelativeContext(context.getPointer("/vendor"));
         assertTrue(childContext.getContextBean() instanceof Element);
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that CollectionCursor returns the same elements as
+ * ValueUtils.getValue(Object, int).
+ *
+ * @version $Revision$ $Date$
+ */
+public class CollectionCursorTest extends TestCase {
+
+    private Set set;
+    private CollectionCursor cursor;
+
+    public void setUp() {
+        set = new LinkedHashSet();
+        for (int i = 0; i < 10; i++) {
+            set.add("e" + i);
+        }
+        cursor = new CollectionCursor();
+    }
+
+    public void testForward() {
+        for (int i = 0; i < set.size(); i++) {
+            assertEquals("e" + i, cursor.getValue(set, i));
+            assertEquals("e" + i, cursor.getValue(set, i));
+        }
+        assertNull(cursor.getValue(set, set.size()));
+        assertEquals("e7", cursor.getValue(set, 7));
+    }
+
+    public void testRandomAccess() {
+        int[] order = {5, 2, 9, 0, 0, 7, -1};
+        for (int i = 0; i < order.length; i++) {
+            assertEquals(ValueUtils.getValue(set, order[i]),
+                    cursor.getValue(set, order[i]));
+        }
+    }
+
+    public void testModified() {
+        assertEquals("e3", cursor.getValue(set, 3));
+        set.remove("e4");
+        assertEquals("e5", cursor.getValue(set, 4));
+        assertEquals("e1", cursor.getValue(set, 1));
+        set.add("e10");
+        assertEquals("e10", cursor.getValue(set, 9));
+    }
+
+    public void testOtherCollection() {
+        assertEquals("e2", cursor.getValue(set, 2));
+        Set other = new LinkedHashSet(set);
+        other.remove("e0");
+        assertEquals("e1", cursor.getValue(other, 0));
+        List list = new ArrayList(set);
+        assertEquals("e0", cursor.getValue(list, 0));
+        assertEquals(new Integer(2), cursor.getValue(new int[] {1, 2}, 1));
+        assertEquals("x", cursor.getValue("x", 0));
+    }
+}
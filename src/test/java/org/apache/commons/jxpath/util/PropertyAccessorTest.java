@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.util;
+
+import java.beans.PropertyDescriptor;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jxpath.JXPathBasicBeanInfo;
+import org.apache.commons.jxpath.JXPathException;
+import org.apache.commons.jxpath.JXPathIntrospector;
+import org.apache.commons.jxpath.NestedTestBean;
+import org.apache.commons.jxpath.TestBean;
+
+/**
+ * Checks that PropertyAccessor behaves like the reflective accessors of
+ * ValueUtils.
+ *
+ * @version $Revision$ $Date$
+ */
+public class PropertyAccessorTest extends TestCase {
+
+    private TestBean bean;
+
+    public void setUp() {
+        bean = new TestBean();
+    }
+
+    public void testGetValue() {
+        assertEquals(new Integer(1), accessor("int").getValue(bean));
+        assertSame(bean.getNestedBean(),
+                accessor("nestedBean").getValue(bean));
+        assertSame(bean.getList(), accessor("list").getValue(bean));
+    }
+
+    public void testSetValue() {
+        accessor("int").setValue(bean, "5");
+        assertEquals(5, bean.getInt());
+        accessor("boolean").setValue(bean, Boolean.TRUE);
+        assertTrue(bean.isBoolean());
+        NestedTestBean nested = new NestedTestBean("x");
+        accessor("nestedBean").setValue(bean, nested);
+        assertSame(nested, bean.getNestedBean());
+        accessor("nestedBean").setValue(bean, null);
+        assertNull(bean.getNestedBean());
+    }
+
+    public void testIndexedProperty() {
+        PropertyAccessor accessor = accessor("integers");
+        assertEquals(new Integer(2), accessor.getValue(bean, 1));
+        assertNull(accessor.getValue(bean, 10));
+        accessor.setValue(bean, 1, "7");
+        assertEquals(7, bean.getIntegers(1));
+    }
+
+    public void testCollectionProperty() {
+        PropertyAccessor accessor = accessor("list");
+        PropertyDescriptor pd = accessor.getPropertyDescriptor();
+        assertEquals(ValueUtils.getValue(bean, pd, 1),
+                accessor.getValue(bean, 1));
+        accessor.setValue(bean, 1, "changed");
+        assertEquals("changed", bean.getList().get(1));
+    }
+
+    public void testNotAssignable() {
+        try {
+            accessor("nestedBean").setValue(bean, new Object());
+            fail("Assigned an Object to a NestedTestBean property");
+        }
+        catch (RuntimeException ex) {
+            // expected
+        }
+    }
+
+    public void testNullToPrimitive() {
+        accessor("int").setValue(bean, null);
+        TestBean expected = new TestBean();
+        ValueUtils.setValue(expected,
+                accessor("int").getPropertyDescriptor(), null);
+        assertEquals(expected.getInt(), bean.getInt());
+    }
+
+    public void testReadOnlyProperty() {
+        try {
+            accessor("object").setValue(bean, "x");
+            fail("Modified a read-only property");
+        }
+        catch (JXPathException ex) {
+            // expected
+        }
+    }
+
+    public void testAccessorTable() {
+        JXPathBasicBeanInfo beanInfo = (JXPathBasicBeanInfo)
+                JXPathIntrospector.getBeanInfo(TestBean.class);
+        assertSame(beanInfo.getPropertyAccessor("int"),
+                beanInfo.getPropertyAccessor("int"));
+        assertNull(beanInfo.getPropertyAccessor("missing"));
+    }
+
+    private PropertyAccessor accessor(String name) {
+        PropertyDescriptor pd = JXPathIntrospector.getBeanInfo(TestBean.class)
+                .getPropertyDescriptor(name);
+        return new PropertyAccessor(pd);
+    }
+}
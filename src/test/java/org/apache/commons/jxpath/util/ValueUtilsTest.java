@@ -19,6 +19,7 @@ package org.apache.commons.jxpath.util;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 import junit.framework.TestCase;
 
@@ -76,4 +77,11 @@ public class ValueUtilsTest extends TestCase {
         dataSet.add(data);
         assertNull(ValueUtils.getValue(dataSet, -1));
     }
+
+    public void testIteratePrimitiveArray() {
+        Iterator it = ValueUtils.iterate(new int[] {1, 2});
+        assertEquals(new Integer(1), it.next());
+        assertEquals(new Integer(2), it.next());
+        assertFalse(it.hasNext());
+    }
 }